@@ -0,0 +1,128 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.altibase.AltibaseDialect;
+import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.data.kairos.KairosDialect;
+import org.geotools.data.tibero.TiberoDialect;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.BasicSQLDialect;
+import org.geotools.jdbc.JDBCDataStore;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SQL generation of typical map requests by the FilterToSQL of each dialect, and the
+ * FilterToSqlHelper behind it. A filter to SQL encoder is created per call, as the data store does
+ * for every query.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterToSQLBenchmark {
+
+    /** the number of vertices of the geometry literal */
+    @Param({ "5", "100", "1000" })
+    int vertices;
+
+    @Param({ "bbox", "intersects", "dwithin", "attributes" })
+    String filter;
+
+    SimpleFeatureType featureType;
+
+    Filter query;
+
+    BasicSQLDialect kairos;
+
+    BasicSQLDialect tibero;
+
+    BasicSQLDialect altibase;
+
+    @Setup
+    public void setup() {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("ROAD");
+        builder.add("GEOM", LineString.class);
+        builder.add("NAME", String.class);
+        builder.add("LANES", Integer.class);
+        featureType = builder.buildFeatureType();
+        featureType.getGeometryDescriptor().getUserData().put(JDBCDataStore.JDBC_NATIVE_SRID,
+                5179);
+
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Geometry literal = Geometries.create("Polygon", vertices, 2);
+        if ("bbox".equals(filter)) {
+            query = ff.bbox(ff.property("GEOM"), ff.literal(literal.getEnvelope()));
+        } else if ("intersects".equals(filter)) {
+            query = ff.intersects(ff.property("GEOM"), ff.literal(literal));
+        } else if ("dwithin".equals(filter)) {
+            query = ff.dwithin(ff.property("GEOM"), ff.literal(literal), 100, "m");
+        } else {
+            query = ff.and(ff.like(ff.property("NAME"), "Teheran*"),
+                    ff.and(ff.greaterOrEqual(ff.property("LANES"), ff.literal(2)),
+                            ff.bbox(ff.property("GEOM"), ff.literal(literal.getEnvelope()))));
+        }
+
+        JDBCDataStore dataStore = new JDBCDataStore();
+        kairos = new KairosDialect(dataStore);
+        tibero = new TiberoDialect(dataStore);
+        altibase = new AltibaseDialect(dataStore);
+    }
+
+    String encode(BasicSQLDialect dialect) throws FilterToSQLException {
+        FilterToSQL encoder = dialect.createFilterToSQL();
+        encoder.setFeatureType(featureType);
+        return encoder.encodeToString(query);
+    }
+
+    @Benchmark
+    public String kairos() throws FilterToSQLException {
+        return encode(kairos);
+    }
+
+    @Benchmark
+    public String tibero() throws FilterToSQLException {
+        return encode(tibero);
+    }
+
+    @Benchmark
+    public String altibase() throws FilterToSQLException {
+        return encode(altibase);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.Random;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKBWriter;
+
+/**
+ * Synthetic geometries for the benchmarks. The generation is seeded, every run decodes the same
+ * bytes.
+ */
+final class Geometries {
+
+    static final GeometryFactory FACTORY = new GeometryFactory();
+
+    // somewhere around Seoul, in EPSG:5179 meters
+    static final double ORIGIN_X = 955000;
+
+    static final double ORIGIN_Y = 1950000;
+
+    private Geometries() {
+    }
+
+    /**
+     * Builds a geometry of the given type, with about <code>vertices</code> vertices overall
+     *
+     * @param type one of Point, LineString, Polygon and MultiPolygon
+     * @param vertices the number of vertices
+     * @param dimension 2 or 3
+     */
+    static Geometry create(String type, int vertices, int dimension) {
+        Random random = new Random(vertices * 31L + dimension);
+        if ("Point".equals(type)) {
+            return FACTORY.createPoint(coordinate(random, ORIGIN_X, ORIGIN_Y, dimension));
+        } else if ("LineString".equals(type)) {
+            return lineString(random, ORIGIN_X, ORIGIN_Y, vertices, dimension);
+        } else if ("Polygon".equals(type)) {
+            return polygon(random, ORIGIN_X, ORIGIN_Y, 1000, vertices, dimension);
+        } else if ("MultiPolygon".equals(type)) {
+            int parts = Math.max(1, vertices / 100);
+            Polygon[] polygons = new Polygon[parts];
+            for (int i = 0; i < parts; i++) {
+                polygons[i] = polygon(random, ORIGIN_X + i * 3000, ORIGIN_Y, 1000,
+                        Math.max(4, vertices / parts), dimension);
+            }
+            return FACTORY.createMultiPolygon(polygons);
+        }
+        throw new IllegalArgumentException("Unknown geometry type " + type);
+    }
+
+    /**
+     * Encodes the geometry in WKB, the way the databases return it
+     */
+    static byte[] wkb(Geometry geometry, int dimension) {
+        return new WKBWriter(dimension).write(geometry);
+    }
+
+    static LineString lineString(Random random, double x, double y, int vertices,
+            int dimension) {
+        Coordinate[] coordinates = new Coordinate[Math.max(2, vertices)];
+        for (int i = 0; i < coordinates.length; i++) {
+            x += random.nextDouble() * 10;
+            y += random.nextDouble() * 10 - 5;
+            coordinates[i] = coordinate(random, x, y, dimension);
+        }
+        return FACTORY.createLineString(coordinates);
+    }
+
+    /**
+     * A star shaped polygon, the vertices jitter around a circle
+     */
+    static Polygon polygon(Random random, double x, double y, double radius, int vertices,
+            int dimension) {
+        int size = Math.max(3, vertices - 1);
+        Coordinate[] coordinates = new Coordinate[size + 1];
+        for (int i = 0; i < size; i++) {
+            double angle = 2 * Math.PI * i / size;
+            double r = radius * (0.8 + random.nextDouble() * 0.2);
+            coordinates[i] = coordinate(random, x + r * Math.cos(angle), y + r * Math.sin(angle),
+                    dimension);
+        }
+        coordinates[size] = coordinates[0];
+        LinearRing shell = FACTORY.createLinearRing(coordinates);
+        return FACTORY.createPolygon(shell);
+    }
+
+    static Coordinate coordinate(Random random, double x, double y, int dimension) {
+        return dimension > 2 ? new Coordinate(x, y, random.nextDouble() * 100)
+                : new Coordinate(x, y);
+    }
+
+    /**
+     * A result set holding a single geometry column, for the readers working on JDBC results
+     */
+    static ResultSet resultSet(final byte[] bytes) {
+        return (ResultSet) Proxy.newProxyInstance(Geometries.class.getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("getBytes".equals(name)) {
+                            return bytes;
+                        } else if ("getBinaryStream".equals(name)) {
+                            return new ByteArrayInputStream(bytes);
+                        } else if ("wasNull".equals(name)) {
+                            return Boolean.FALSE;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.pgdb.PGDBDecoder;
+import org.geotools.data.shapefile.shp.MultiLineHandler;
+import org.geotools.data.shapefile.shp.PolygonHandler;
+import org.geotools.data.shapefile.shp.ShapeHandler;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding of ESRI shape buffers, as stored in the Personal Geodatabase geometry columns, by
+ * {@link PGDBDecoder#decodeGeometry(byte[])}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PGDBDecoderBenchmark {
+
+    @Param({ "Point", "LineString", "Polygon", "MultiPolygon" })
+    String type;
+
+    @Param({ "10", "100", "1000", "10000" })
+    int vertices;
+
+    @Param({ "2", "3" })
+    int dimension;
+
+    byte[] shape;
+
+    PGDBDecoder decoder;
+
+    PGDBDecoder flatDecoder;
+
+    @Setup
+    public void setup() {
+        shape = encode(Geometries.create(type, vertices, dimension), dimension > 2);
+        decoder = PGDBDecoder.newInstance();
+        flatDecoder = PGDBDecoder.newInstance(true);
+    }
+
+    @Benchmark
+    public Geometry decode() {
+        return decoder.decodeGeometry(shape);
+    }
+
+    @Benchmark
+    public Geometry decodeFlat() {
+        return flatDecoder.decodeGeometry(shape);
+    }
+
+    /**
+     * Encodes the geometry as a shape buffer: the shape type followed by the shapefile record
+     * content, all little endian
+     */
+    static byte[] encode(Geometry geometry, boolean hasZ) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024 + geometry.getNumPoints() * 40);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (geometry instanceof Point) {
+            Point point = (Point) geometry;
+            buffer.putInt(hasZ ? ShapeType.POINTZ.id : ShapeType.POINT.id);
+            buffer.putDouble(point.getX());
+            buffer.putDouble(point.getY());
+            if (hasZ) {
+                buffer.putDouble(point.getCoordinate().getZ());
+            }
+        } else {
+            ShapeType shapeType;
+            ShapeHandler handler;
+            if (geometry instanceof LineString) {
+                geometry = Geometries.FACTORY
+                        .createMultiLineString(new LineString[] { (LineString) geometry });
+                shapeType = hasZ ? ShapeType.ARCZ : ShapeType.ARC;
+                handler = new MultiLineHandler(shapeType, Geometries.FACTORY);
+            } else {
+                shapeType = hasZ ? ShapeType.POLYGONZ : ShapeType.POLYGON;
+                handler = new PolygonHandler(shapeType, Geometries.FACTORY);
+            }
+            buffer.putInt(shapeType.id);
+            handler.write(buffer, geometry);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+}
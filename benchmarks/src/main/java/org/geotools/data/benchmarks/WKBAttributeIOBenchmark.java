@@ -0,0 +1,87 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.benchmarks;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.korean.WKBAttributeIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Geometry column reads through the WKBAttributeIO shared by the modules, the way the dialects
+ * decode the feature rows, buffered, streamed and through the point fast path. The result set is a proxy over a single WKB value, its overhead is the same for
+ * all the methods.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WKBAttributeIOBenchmark {
+
+    @Param({ "Point", "LineString", "Polygon", "MultiPolygon" })
+    String type;
+
+    @Param({ "10", "100", "1000", "10000" })
+    int vertices;
+
+    ResultSet rs;
+
+    WKBAttributeIO buffered;
+
+    WKBAttributeIO streaming;
+
+    WKBAttributeIO points;
+
+    @Setup
+    public void setup() {
+        rs = Geometries.resultSet(Geometries.wkb(Geometries.create(type, vertices, 2), 2));
+        buffered = new WKBAttributeIO(Geometries.FACTORY);
+        streaming = new WKBAttributeIO(Geometries.FACTORY);
+        streaming.setStreaming(true);
+        points = new WKBAttributeIO(Geometries.FACTORY);
+        points.setPoints(true);
+    }
+
+    @Benchmark
+    public Object buffered() throws IOException {
+        return buffered.read(rs, 1);
+    }
+
+    @Benchmark
+    public Object streaming() throws IOException {
+        return streaming.read(rs, 1);
+    }
+
+    @Benchmark
+    public Object pointFastPath() throws IOException {
+        return points.read(rs, 1);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.korean.WKBReader;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding of WKB byte arrays by the Kairos {@link WKBReader}. The Tibero and Altibase modules hold
+ * identical copies of it. The JTS reader is measured as the baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WKBReaderBenchmark {
+
+    @Param({ "LineString", "Polygon", "MultiPolygon" })
+    String type;
+
+    @Param({ "10", "100", "1000", "10000" })
+    int vertices;
+
+    @Param({ "2", "3" })
+    int dimension;
+
+    byte[] wkb;
+
+    WKBReader reader;
+
+    WKBReader reader2D;
+
+    org.locationtech.jts.io.WKBReader jtsReader;
+
+    @Setup
+    public void setup() {
+        wkb = Geometries.wkb(Geometries.create(type, vertices, dimension), dimension);
+        reader = new WKBReader(Geometries.FACTORY);
+        reader2D = new WKBReader(Geometries.FACTORY);
+        reader2D.setForce2D(true);
+        jtsReader = new org.locationtech.jts.io.WKBReader(Geometries.FACTORY);
+    }
+
+    @Benchmark
+    public Geometry read() throws ParseException {
+        return reader.read(wkb);
+    }
+
+    @Benchmark
+    public Geometry readForce2D() throws ParseException {
+        return reader2D.read(wkb);
+    }
+
+    @Benchmark
+    public Envelope readEnvelope() throws ParseException {
+        return WKBReader.readEnvelope(wkb, false);
+    }
+
+    @Benchmark
+    public Geometry readJTS() throws ParseException {
+        return jtsReader.read(wkb);
+    }
+}
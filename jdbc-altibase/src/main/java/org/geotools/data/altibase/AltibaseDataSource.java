@@ -0,0 +1,31 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.altibase;
+
+import javax.sql.DataSource;
+
+import org.geotools.data.korean.DecoratingDataSource;
+
+/**
+ * Decorates the data source of a Altibase data store, see {@link DecoratingDataSource}
+ */
+public class AltibaseDataSource extends DecoratingDataSource {
+
+    public AltibaseDataSource(DataSource wrapped) {
+        super(wrapped);
+    }
+}
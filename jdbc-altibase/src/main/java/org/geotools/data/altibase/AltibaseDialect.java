@@ -19,6 +19,7 @@ package org.geotools.data.altibase;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Savepoint;
@@ -29,12 +30,21 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
+import org.geotools.data.Query;
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.korean.DecodingDialect;
+import org.geotools.data.korean.DecoratingDataSource;
+import org.geotools.data.korean.ExtentCache;
+import org.geotools.data.korean.GeometryMetadataCatalog;
+import org.geotools.data.korean.ReadPipeline;
+import org.geotools.data.korean.WKBAttributeIO;
 import org.geotools.filter.IsLessThenOrEqualToImpl;
 import org.geotools.filter.LiteralExpressionImpl;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
@@ -53,21 +63,45 @@ import org.locationtech.jts.geom.MultiPoint;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
-import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.WKTReader;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.feature.type.GeometryType;
+import org.opengis.filter.And;
 import org.opengis.filter.Filter;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
-public class AltibaseDialect extends BasicSQLDialect {
+public class AltibaseDialect extends BasicSQLDialect implements DecodingDialect {
 
     boolean looseBBOXEnabled = false;
 
     boolean estimatedExtentsEnabled = false;
 
+    int extentCacheTTL = 0;
+
+    String extentCacheTable;
+
+    ExtentCache extentCache;
+
+    final AltibaseGeometryMetadataCatalog geometryMetadata =
+            new AltibaseGeometryMetadataCatalog();
+
+    boolean geometryTypeSamplingEnabled = false;
+
+    boolean streamingDecodeEnabled = false;
+
+    boolean lazyDecodeEnabled = false;
+
+    boolean decimationEnabled = false;
+
+    boolean force2DEnabled = false;
+
+    boolean pointFastPathEnabled = false;
+
+    boolean twoPhaseFilterEnabled = false;
+
+    int twoPhaseFilterVertices = DEFAULT_TWO_PHASE_FILTER_VERTICES;
+
     Version version;
 
     @SuppressWarnings({ "rawtypes", "serial" })
@@ -127,6 +161,148 @@ public class AltibaseDialect extends BasicSQLDialect {
         this.estimatedExtentsEnabled = estimatedExtentsEnabled;
     }
 
+    public int getExtentCacheTTL() {
+        return extentCacheTTL;
+    }
+
+    /**
+     * Sets the number of seconds the optimized bounds are cached for, see {@link ExtentCache}, 0
+     * disables the cache
+     */
+    public void setExtentCacheTTL(int extentCacheTTL) {
+        this.extentCacheTTL = extentCacheTTL;
+        this.extentCache = createExtentCache();
+    }
+
+    public String getExtentCacheTable() {
+        return extentCacheTable;
+    }
+
+    /**
+     * Sets the table persisting the cached bounds, null to keep them in memory only
+     */
+    public void setExtentCacheTable(String extentCacheTable) {
+        this.extentCacheTable = extentCacheTable;
+        this.extentCache = createExtentCache();
+    }
+
+    ExtentCache createExtentCache() {
+        return extentCacheTTL > 0 ? new ExtentCache(extentCacheTTL * 1000L, extentCacheTable,
+                dataStore, "DOUBLE") : null;
+    }
+
+    /**
+     * Drops the geometry metadata loaded from the GEOMETRY_COLUMNS table, see
+     * {@link GeometryMetadataCatalog}, so that it is loaded again on next use
+     */
+    public void refreshGeometryMetadata() {
+        geometryMetadata.refresh();
+    }
+
+    public boolean isGeometryTypeSamplingEnabled() {
+        return geometryTypeSamplingEnabled;
+    }
+
+    /**
+     * Enables reading the geometry type of the columns from their first row, cached until
+     * {@link #refreshGeometryMetadata()}, otherwise the columns map to the generic geometry type
+     */
+    public void setGeometryTypeSamplingEnabled(boolean geometryTypeSamplingEnabled) {
+        this.geometryTypeSamplingEnabled = geometryTypeSamplingEnabled;
+    }
+
+    public boolean isStreamingDecodeEnabled() {
+        return streamingDecodeEnabled;
+    }
+
+    public void setStreamingDecodeEnabled(boolean streamingDecodeEnabled) {
+        this.streamingDecodeEnabled = streamingDecodeEnabled;
+    }
+
+    public boolean isLazyDecodeEnabled() {
+        return lazyDecodeEnabled;
+    }
+
+    public void setLazyDecodeEnabled(boolean lazyDecodeEnabled) {
+        this.lazyDecodeEnabled = lazyDecodeEnabled;
+    }
+
+    public boolean isDecimationEnabled() {
+        return decimationEnabled;
+    }
+
+    /**
+     * Enables the decimation and clipping of geometries while decoding them, driven by the
+     * {@link Hints#GEOMETRY_DISTANCE} or {@link Hints#GEOMETRY_SIMPLIFICATION} hint and the query
+     * area
+     */
+    public void setDecimationEnabled(boolean decimationEnabled) {
+        this.decimationEnabled = decimationEnabled;
+    }
+
+    public boolean isForce2DEnabled() {
+        return force2DEnabled;
+    }
+
+    /**
+     * Enables decoding the X and Y ordinates only, the Z ordinates are skipped in the WKB without
+     * being read. Single queries can ask for it as well through the {@link Hints#FEATURE_2D} hint.
+     */
+    public void setForce2DEnabled(boolean force2DEnabled) {
+        this.force2DEnabled = force2DEnabled;
+    }
+
+    public boolean isPointFastPathEnabled() {
+        return pointFastPathEnabled;
+    }
+
+    /**
+     * Enables decoding the geometries of point columns straight from the WKB bytes, bypassing the
+     * general WKB reader
+     */
+    public void setPointFastPathEnabled(boolean pointFastPathEnabled) {
+        this.pointFastPathEnabled = pointFastPathEnabled;
+    }
+
+    public boolean isTwoPhaseFilterEnabled() {
+        return twoPhaseFilterEnabled;
+    }
+
+    /**
+     * Enables two phase filtering: feature selects only send MBR tests for large filter geometries
+     * and the read pipeline applies the exact tests, requires the read pipeline
+     */
+    public void setTwoPhaseFilterEnabled(boolean twoPhaseFilterEnabled) {
+        this.twoPhaseFilterEnabled = twoPhaseFilterEnabled;
+    }
+
+    public int getTwoPhaseFilterVertices() {
+        return twoPhaseFilterVertices;
+    }
+
+    /**
+     * Sets the minimum number of vertices of a filter geometry for two phase filtering
+     */
+    public void setTwoPhaseFilterVertices(int twoPhaseFilterVertices) {
+        this.twoPhaseFilterVertices = twoPhaseFilterVertices;
+    }
+
+    /**
+     * Returns true if the geometries of the given column are decoded through the point fast path
+     */
+    public boolean isPointFastPath(GeometryDescriptor descriptor) {
+        return pointFastPathEnabled && descriptor != null
+                && Point.class.equals(descriptor.getType().getBinding());
+    }
+
+    /**
+     * Returns true if the geometries read with the given query hints should be two dimensional
+     */
+    public boolean isForce2D(Hints hints) {
+        return force2DEnabled
+                || (hints != null && Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D)));
+    }
+
     @Override
     public boolean isAggregatedSortSupported(String function) {
         return "distinct".equalsIgnoreCase(function);
@@ -156,26 +332,212 @@ public class AltibaseDialect extends BasicSQLDialect {
 
     ThreadLocal<WKBAttributeIO> wkbReader = new ThreadLocal<WKBAttributeIO>();
 
+    /** default minimum number of vertices of a filter geometry for two phase filtering */
+    public static final int DEFAULT_TWO_PHASE_FILTER_VERTICES = 1000;
+
+    /** The hints of the last feature select, picked up by {@link #onSelect} */
+    ThreadLocal<Hints> selectHints = new ThreadLocal<Hints>();
+
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
             GeometryFactory factory, Connection cx) throws IOException, SQLException {
-        WKBAttributeIO reader = getWKBReader(factory);
-        return (Geometry) reader.read(rs, column);
+        return decodeGeometryValue(descriptor, rs, column, factory, cx, null);
     }
 
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
             GeometryFactory factory, Connection cx) throws IOException, SQLException {
-        WKBAttributeIO reader = getWKBReader(factory);
-        return (Geometry) reader.read(rs, column);
+        return decodeGeometryValue(descriptor, rs, column, factory, cx, null);
     }
 
     @Override
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
             GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
-        WKBAttributeIO reader = getWKBReader(factory);
+        if (rs instanceof ReadPipeline.DecodedResultSet) {
+            return ((ReadPipeline.DecodedResultSet) rs).getGeometry(column, factory);
+        }
+        WKBAttributeIO reader = getWKBReader(factory, hints);
+        reader.setPoints(isPointFastPath(descriptor));
+        return (Geometry) reader.read(rs, column);
+    }
+
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        if (rs instanceof ReadPipeline.DecodedResultSet) {
+            return ((ReadPipeline.DecodedResultSet) rs).getGeometry(column, factory);
+        }
+        WKBAttributeIO reader = getWKBReader(factory, hints);
+        reader.setPoints(isPointFastPath(descriptor));
         return (Geometry) reader.read(rs, column);
     }
 
+    @Override
+    public void handleSelectHints(StringBuffer sql, SimpleFeatureType featureType, Query query) {
+        List<ReadPipeline.Refinement> refinements = relaxSpatialFilters(sql, query);
+
+        if (query.getHints() == null && refinements == null) {
+            // do not leave the hints of an earlier select behind for onSelect
+            selectHints.remove();
+            return;
+        }
+        // the query hints are the caller's, the select ones are added to a copy
+        Hints hints = query.getHints() == null ? new Hints() : new Hints(query.getHints());
+
+        // derive the clip envelope from the query area, a few pixels larger
+        Double distance = getDecimationDistance(hints);
+        Envelope clip = null;
+        if (distance != null && distance > 0 && query.getFilter() != null) {
+            Envelope bounds = (Envelope) query.getFilter().accept(
+                    ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+            if (bounds != null && !bounds.isNull() && !Double.isInfinite(bounds.getWidth())
+                    && !Double.isInfinite(bounds.getHeight())) {
+                clip = new Envelope(bounds);
+                clip.expandBy(distance * 2);
+            }
+        }
+        if (clip != null) {
+            hints.put(ReadPipeline.CLIP_ENVELOPE, clip);
+        } else {
+            hints.remove(ReadPipeline.CLIP_ENVELOPE);
+        }
+        if (refinements != null) {
+            hints.put(ReadPipeline.REFINEMENTS, refinements);
+        } else {
+            hints.remove(ReadPipeline.REFINEMENTS);
+        }
+        selectHints.set(hints);
+    }
+
+    /**
+     * Swaps the exact spatial tests recorded while encoding the filter of a feature select for
+     * their MBR tests, returns the exact tests left to the read pipeline, or null if there are none
+     */
+    List<ReadPipeline.Refinement> relaxSpatialFilters(StringBuffer sql, Query query) {
+        List<ReadPipeline.Refinement> recorded = FilterToSqlHelper.REFINEMENTS.get();
+        FilterToSqlHelper.REFINEMENTS.remove();
+        // a limit or an offset would apply to the candidates instead of the refined rows
+        if (recorded == null || !twoPhaseFilterEnabled || !query.isMaxFeaturesUnlimited()
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)) {
+            return null;
+        }
+
+        // only the top level conjuncts can be refined apart from the rest of the filter
+        List<Filter> conjuncts = new ArrayList<Filter>();
+        addConjuncts(query.getFilter(), conjuncts);
+        String[] properties = query.getPropertyNames();
+
+        // the same SQL text can occur more than once, the tests are located by their offset in the
+        // filter encoded last, and swapped from the last one so that the other offsets still hold
+        String where = recorded.get(recorded.size() - 1).where;
+        int start = where == null ? -1 : sql.lastIndexOf(where);
+        if (start < 0) {
+            return null;
+        }
+        List<ReadPipeline.Refinement> candidates = new ArrayList<ReadPipeline.Refinement>(recorded);
+        Collections.reverse(candidates);
+        List<ReadPipeline.Refinement> refinements = new ArrayList<ReadPipeline.Refinement>();
+        for (ReadPipeline.Refinement refinement : candidates) {
+            if (refinement.where != where || refinement.offset < 0
+                    || !conjuncts.contains(refinement.filter)
+                    || !isSelected(properties, refinement.attribute)) {
+                continue;
+            }
+            int index = start + refinement.offset;
+            int end = index + refinement.exact.length();
+            if (end <= sql.length() && refinement.exact.equals(sql.substring(index, end))) {
+                sql.replace(index, end, refinement.mbr);
+                refinements.add(0, refinement);
+            }
+        }
+        return refinements.isEmpty() ? null : refinements;
+    }
+
+    void addConjuncts(Filter filter, List<Filter> conjuncts) {
+        if (filter instanceof And) {
+            for (Filter child : ((And) filter).getChildren()) {
+                addConjuncts(child, conjuncts);
+            }
+        } else if (filter != null) {
+            conjuncts.add(filter);
+        }
+    }
+
+    boolean isSelected(String[] properties, String attribute) {
+        if (properties == null) {
+            return true;
+        }
+        for (String property : properties) {
+            if (property.equalsIgnoreCase(attribute)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onInsert(Statement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        invalidateExtent(featureType, cx);
+    }
+
+    @Override
+    public void onUpdate(Statement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        invalidateExtent(featureType, cx);
+    }
+
+    @Override
+    public void onDelete(Statement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        invalidateExtent(featureType, cx);
+    }
+
+    /**
+     * Drops the cached bounds of a feature type being written, once its transaction commits, see
+     * {@link ExtentCache#invalidate}
+     */
+    void invalidateExtent(SimpleFeatureType featureType, Connection cx) {
+        ExtentCache cache = extentCache;
+        if (cache != null && featureType != null) {
+            cache.invalidate(featureType, cx);
+        }
+    }
+
+    @Override
+    public void onSelect(Statement select, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        Hints hints = selectHints.get();
+        try {
+            // flag feature selects, so that the read pipeline can pick them up
+            if (select instanceof DecoratingDataSource.FeatureSelect) {
+                ((DecoratingDataSource.FeatureSelect) select).setFeatureType(featureType, hints);
+            }
+        } finally {
+            selectHints.remove();
+            FilterToSqlHelper.REFINEMENTS.remove();
+        }
+    }
+
     WKBAttributeIO getWKBReader(GeometryFactory factory) {
+        return getWKBReader(factory, null);
+    }
+
+    /**
+     * Returns the tolerance geometries are decimated by while decoding, null if decimation is
+     * disabled or not requested. Without a server side simplification function the
+     * {@link Hints#GEOMETRY_SIMPLIFICATION} distance is honoured too.
+     */
+    public Double getDecimationDistance(Hints hints) {
+        if (!decimationEnabled || hints == null) {
+            return null;
+        }
+        Double distance = (Double) hints.get(Hints.GEOMETRY_DISTANCE);
+        if (distance == null) {
+            distance = (Double) hints.get(Hints.GEOMETRY_SIMPLIFICATION);
+        }
+        return distance;
+    }
+
+    WKBAttributeIO getWKBReader(GeometryFactory factory, Hints hints) {
         WKBAttributeIO reader = wkbReader.get();
         if (reader == null) {
             reader = new WKBAttributeIO(factory);
@@ -183,6 +545,15 @@ public class AltibaseDialect extends BasicSQLDialect {
         } else {
             reader.setGeometryFactory(factory);
         }
+        reader.setStreaming(streamingDecodeEnabled);
+        reader.setLazy(lazyDecodeEnabled);
+        reader.setForce2D(isForce2D(hints));
+        Double distance = getDecimationDistance(hints);
+        if (distance != null) {
+            reader.setDecimation(distance, (Envelope) hints.get(ReadPipeline.CLIP_ENVELOPE));
+        } else {
+            reader.setDecimation(0, null);
+        }
         return reader;
     }
 
@@ -194,11 +565,42 @@ public class AltibaseDialect extends BasicSQLDialect {
         sql.append(")");
     }
 
+    @Override
+    public void addSupportedHints(Set<Hints.Key> hints) {
+        hints.add(Hints.FEATURE_2D);
+        if (decimationEnabled) {
+            // no server side simplification function, the geometries are decimated on decode
+            hints.add(Hints.GEOMETRY_DISTANCE);
+            hints.add(Hints.GEOMETRY_SIMPLIFICATION);
+        }
+    }
+
+    @Override
+    public void encodeGeometryColumnGeneralized(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        // no server side simplification function
+        encodeGeometryColumn(gatt, prefix, srid, null, sql);
+    }
+
+    @Override
+    public void encodeGeometryColumnSimplified(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        encodeGeometryColumn(gatt, prefix, srid, null, sql);
+    }
+
+    /**
+     * Encodes the envelope as four aggregated min/max columns, so a single row of plain numbers
+     * comes back. {@link #decodeGeometryEnvelope} maps the column of the n-th envelope to its
+     * four columns, which relies on the bounds query selecting envelopes only.
+     */
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
-        sql.append(" ASTEXT(ENVELOPE(");
-        encodeColumnName(null, geometryColumn, sql);
-        sql.append("))");
+        String[] functions = { "MIN(MINX(", "MIN(MINY(", "MAX(MAXX(", "MAX(MAXY(" };
+        for (int i = 0; i < functions.length; i++) {
+            sql.append(i == 0 ? " " : ", ").append(functions[i]);
+            encodeColumnName(null, geometryColumn, sql);
+            sql.append("))");
+        }
     }
 
     @Override
@@ -216,6 +618,22 @@ public class AltibaseDialect extends BasicSQLDialect {
             return null;
         }
 
+        ExtentCache cache = extentCache;
+        if (cache == null) {
+            return computeOptimizedBounds(schema, featureType, cx);
+        }
+        List<ReferencedEnvelope> bounds = cache.get(featureType, cx);
+        if (bounds == null) {
+            bounds = computeOptimizedBounds(schema, featureType, cx);
+            if (bounds != null) {
+                cache.put(featureType, bounds, cx);
+            }
+        }
+        return bounds;
+    }
+
+    List<ReferencedEnvelope> computeOptimizedBounds(String schema, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
         String tableName = featureType.getTypeName();
 
         Statement st = null;
@@ -277,17 +695,16 @@ public class AltibaseDialect extends BasicSQLDialect {
     @Override
     public Envelope decodeGeometryEnvelope(ResultSet rs, int column, Connection cx)
             throws SQLException, IOException {
-        try {
-            String envelope = rs.getString(column);
-            if (envelope != null) {
-                return new WKTReader().read(envelope).getEnvelopeInternal();
-            } else {
-                return new Envelope();
-            }
-        } catch (ParseException e) {
-            throw (IOException) new IOException("Error occurred parsing the bounds WKT")
-                    .initCause(e);
+        int first = (column - 1) * 4 + 1;
+        double minX = rs.getDouble(first);
+        if (rs.wasNull()) {
+            // no rows, or only null geometries
+            return new Envelope();
         }
+        double minY = rs.getDouble(first + 1);
+        double maxX = rs.getDouble(first + 2);
+        double maxY = rs.getDouble(first + 3);
+        return new Envelope(minX, maxX, minY, maxY);
     }
 
     @SuppressWarnings("rawtypes")
@@ -317,15 +734,25 @@ public class AltibaseDialect extends BasicSQLDialect {
 
     String lookupGeometryType(ResultSet columnMetaData, Connection cx, String gTableName,
             String gColumnName) throws SQLException {
+        if (!geometryTypeSamplingEnabled) {
+            // GEOMETRY_COLUMNS does not record the geometry type
+            return "GEOMETRY";
+        }
+
         // grab the information we need to proceed
         String tableName = columnMetaData.getString("TABLE_NAME");
         String columnName = columnMetaData.getString("COLUMN_NAME");
         String schemaName = columnMetaData.getString("TABLE_SCHEM");
 
-        // first attempt, try with the geometry metadata
+        String geometryType = geometryMetadata.getSampledType(schemaName, tableName, columnName);
+        if (geometryType != null) {
+            return geometryType;
+        }
+
+        // sample the first geometry, once per data store
         Statement st = null;
         ResultSet rs = null;
-
+        geometryType = "GEOMETRY";
         try {
             StringBuffer sb = new StringBuffer();
             sb.append("SELECT GEOMETRYTYPE(");
@@ -339,15 +766,17 @@ public class AltibaseDialect extends BasicSQLDialect {
             LOGGER.log(Level.FINE, "Geometry type check; {0} ", sb.toString());
             st = cx.createStatement();
             rs = st.executeQuery(sb.toString());
-            if (rs.next()) {
-                return rs.getString(1);
+            String sampled = rs.next() ? rs.getString(1) : null;
+            if (sampled != null) {
+                geometryType = sampled;
             }
         } finally {
             dataStore.closeSafe(rs);
             dataStore.closeSafe(st);
         }
 
-        return "GEOMETRY";
+        geometryMetadata.putSampledType(schemaName, tableName, columnName, geometryType);
+        return geometryType;
     }
 
     @Override
@@ -357,61 +786,39 @@ public class AltibaseDialect extends BasicSQLDialect {
         String columnName = columnMetaData.getString("COLUMN_NAME");
         String schemaName = columnMetaData.getString("TABLE_SCHEM");
 
-        String sql = "SELECT udt_name FROM information_schema.columns " + " WHERE table_schema = '"
-                + schemaName + "' " + " AND table_name = '" + tableName + "' "
-                + " AND column_name = '" + columnName + "' ";
-
-        LOGGER.fine(sql);
-
-        Statement st = cx.createStatement();
-        try {
-            ResultSet rs = st.executeQuery(sql);
-            try {
-                if (rs.next()) {
-                    metadata.setTypeName(rs.getString(1));
-                }
-            } finally {
-                dataStore.closeSafe(rs);
-            }
-        } finally {
-            dataStore.closeSafe(st);
+        String typeName = geometryMetadata.getUdtName(schemaName, tableName, columnName, cx);
+        if (typeName != null) {
+            metadata.setTypeName(typeName);
         }
     }
 
     @Override
     public Integer getGeometrySRID(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
+        if (geometryMetadata.isLoaded(cx)) {
+            GeometryMetadataCatalog.Entry entry = geometryMetadata.get(schemaName, tableName,
+                    columnName, cx);
+            return entry != null ? entry.srid : null;
+        }
+
+        // the geometry metadata could not be loaded at once, query the column alone
+        PreparedStatement statement = null;
         ResultSet result = null;
         Integer srid = null;
         try {
-            // try geometry_columns
-            try {
-                String sridSQL = "SELECT SRID FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                String sqlStatement = "SELECT AUTH_SRID FROM SPATIAL_REF_SYS WHERE SRID = ("
-                        + sridSQL + ")";
-
-                LOGGER.log(Level.FINE, "Geometry srid check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
-
-                if (result.next()) {
-                    srid = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            // the SRIDs are mapped to their authority codes
+            statement = GeometryMetadataCatalog.prepareColumnQuery("SELECT S.AUTH_SRID "
+                    + "FROM GEOMETRY_COLUMNS G JOIN SPATIAL_REF_SYS S ON S.SRID = G.SRID",
+                    schemaName, tableName, columnName, cx);
+            result = statement.executeQuery();
+
+            if (result.next()) {
+                srid = result.getInt(1);
             }
-
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         } finally {
             dataStore.closeSafe(result);
             dataStore.closeSafe(statement);
@@ -423,34 +830,29 @@ public class AltibaseDialect extends BasicSQLDialect {
     @Override
     public int getGeometryDimension(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
+        if (geometryMetadata.isLoaded(cx)) {
+            GeometryMetadataCatalog.Entry entry = geometryMetadata.get(schemaName, tableName,
+                    columnName, cx);
+            return entry != null ? entry.dimension : 2;
+        }
+
+        // the geometry metadata could not be loaded at once, query the column alone
+        PreparedStatement statement = null;
         ResultSet result = null;
         int dimension = 2; // default
         try {
-            // try geometry_columns
-            try {
-                String sqlStatement = "SELECT COORD_DIMENSION FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                LOGGER.log(Level.FINE, "Geometry dimension check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
+            statement = GeometryMetadataCatalog.prepareColumnQuery(
+                    "SELECT COORD_DIMENSION FROM GEOMETRY_COLUMNS", schemaName, tableName,
+                    columnName, cx);
+            result = statement.executeQuery();
 
-                if (result.next()) {
-                    dimension = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            if (result.next()) {
+                dimension = result.getInt(1);
             }
-
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         } finally {
             dataStore.closeSafe(result);
             dataStore.closeSafe(statement);
@@ -654,6 +1056,8 @@ public class AltibaseDialect extends BasicSQLDialect {
             }
             cx.commit();
         } finally {
+            // the geometry columns changed
+            geometryMetadata.refresh();
             dataStore.closeSafe(st);
         }
     }
@@ -670,6 +1074,8 @@ public class AltibaseDialect extends BasicSQLDialect {
             LOGGER.fine(sql);
             st.execute(sql);
         } finally {
+            // the geometry columns changed
+            geometryMetadata.refresh();
             dataStore.closeSafe(st);
         }
     }
@@ -695,6 +1101,7 @@ public class AltibaseDialect extends BasicSQLDialect {
     public FilterToSQL createFilterToSQL() {
         AltibaseFilterToSQL sql = new AltibaseFilterToSQL(this);
         sql.setLooseBBOXEnabled(looseBBOXEnabled);
+        sql.setTwoPhaseFilterVertices(twoPhaseFilterEnabled ? twoPhaseFilterVertices : 0);
         return sql;
     }
 
@@ -17,14 +17,23 @@
 package org.geotools.data.altibase;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.data.korean.FilterOptimizer;
 import org.geotools.filter.FilterCapabilities;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LinearRing;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.Or;
+import org.opengis.filter.expression.Function;
 import org.opengis.filter.expression.Literal;
 import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.temporal.BinaryTemporalOperator;
 
 @SuppressWarnings("deprecation")
 public class AltibaseFilterToSQL extends FilterToSQL {
@@ -43,6 +52,14 @@ public class AltibaseFilterToSQL extends FilterToSQL {
         helper.looseBBOXEnabled = looseBBOXEnabled;
     }
 
+    public int getTwoPhaseFilterVertices() {
+        return helper.twoPhaseFilterVertices;
+    }
+
+    public void setTwoPhaseFilterVertices(int twoPhaseFilterVertices) {
+        helper.twoPhaseFilterVertices = twoPhaseFilterVertices;
+    }
+
     @Override
     protected void visitLiteralGeometry(Literal expression) throws IOException {
         // evaluate the literal and store it for later
@@ -58,11 +75,72 @@ public class AltibaseFilterToSQL extends FilterToSQL {
         out.write("')");
     }
 
+    @Override
+    public void encode(Filter filter) throws FilterToSQLException {
+        // shorter and index friendlier predicates, see FilterOptimizer
+        if (out == null) {
+            throw new FilterToSQLException("Can't encode to a null writer.");
+        }
+        String sql = encodeFilter(FilterOptimizer.optimize(filter, featureType));
+        try {
+            out.write(sql);
+        } catch (IOException e) {
+            throw new FilterToSQLException("Problem writing filter: ", e);
+        }
+    }
+
+    /**
+     * Encodes the filter on a writer of its own, so that the spatial tests recorded for two phase
+     * filtering know their offset in it, see FilterToSqlHelper#encoded
+     */
+    String encodeFilter(Filter filter) throws FilterToSQLException {
+        Writer target = out;
+        StringWriter sql = new StringWriter();
+        out = sql;
+        try {
+            super.encode(filter);
+        } finally {
+            out = target;
+        }
+        FilterToSqlHelper.encoded(sql.toString());
+        return sql.toString();
+    }
+
+    @Override
+    public Object visit(Function function, Object extraData) throws RuntimeException {
+        helper.out = out;
+        if (helper.visitFunction(function, extraData)) {
+            return extraData;
+        }
+        return super.visit(function, extraData);
+    }
+
+    @Override
+    public Object visit(Id filter, Object extraData) {
+        helper.out = out;
+        return helper.visitId(filter, primaryKey, extraData) ? extraData
+                : super.visit(filter, extraData);
+    }
+
+    @Override
+    public Object visit(Or filter, Object extraData) {
+        helper.out = out;
+        return helper.visitOr(filter, featureType, extraData) ? extraData
+                : super.visit(filter, extraData);
+    }
+
     @Override
     protected FilterCapabilities createFilterCapabilities() {
         return helper.createFilterCapabilities();
     }
 
+    @Override
+    protected Object visitBinaryTemporalOperator(BinaryTemporalOperator filter,
+            PropertyName property, Literal temporal, boolean swapped, Object extraData) {
+        return super.visitBinaryTemporalOperator(filter, property,
+                FilterToSqlHelper.period(temporal), swapped, extraData);
+    }
+
     protected Object visitBinarySpatialOperator(BinarySpatialOperator filter,
             PropertyName property, Literal geometry, boolean swapped, Object extraData) {
         helper.out = out;
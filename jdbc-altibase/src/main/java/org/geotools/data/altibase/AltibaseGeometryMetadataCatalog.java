@@ -0,0 +1,70 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.altibase;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.geotools.data.korean.GeometryMetadataCatalog;
+
+/**
+ * The Altibase GEOMETRY_COLUMNS table does not record the geometry types, and its SRIDs are
+ * mapped to their authority codes through SPATIAL_REF_SYS. The types sampled from the first row
+ * of the tables are kept along, and dropped with the rest by {@link #refresh()}.
+ */
+class AltibaseGeometryMetadataCatalog extends GeometryMetadataCatalog {
+
+    static final String GEOMETRY_COLUMNS_SQL = "SELECT G.F_TABLE_SCHEMA, G.F_TABLE_NAME, "
+            + "G.F_GEOMETRY_COLUMN, S.AUTH_SRID, G.COORD_DIMENSION FROM GEOMETRY_COLUMNS G "
+            + "LEFT OUTER JOIN SPATIAL_REF_SYS S ON S.SRID = G.SRID";
+
+    /** the geometry types sampled from the first row, by schema, table and column name */
+    final Map<String, String> sampledTypes = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns the geometry type sampled from the column, null if it was not sampled yet
+     */
+    String getSampledType(String schema, String table, String column) {
+        return sampledTypes.get(key(key(schema, table), column));
+    }
+
+    void putSampledType(String schema, String table, String column, String type) {
+        sampledTypes.put(key(key(schema, table), column), type);
+    }
+
+    @Override
+    public void refresh() {
+        super.refresh();
+        sampledTypes.clear();
+    }
+
+    @Override
+    protected String getGeometryColumnsSql() {
+        return GEOMETRY_COLUMNS_SQL;
+    }
+
+    @Override
+    protected Entry readEntry(ResultSet rs) throws SQLException {
+        Integer srid = rs.getInt(4);
+        if (rs.wasNull()) {
+            srid = null;
+        }
+        return new Entry(rs.getString(1), null, srid, rs.getInt(5));
+    }
+}
@@ -18,14 +18,20 @@ package org.geotools.data.altibase;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.geotools.data.korean.ReadPipeline;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.JDBCDataStoreFactory;
 import org.geotools.jdbc.SQLDialect;
+import org.geotools.util.logging.Logging;
 
 @SuppressWarnings("rawtypes")
 public class AltibaseNGDataStoreFactory extends JDBCDataStoreFactory {
 
+    protected static final Logger LOGGER = Logging.getLogger(AltibaseNGDataStoreFactory.class);
+
     /** parameter for database type */
     public static final Param DBTYPE = new Param("dbtype", String.class, "Type", true, "altibase");
 
@@ -52,13 +58,90 @@ public class AltibaseNGDataStoreFactory extends JDBCDataStoreFactory {
 
     /** parameter that enables estimated extends instead of exact ones */
     public static final Param ESTIMATED_EXTENTS = new Param("Estimated extends", Boolean.class,
-            "Use the spatial index information to quickly get an estimate of the data bounds",
+            "Aggregate the data bounds in the database, cached with the extent cache parameters",
+            false, Boolean.FALSE);
+
+    /** number of seconds the estimated extents are cached, 0 disables the cache */
+    public static final Param EXTENT_CACHE_TTL = new Param("Extent cache TTL", Integer.class,
+            "Number of seconds the estimated extents are cached, writes to a table drop its extent, 0 disables the cache",
+            false, 0);
+
+    /** table persisting the cached extents, none keeps them in memory only */
+    public static final Param EXTENT_CACHE_TABLE = new Param("Extent cache table", String.class,
+            "Table persisting the cached extents across restarts, created if missing", false);
+
+    /** parameter that enables sampling the geometry type of the columns */
+    public static final Param GEOMETRY_TYPE_SAMPLING = new Param("Geometry type sampling",
+            Boolean.class,
+            "Read the geometry type of each geometry column from its first row, once per data store, instead of using the generic geometry type",
+            false, Boolean.FALSE);
+
+    /** parameter that enables decoding geometries straight from the binary stream */
+    public static final Param STREAMING_DECODE = new Param("Streaming decode", Boolean.class,
+            "Decode geometries straight from the JDBC binary stream instead of a byte array",
+            false, Boolean.FALSE);
+
+    /** parameter that enables the lazy decoding of geometries, for attribute only consumers */
+    public static final Param LAZY_DECODE = new Param("Lazy geometry decode", Boolean.class,
+            "Keep the raw WKB and decode geometries only when their coordinates are accessed",
+            false, Boolean.FALSE);
+
+    /** parameter that enables the decimation and clipping of geometries while decoding them */
+    public static final Param DECODE_DECIMATION = new Param("Decode decimation", Boolean.class,
+            "Drop sub-pixel vertices and parts outside of the query area while decoding geometries for rendering, in place of a server side simplification",
             false, Boolean.FALSE);
 
+    /** parameter that enables decoding the X and Y ordinates only */
+    public static final Param DECODE_2D = new Param("Decode 2D only", Boolean.class,
+            "Skip the Z ordinates while decoding geometries, the features read are always two dimensional",
+            false, Boolean.FALSE);
+
+    /** parameter that enables decoding point geometries without the general WKB reader */
+    public static final Param POINT_FAST_PATH = new Param("Point fast path", Boolean.class,
+            "Decode the geometries of point layers straight from the WKB bytes", false,
+            Boolean.FALSE);
+
+    /** parameter that enables the pipelined, parallel geometry decoding of feature reads */
+    public static final Param READ_PIPELINE = new Param("Read pipeline", Boolean.class,
+            "Decode geometries on a pool of worker threads while the rows are read ahead of the feature reader",
+            false, Boolean.FALSE);
+
+    /** maximum number of rows the read pipeline fetches ahead of the feature reader */
+    public static final Param READ_PIPELINE_QUEUE_DEPTH = new Param("Read pipeline queue depth",
+            Integer.class, "Maximum number of rows fetched ahead of the feature reader", false,
+            ReadPipeline.DEFAULT_QUEUE_DEPTH);
+
+    /** number of geometry decoding threads of the read pipeline */
+    public static final Param READ_PIPELINE_THREADS = new Param("Read pipeline threads",
+            Integer.class,
+            "Number of geometry decoding threads, defaults to the number of processors", false);
+
+    /** parameter that enables the two phase spatial filtering, requires the read pipeline */
+    public static final Param TWO_PHASE_FILTER = new Param("Two phase filter", Boolean.class,
+            "Send only MBR tests for large filter geometries and apply the exact tests on the read pipeline",
+            false, Boolean.FALSE);
+
+    /** minimum number of vertices of a filter geometry for two phase filtering */
+    public static final Param TWO_PHASE_FILTER_VERTICES = new Param("Two phase filter vertices",
+            Integer.class, "Minimum number of vertices of a filter geometry for two phase filtering",
+            false, AltibaseDialect.DEFAULT_TWO_PHASE_FILTER_VERTICES);
+
     /** Whether a prepared statements based dialect should be used, or not */
     public static final Param PREPARED_STATEMENTS = new Param("preparedStatements", Boolean.class,
             "Use prepared statements", false, Boolean.FALSE);
 
+    /** maximum number of prepared statements cached per connection, 0 disables the cache */
+    public static final Param STATEMENT_CACHE_SIZE = new Param("Statement cache size",
+            Integer.class,
+            "Maximum number of prepared statements kept open per connection and reused by SQL text, 0 disables the cache",
+            false, 0);
+
+    /** number of filter structures whose prepared statement SQL is cached, 0 disables the cache */
+    public static final Param FILTER_TEMPLATE_CACHE_SIZE = new Param("Filter template cache size",
+            Integer.class,
+            "Maximum number of filter structures whose SQL is reused when only the literals change, 0 disables the cache",
+            false, 0);
+
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
         return new AltibaseDialect(dataStore);
@@ -125,10 +208,74 @@ public class AltibaseNGDataStoreFactory extends JDBCDataStoreFactory {
         Boolean estimated = (Boolean) ESTIMATED_EXTENTS.lookUp(params);
         dialect.setEstimatedExtentsEnabled(estimated == null || Boolean.TRUE.equals(estimated));
 
+        // check the extent cache
+        Integer extentCacheTTL = (Integer) EXTENT_CACHE_TTL.lookUp(params);
+        if (extentCacheTTL != null && extentCacheTTL > 0) {
+            dialect.setExtentCacheTable((String) EXTENT_CACHE_TABLE.lookUp(params));
+            dialect.setExtentCacheTTL(extentCacheTTL);
+            dialect.extentCache.listen(getAltibaseDataSource(dataStore));
+        }
+
+        // check the geometry type sampling
+        Boolean sampling = (Boolean) GEOMETRY_TYPE_SAMPLING.lookUp(params);
+        dialect.setGeometryTypeSamplingEnabled(sampling != null && Boolean.TRUE.equals(sampling));
+
+        // check the streaming geometry decode
+        Boolean streaming = (Boolean) STREAMING_DECODE.lookUp(params);
+        dialect.setStreamingDecodeEnabled(streaming != null && Boolean.TRUE.equals(streaming));
+
+        // check the lazy geometry decode
+        Boolean lazy = (Boolean) LAZY_DECODE.lookUp(params);
+        dialect.setLazyDecodeEnabled(lazy != null && Boolean.TRUE.equals(lazy));
+
+        // check the decode time decimation
+        Boolean decimation = (Boolean) DECODE_DECIMATION.lookUp(params);
+        dialect.setDecimationEnabled(decimation != null && Boolean.TRUE.equals(decimation));
+
+        // check the two dimensional decode
+        Boolean decode2D = (Boolean) DECODE_2D.lookUp(params);
+        dialect.setForce2DEnabled(decode2D != null && Boolean.TRUE.equals(decode2D));
+
+        // check the point fast path
+        Boolean pointFastPath = (Boolean) POINT_FAST_PATH.lookUp(params);
+        dialect.setPointFastPathEnabled(pointFastPath != null
+                && Boolean.TRUE.equals(pointFastPath));
+
+        // setup the read pipeline if need be
+        Boolean pipeline = (Boolean) READ_PIPELINE.lookUp(params);
+        if (pipeline != null && Boolean.TRUE.equals(pipeline)) {
+            Integer queueDepth = (Integer) READ_PIPELINE_QUEUE_DEPTH.lookUp(params);
+            Integer threads = (Integer) READ_PIPELINE_THREADS.lookUp(params);
+            getAltibaseDataSource(dataStore).setReadPipeline(new ReadPipeline(dataStore,
+                    dialect, false,
+                    queueDepth == null ? ReadPipeline.DEFAULT_QUEUE_DEPTH : queueDepth,
+                    threads == null ? Runtime.getRuntime().availableProcessors() : threads));
+
+            // check the two phase filtering, the exact tests are applied by the read pipeline
+            Boolean twoPhase = (Boolean) TWO_PHASE_FILTER.lookUp(params);
+            dialect.setTwoPhaseFilterEnabled(twoPhase != null && Boolean.TRUE.equals(twoPhase));
+            Integer vertices = (Integer) TWO_PHASE_FILTER_VERTICES.lookUp(params);
+            if (vertices != null) {
+                dialect.setTwoPhaseFilterVertices(vertices);
+            }
+        } else if (Boolean.TRUE.equals(TWO_PHASE_FILTER.lookUp(params))) {
+            LOGGER.log(Level.WARNING, "Two phase filtering requires the read pipeline, ignored");
+        }
+
         // setup the ps dialect if need be
         Boolean usePs = (Boolean) PREPARED_STATEMENTS.lookUp(params);
         if (usePs != null && Boolean.TRUE.equals(usePs)) {
-            dataStore.setSQLDialect(new AltibasePSDialect(dataStore, dialect));
+            AltibasePSDialect psDialect = new AltibasePSDialect(dataStore, dialect);
+            Integer templateCacheSize = (Integer) FILTER_TEMPLATE_CACHE_SIZE.lookUp(params);
+            if (templateCacheSize != null && templateCacheSize > 0) {
+                psDialect.setFilterTemplateCacheSize(templateCacheSize);
+            }
+            dataStore.setSQLDialect(psDialect);
+
+            Integer cacheSize = (Integer) STATEMENT_CACHE_SIZE.lookUp(params);
+            if (cacheSize != null && cacheSize > 0) {
+                getAltibaseDataSource(dataStore).setStatementCacheSize(cacheSize);
+            }
         }
 
         // primary key finder
@@ -137,6 +284,18 @@ public class AltibaseNGDataStoreFactory extends JDBCDataStoreFactory {
         return dataStore;
     }
 
+    /**
+     * Returns the AltibaseDataSource decorating the data store connections, installing it if needed
+     */
+    AltibaseDataSource getAltibaseDataSource(JDBCDataStore dataStore) {
+        if (dataStore.getDataSource() instanceof AltibaseDataSource) {
+            return (AltibaseDataSource) dataStore.getDataSource();
+        }
+        AltibaseDataSource dataSource = new AltibaseDataSource(dataStore.getDataSource());
+        dataStore.setDataSource(dataSource);
+        return dataSource;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     protected void setupParameters(Map parameters) {
@@ -153,6 +312,21 @@ public class AltibaseNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(NAMESPACE.key, NAMESPACE);
         parameters.put(EXPOSE_PK.key, EXPOSE_PK);
         parameters.put(PREPARED_STATEMENTS.key, PREPARED_STATEMENTS);
+        parameters.put(STATEMENT_CACHE_SIZE.key, STATEMENT_CACHE_SIZE);
+        parameters.put(FILTER_TEMPLATE_CACHE_SIZE.key, FILTER_TEMPLATE_CACHE_SIZE);
+        parameters.put(EXTENT_CACHE_TTL.key, EXTENT_CACHE_TTL);
+        parameters.put(EXTENT_CACHE_TABLE.key, EXTENT_CACHE_TABLE);
+        parameters.put(GEOMETRY_TYPE_SAMPLING.key, GEOMETRY_TYPE_SAMPLING);
+        parameters.put(STREAMING_DECODE.key, STREAMING_DECODE);
+        parameters.put(LAZY_DECODE.key, LAZY_DECODE);
+        parameters.put(DECODE_DECIMATION.key, DECODE_DECIMATION);
+        parameters.put(DECODE_2D.key, DECODE_2D);
+        parameters.put(POINT_FAST_PATH.key, POINT_FAST_PATH);
+        parameters.put(READ_PIPELINE.key, READ_PIPELINE);
+        parameters.put(READ_PIPELINE_QUEUE_DEPTH.key, READ_PIPELINE_QUEUE_DEPTH);
+        parameters.put(READ_PIPELINE_THREADS.key, READ_PIPELINE_THREADS);
+        parameters.put(TWO_PHASE_FILTER.key, TWO_PHASE_FILTER);
+        parameters.put(TWO_PHASE_FILTER_VERTICES.key, TWO_PHASE_FILTER_VERTICES);
         parameters.put(MAXCONN.key, MAXCONN);
         parameters.put(MINCONN.key, MINCONN);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
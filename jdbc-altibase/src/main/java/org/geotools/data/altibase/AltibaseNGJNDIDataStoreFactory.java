@@ -34,6 +34,35 @@ public class AltibaseNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
 
         parameters.put(AltibaseNGDataStoreFactory.LOOSEBBOX.key, AltibaseNGDataStoreFactory.LOOSEBBOX);
         parameters.put(AltibaseNGDataStoreFactory.PREPARED_STATEMENTS.key, AltibaseNGDataStoreFactory.PREPARED_STATEMENTS);
+        parameters.put(AltibaseNGDataStoreFactory.STATEMENT_CACHE_SIZE.key,
+                AltibaseNGDataStoreFactory.STATEMENT_CACHE_SIZE);
+        parameters.put(AltibaseNGDataStoreFactory.FILTER_TEMPLATE_CACHE_SIZE.key,
+                AltibaseNGDataStoreFactory.FILTER_TEMPLATE_CACHE_SIZE);
+        parameters.put(AltibaseNGDataStoreFactory.EXTENT_CACHE_TTL.key,
+                AltibaseNGDataStoreFactory.EXTENT_CACHE_TTL);
+        parameters.put(AltibaseNGDataStoreFactory.EXTENT_CACHE_TABLE.key,
+                AltibaseNGDataStoreFactory.EXTENT_CACHE_TABLE);
+        parameters.put(AltibaseNGDataStoreFactory.GEOMETRY_TYPE_SAMPLING.key,
+                AltibaseNGDataStoreFactory.GEOMETRY_TYPE_SAMPLING);
+        parameters.put(AltibaseNGDataStoreFactory.STREAMING_DECODE.key,
+                AltibaseNGDataStoreFactory.STREAMING_DECODE);
+        parameters.put(AltibaseNGDataStoreFactory.LAZY_DECODE.key,
+                AltibaseNGDataStoreFactory.LAZY_DECODE);
+        parameters.put(AltibaseNGDataStoreFactory.DECODE_DECIMATION.key,
+                AltibaseNGDataStoreFactory.DECODE_DECIMATION);
+        parameters.put(AltibaseNGDataStoreFactory.DECODE_2D.key, AltibaseNGDataStoreFactory.DECODE_2D);
+        parameters.put(AltibaseNGDataStoreFactory.POINT_FAST_PATH.key,
+                AltibaseNGDataStoreFactory.POINT_FAST_PATH);
+        parameters.put(AltibaseNGDataStoreFactory.READ_PIPELINE.key,
+                AltibaseNGDataStoreFactory.READ_PIPELINE);
+        parameters.put(AltibaseNGDataStoreFactory.READ_PIPELINE_QUEUE_DEPTH.key,
+                AltibaseNGDataStoreFactory.READ_PIPELINE_QUEUE_DEPTH);
+        parameters.put(AltibaseNGDataStoreFactory.READ_PIPELINE_THREADS.key,
+                AltibaseNGDataStoreFactory.READ_PIPELINE_THREADS);
+        parameters.put(AltibaseNGDataStoreFactory.TWO_PHASE_FILTER.key,
+                AltibaseNGDataStoreFactory.TWO_PHASE_FILTER);
+        parameters.put(AltibaseNGDataStoreFactory.TWO_PHASE_FILTER_VERTICES.key,
+                AltibaseNGDataStoreFactory.TWO_PHASE_FILTER_VERTICES);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
     }
 }
@@ -22,10 +22,14 @@ import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.geotools.data.Query;
+import org.geotools.data.korean.FilterTemplate;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
@@ -46,6 +50,10 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
 
     private AltibaseDialect delegate;
 
+    private int filterTemplateCacheSize;
+
+    private FilterTemplate.Cache filterTemplates;
+
     public AltibasePSDialect(JDBCDataStore store, AltibaseDialect delegate) {
         super(store);
         this.delegate = delegate;
@@ -67,6 +75,104 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
         delegate.setEstimatedExtentsEnabled(estimatedExtentsEnabled);
     }
 
+    public int getExtentCacheTTL() {
+        return delegate.getExtentCacheTTL();
+    }
+
+    public void setExtentCacheTTL(int extentCacheTTL) {
+        delegate.setExtentCacheTTL(extentCacheTTL);
+    }
+
+    public String getExtentCacheTable() {
+        return delegate.getExtentCacheTable();
+    }
+
+    public void setExtentCacheTable(String extentCacheTable) {
+        delegate.setExtentCacheTable(extentCacheTable);
+    }
+
+    public void refreshGeometryMetadata() {
+        delegate.refreshGeometryMetadata();
+    }
+
+    public boolean isGeometryTypeSamplingEnabled() {
+        return delegate.isGeometryTypeSamplingEnabled();
+    }
+
+    public void setGeometryTypeSamplingEnabled(boolean geometryTypeSamplingEnabled) {
+        delegate.setGeometryTypeSamplingEnabled(geometryTypeSamplingEnabled);
+    }
+
+    public boolean isStreamingDecodeEnabled() {
+        return delegate.isStreamingDecodeEnabled();
+    }
+
+    public void setStreamingDecodeEnabled(boolean streamingDecodeEnabled) {
+        delegate.setStreamingDecodeEnabled(streamingDecodeEnabled);
+    }
+
+    public boolean isLazyDecodeEnabled() {
+        return delegate.isLazyDecodeEnabled();
+    }
+
+    public void setLazyDecodeEnabled(boolean lazyDecodeEnabled) {
+        delegate.setLazyDecodeEnabled(lazyDecodeEnabled);
+    }
+
+    public boolean isDecimationEnabled() {
+        return delegate.isDecimationEnabled();
+    }
+
+    public void setDecimationEnabled(boolean decimationEnabled) {
+        delegate.setDecimationEnabled(decimationEnabled);
+    }
+
+    public boolean isForce2DEnabled() {
+        return delegate.isForce2DEnabled();
+    }
+
+    public void setForce2DEnabled(boolean force2DEnabled) {
+        delegate.setForce2DEnabled(force2DEnabled);
+    }
+
+    public boolean isPointFastPathEnabled() {
+        return delegate.isPointFastPathEnabled();
+    }
+
+    public void setPointFastPathEnabled(boolean pointFastPathEnabled) {
+        delegate.setPointFastPathEnabled(pointFastPathEnabled);
+    }
+
+    public boolean isTwoPhaseFilterEnabled() {
+        return delegate.isTwoPhaseFilterEnabled();
+    }
+
+    public void setTwoPhaseFilterEnabled(boolean twoPhaseFilterEnabled) {
+        delegate.setTwoPhaseFilterEnabled(twoPhaseFilterEnabled);
+    }
+
+    public int getTwoPhaseFilterVertices() {
+        return delegate.getTwoPhaseFilterVertices();
+    }
+
+    public void setTwoPhaseFilterVertices(int twoPhaseFilterVertices) {
+        delegate.setTwoPhaseFilterVertices(twoPhaseFilterVertices);
+    }
+
+    public int getFilterTemplateCacheSize() {
+        return filterTemplateCacheSize;
+    }
+
+    /**
+     * Sets the number of filter structures whose SQL is cached, see {@link FilterTemplate}, 0
+     * disables the cache
+     */
+    public void setFilterTemplateCacheSize(int filterTemplateCacheSize) {
+        this.filterTemplateCacheSize = filterTemplateCacheSize;
+        this.filterTemplates = filterTemplateCacheSize > 0
+                ? new FilterTemplate.Cache(filterTemplateCacheSize) : null;
+    }
+
     @Override
     public boolean isAggregatedSortSupported(String function) {
         return delegate.isAggregatedSortSupported(function);
@@ -99,12 +205,64 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
         return delegate.decodeGeometryValue(descriptor, rs, column, factory, cx, hints);
     }
 
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        return delegate.decodeGeometryValue(descriptor, rs, column, factory, cx, hints);
+    }
+
+    @Override
+    public void handleSelectHints(StringBuffer sql, SimpleFeatureType featureType, Query query) {
+        delegate.handleSelectHints(sql, featureType, query);
+    }
+
+    @Override
+    public void onInsert(Statement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onInsert(insert, cx, featureType);
+    }
+
+    @Override
+    public void onUpdate(Statement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onUpdate(update, cx, featureType);
+    }
+
+    @Override
+    public void onDelete(Statement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onDelete(delete, cx, featureType);
+    }
+
+    @Override
+    public void onSelect(Statement select, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onSelect(select, cx, featureType);
+    }
+
     @Override
     public void encodeGeometryColumn(GeometryDescriptor gatt, String prefix, int srid, Hints hints,
             StringBuffer sql) {
         delegate.encodeGeometryColumn(gatt, prefix, srid, hints, sql);
     }
 
+    @Override
+    public void addSupportedHints(Set<Hints.Key> hints) {
+        delegate.addSupportedHints(hints);
+    }
+
+    @Override
+    public void encodeGeometryColumnGeneralized(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        delegate.encodeGeometryColumnGeneralized(gatt, prefix, srid, sql, distance);
+    }
+
+    @Override
+    public void encodeGeometryColumnSimplified(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        delegate.encodeGeometryColumnSimplified(gatt, prefix, srid, sql, distance);
+    }
+
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
         delegate.encodeGeometryEnvelope(tableName, geometryColumn, sql);
@@ -274,6 +432,12 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
                 g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
             }
 
+            // unknown (-1) or XYZM dimensions, WKBWriter only handles 2 and 3
+            if (dimension < 2 || dimension > 3) {
+                dimension = g.getCoordinate() != null && !Double.isNaN(g.getCoordinate().getZ())
+                        ? 3 : 2;
+            }
+
             byte[] bytes = new WKBWriter(dimension, ByteOrderValues.LITTLE_ENDIAN).write(g);
             ps.setBytes(column, bytes);
         } else {
@@ -285,6 +449,9 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
     public PreparedFilterToSQL createPreparedFilterToSQL() {
         AltibasePSFilterToSql fts = new AltibasePSFilterToSql(this);
         fts.setLooseBBOXEnabled(delegate.isLooseBBOXEnabled());
+        fts.setTwoPhaseFilterVertices(delegate.isTwoPhaseFilterEnabled() ? delegate
+                .getTwoPhaseFilterVertices() : 0);
+        fts.filterTemplates = filterTemplates;
         return fts;
     }
 }
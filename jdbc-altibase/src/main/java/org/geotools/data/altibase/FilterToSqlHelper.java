@@ -17,13 +17,57 @@
 package org.geotools.data.altibase;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.korean.ReadPipeline;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.filter.FilterCapabilities;
+import org.geotools.filter.function.FilterFunction_area;
+import org.geotools.filter.function.FilterFunction_geomLength;
+import org.geotools.filter.function.FilterFunction_geometryType;
+import org.geotools.filter.function.FilterFunction_strLength;
+import org.geotools.filter.function.FilterFunction_strSubstring;
+import org.geotools.filter.function.math.FilterFunction_abs;
+import org.geotools.filter.function.math.FilterFunction_abs_2;
+import org.geotools.filter.function.math.FilterFunction_abs_3;
+import org.geotools.filter.function.math.FilterFunction_abs_4;
+import org.geotools.filter.function.math.FilterFunction_ceil;
+import org.geotools.filter.function.math.FilterFunction_floor;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
 import org.geotools.jdbc.SQLDialect;
+import org.geotools.temporal.object.DefaultInstant;
+import org.geotools.temporal.object.DefaultPeriod;
+import org.geotools.temporal.object.DefaultPosition;
+import org.geotools.util.Converters;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.Id;
+import org.opengis.filter.MultiValuedFilter.MatchAction;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
 import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
 import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+import org.opengis.filter.identity.Identifier;
 import org.opengis.filter.spatial.BBOX;
 import org.opengis.filter.spatial.Beyond;
 import org.opengis.filter.spatial.BinarySpatialOperator;
@@ -43,14 +87,35 @@ class FilterToSqlHelper {
 
     protected static final String IO_ERROR = "io problem writing filter";
 
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    /**
+     * Maximum number of values of an IN list. Altibase documents no limit, the lists are split so
+     * that the statement text of a long fid or value list stays bounded.
+     */
+    static final int IN_LIST_SIZE = 1000;
+
     FilterToSQL delegate;
 
     Writer out;
 
     boolean looseBBOXEnabled;
 
+    /** minimum vertices of a filter geometry for two phase filtering, 0 disables it */
+    int twoPhaseFilterVertices;
+
+    /**
+     * The spatial filters of the last encoded filter that can be relaxed to MBR tests, picked up by
+     * the dialect when the filter turns out to be the one of a feature select
+     */
+    static final ThreadLocal<List<ReadPipeline.Refinement>> REFINEMENTS =
+            new ThreadLocal<List<ReadPipeline.Refinement>>();
+
+    static final String MBR_INTERSECTS = "MBRINTERSECTS";
+
     public FilterToSqlHelper(FilterToSQL delegate) {
         this.delegate = delegate;
+        REFINEMENTS.remove();
     }
 
     public FilterCapabilities createFilterCapabilities() {
@@ -72,9 +137,256 @@ class FilterToSqlHelper {
         caps.addType(DWithin.class);
         caps.addType(Beyond.class);
 
+        // arithmetic, encoded by FilterToSQL
+        caps.addType(Add.class);
+        caps.addType(Subtract.class);
+        caps.addType(Multiply.class);
+        caps.addType(Divide.class);
+
+        // functions, see visitFunction
+        caps.addType(FilterFunction_area.class);
+        caps.addType(FilterFunction_geomLength.class);
+        caps.addType(FilterFunction_geometryType.class);
+        caps.addType(FilterFunction_strLength.class);
+        caps.addType(FilterFunction_strSubstring.class);
+        caps.addType(FilterFunction_abs.class);
+        caps.addType(FilterFunction_abs_2.class);
+        caps.addType(FilterFunction_abs_3.class);
+        caps.addType(FilterFunction_abs_4.class);
+        caps.addType(FilterFunction_ceil.class);
+        caps.addType(FilterFunction_floor.class);
+
         return caps;
     }
 
+    /**
+     * Encodes the functions registered in {@link #createFilterCapabilities()}, returns false for
+     * the other ones
+     */
+    public boolean visitFunction(Function function, Object extraData) {
+        List<Expression> parameters = function.getParameters();
+        try {
+            if (function instanceof FilterFunction_area) {
+                encodeFunction("ST_Area", parameters, Geometry.class);
+            } else if (function instanceof FilterFunction_geomLength) {
+                encodeFunction("ST_Length", parameters, Geometry.class);
+            } else if (function instanceof FilterFunction_geometryType) {
+                encodeGeometryType(parameters.get(0));
+            } else if (function instanceof FilterFunction_strLength) {
+                encodeFunction("LENGTH", parameters, String.class);
+            } else if (function instanceof FilterFunction_strSubstring) {
+                // zero based and end exclusive, SUBSTR is one based and takes a length
+                out.write("SUBSTR(");
+                parameters.get(0).accept(delegate, String.class);
+                out.write(", ");
+                parameters.get(1).accept(delegate, Integer.class);
+                out.write(" + 1, ");
+                parameters.get(2).accept(delegate, Integer.class);
+                out.write(" - ");
+                parameters.get(1).accept(delegate, Integer.class);
+                out.write(")");
+            } else if (function instanceof FilterFunction_abs
+                    || function instanceof FilterFunction_abs_2
+                    || function instanceof FilterFunction_abs_3
+                    || function instanceof FilterFunction_abs_4) {
+                encodeFunction("ABS", parameters, Number.class);
+            } else if (function instanceof FilterFunction_ceil) {
+                encodeFunction("CEIL", parameters, Number.class);
+            } else if (function instanceof FilterFunction_floor) {
+                encodeFunction("FLOOR", parameters, Number.class);
+            } else {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(IO_ERROR, e);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the literal of a temporal filter with an ISO 8601 "begin/end" string, as sent by WMS
+     * TIME requests, turned into the period FilterToSQL knows how to encode, or the literal itself
+     */
+    static Literal period(Literal temporal) {
+        Object value = temporal.getValue();
+        if (value instanceof String && ((String) value).indexOf('/') > 0) {
+            String[] parts = ((String) value).split("/");
+            Date begin = parts.length == 2 ? Converters.convert(parts[0].trim(), Date.class) : null;
+            Date end = parts.length == 2 ? Converters.convert(parts[1].trim(), Date.class) : null;
+            if (begin != null && end != null) {
+                return FF.literal(new DefaultPeriod(new DefaultInstant(new DefaultPosition(begin)),
+                        new DefaultInstant(new DefaultPosition(end))));
+            }
+        }
+        return temporal;
+    }
+
+    /**
+     * Encodes the ids of a single column primary key as IN lists instead of an OR of equalities,
+     * returns false if there is nothing to gain
+     */
+    public boolean visitId(Id filter, PrimaryKey primaryKey, Object extraData) {
+        if (primaryKey == null || primaryKey.getColumns().size() != 1
+                || filter.getIdentifiers().size() < 2) {
+            return false;
+        }
+
+        PrimaryKeyColumn column = primaryKey.getColumns().get(0);
+        List<Expression> values = new ArrayList<Expression>();
+        for (Identifier id : filter.getIdentifiers()) {
+            List<Object> decoded = JDBCDataStore.decodeFID(primaryKey, String.valueOf(id.getID()),
+                    false);
+            if (decoded.size() != 1) {
+                return false;
+            }
+            values.add(FF.literal(decoded.get(0)));
+        }
+        try {
+            encodeInList(FF.property(column.getName()), values, column.getType(), extraData);
+        } catch (IOException e) {
+            throw new RuntimeException(IO_ERROR, e);
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the equalities of an OR comparing a property to literals as IN lists, returns false
+     * if there are no two of them on the same property
+     */
+    public boolean visitOr(Or filter, SimpleFeatureType featureType, Object extraData) {
+        Map<String, List<PropertyIsEqualTo>> equalities =
+                new LinkedHashMap<String, List<PropertyIsEqualTo>>();
+        List<Filter> others = new ArrayList<Filter>();
+        boolean grouped = false;
+        for (Filter child : filter.getChildren()) {
+            PropertyName property = equalityProperty(child);
+            if (property == null) {
+                others.add(child);
+                continue;
+            }
+            List<PropertyIsEqualTo> group = equalities.get(property.getPropertyName());
+            if (group == null) {
+                group = new ArrayList<PropertyIsEqualTo>();
+                equalities.put(property.getPropertyName(), group);
+            }
+            group.add((PropertyIsEqualTo) child);
+            grouped |= group.size() > 1;
+        }
+        if (!grouped) {
+            return false;
+        }
+
+        try {
+            out.write("(");
+            boolean first = true;
+            for (List<PropertyIsEqualTo> group : equalities.values()) {
+                if (!first) {
+                    out.write(" OR ");
+                }
+                first = false;
+                if (group.size() == 1) {
+                    group.get(0).accept(delegate, extraData);
+                    continue;
+                }
+
+                PropertyName property = equalityProperty(group.get(0));
+                List<Expression> values = new ArrayList<Expression>();
+                for (PropertyIsEqualTo equality : group) {
+                    values.add(equality.getExpression2() instanceof Literal ? equality
+                            .getExpression2() : equality.getExpression1());
+                }
+                AttributeDescriptor descriptor = featureType == null ? null
+                        : (AttributeDescriptor) property.evaluate(featureType);
+                encodeInList(property, values,
+                        descriptor == null ? null : descriptor.getType().getBinding(), extraData);
+            }
+            for (Filter other : others) {
+                out.write(" OR ");
+                other.accept(delegate, extraData);
+            }
+            out.write(")");
+        } catch (IOException e) {
+            throw new RuntimeException(IO_ERROR, e);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the property of a case sensitive equality to a non null literal, null for the other
+     * filters
+     */
+    static PropertyName equalityProperty(Filter filter) {
+        if (!(filter instanceof PropertyIsEqualTo)) {
+            return null;
+        }
+        PropertyIsEqualTo equality = (PropertyIsEqualTo) filter;
+        if (!equality.isMatchingCase() || equality.getMatchAction() != MatchAction.ANY) {
+            return null;
+        }
+        Expression e1 = equality.getExpression1();
+        Expression e2 = equality.getExpression2();
+        if (e1 instanceof PropertyName && e2 instanceof Literal
+                && ((Literal) e2).getValue() != null) {
+            return (PropertyName) e1;
+        } else if (e2 instanceof PropertyName && e1 instanceof Literal
+                && ((Literal) e1).getValue() != null) {
+            return (PropertyName) e2;
+        }
+        return null;
+    }
+
+    /**
+     * Writes <code>property IN (...)</code>, split in lists of at most {@link #IN_LIST_SIZE} values
+     * ORed together, the values being bound as parameters by prepared statements
+     */
+    void encodeInList(PropertyName property, List<Expression> values, Class<?> binding,
+            Object extraData) throws IOException {
+        out.write("(");
+        for (int i = 0; i < values.size(); i += IN_LIST_SIZE) {
+            if (i > 0) {
+                out.write(" OR ");
+            }
+            property.accept(delegate, extraData);
+            out.write(" IN (");
+            for (int j = i; j < Math.min(values.size(), i + IN_LIST_SIZE); j++) {
+                if (j > i) {
+                    out.write(", ");
+                }
+                values.get(j).accept(delegate, binding);
+            }
+            out.write(")");
+        }
+        out.write(")");
+    }
+
+    void encodeFunction(String name, List<Expression> parameters, Class<?> context)
+            throws IOException {
+        out.write(name);
+        out.write("(");
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            parameters.get(i).accept(delegate, context);
+        }
+        out.write(")");
+    }
+
+    /**
+     * Writes the geometry type with the names of {@link Geometry#getGeometryType()}, whether the
+     * database prefixes them with ST_ or not
+     */
+    void encodeGeometryType(Expression geometry) throws IOException {
+        out.write("CASE REPLACE(UPPER(ST_GeometryType(");
+        geometry.accept(delegate, Geometry.class);
+        out.write(")), 'ST_', '')");
+        for (String type : new String[] { "Point", "LineString", "LinearRing", "Polygon",
+                "MultiPoint", "MultiLineString", "MultiPolygon", "GeometryCollection" }) {
+            out.write(" WHEN '" + type.toUpperCase() + "' THEN '" + type + "'");
+        }
+        out.write(" END");
+    }
+
     protected Object visitBinarySpatialOperator(BinarySpatialOperator filter,
             PropertyName property, Literal geometry, boolean swapped, Object extraData) {
         try {
@@ -95,12 +407,24 @@ class FilterToSqlHelper {
         // NOTE: Altibase does not support DWithin, Beyond
 
         if ((filter instanceof DWithin && !swapped) || (filter instanceof Beyond && swapped)) {
+            // the distance alone is a full scan, an MBR prefilter lets the index narrow it down
+            Literal box = expandedEnvelope(geometry, filter.getDistance());
+            if (box != null) {
+                out.write("(MBRINTERSECTS(");
+                property.accept(delegate, extraData);
+                out.write(", ");
+                box.accept(delegate, extraData);
+                out.write(") AND ");
+            }
             out.write("ST_Distance(");
             property.accept(delegate, extraData);
             out.write(",");
             geometry.accept(delegate, extraData);
             out.write(") <= ");
             out.write(Double.toString(filter.getDistance()));
+            if (box != null) {
+                out.write(")");
+            }
         }
 
         if ((filter instanceof DWithin && swapped) || (filter instanceof Beyond && !swapped)) {
@@ -113,8 +437,96 @@ class FilterToSqlHelper {
         }
     }
 
+    /**
+     * Returns the envelope of the geometry expanded by the distance as a polygon literal, or null
+     * if the geometry cannot be evaluated
+     */
+    Literal expandedEnvelope(Literal geometry, double distance) {
+        Geometry g = geometry.evaluate(null, Geometry.class);
+        if (g == null || g.isEmpty()) {
+            return null;
+        }
+        Envelope envelope = new Envelope(g.getEnvelopeInternal());
+        envelope.expandBy(distance);
+        return FF.literal(g.getFactory().toGeometry(envelope));
+    }
+
     void visitComparisonSpatialOperator(BinarySpatialOperator filter, PropertyName property,
             Literal geometry, boolean swapped, Object extraData) throws IOException {
+        String operator = refinementOperator(filter, swapped);
+        Geometry literal = operator == null ? null : geometry.evaluate(null, Geometry.class);
+        if (literal == null || literal.getNumPoints() < twoPhaseFilterVertices) {
+            encodeComparisonSpatialOperator(filter, property, geometry, swapped, extraData);
+            return;
+        }
+
+        // encode the exact test apart, the dialect swaps it for the MBR test on feature selects
+        Writer target = out;
+        StringWriter fragment = new StringWriter();
+        out = fragment;
+        delegate.setWriter(fragment);
+        try {
+            encodeComparisonSpatialOperator(filter, property, geometry, swapped, extraData);
+        } finally {
+            out = target;
+            delegate.setWriter(target);
+        }
+        String exact = fragment.toString();
+        int offset = out instanceof StringWriter ? ((StringWriter) out).getBuffer().length() : -1;
+        out.write(exact);
+
+        String attribute = property.getPropertyName();
+        attribute = attribute.substring(attribute.indexOf(':') + 1);
+        List<ReadPipeline.Refinement> refinements = REFINEMENTS.get();
+        if (refinements == null) {
+            refinements = new ArrayList<ReadPipeline.Refinement>();
+            REFINEMENTS.set(refinements);
+        }
+        refinements.add(new ReadPipeline.Refinement(filter, exact, MBR_INTERSECTS
+                + exact.substring(exact.indexOf('(')), offset, attribute, operator,
+                PreparedGeometryFactory.prepare(literal)));
+    }
+
+    /**
+     * Stamps the refinements recorded while encoding a filter with its SQL, the dialect finds their
+     * exact tests at their offset in it
+     */
+    static void encoded(String sql) {
+        List<ReadPipeline.Refinement> refinements = REFINEMENTS.get();
+        if (refinements != null) {
+            for (ReadPipeline.Refinement refinement : refinements) {
+                if (refinement.where == null) {
+                    refinement.where = sql;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the test of the filter geometry against the attribute matching the filter, or null if
+     * the filter is not eligible for two phase filtering
+     */
+    String refinementOperator(BinarySpatialOperator filter, boolean swapped) {
+        if (twoPhaseFilterVertices <= 0) {
+            return null;
+        } else if (filter instanceof Intersects) {
+            return "intersects";
+        } else if (filter instanceof Within) {
+            return swapped ? "within" : "contains";
+        } else if (filter instanceof Contains) {
+            return swapped ? "contains" : "within";
+        } else if (filter instanceof Overlaps) {
+            return "overlaps";
+        } else if (filter instanceof Touches) {
+            return "touches";
+        } else if (filter instanceof Crosses) {
+            return "crosses";
+        }
+        return null;
+    }
+
+    void encodeComparisonSpatialOperator(BinarySpatialOperator filter, PropertyName property,
+            Literal geometry, boolean swapped, Object extraData) throws IOException {
 
         String closingParenthesis = ")";
         if (filter instanceof Equals) {
@@ -122,6 +534,9 @@ class FilterToSqlHelper {
         } else if (filter instanceof Disjoint) {
             out.write("NOT (ST_Intersects");
             closingParenthesis += ")";
+        } else if (filter instanceof BBOX && looseBBOXEnabled) {
+            // primary filter only, answered by the RTREE index alone
+            out.write(MBR_INTERSECTS);
         } else if (filter instanceof Intersects || filter instanceof BBOX) {
             out.write("ST_Intersects");
         } else if (filter instanceof Crosses) {
@@ -0,0 +1,151 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.altibase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.geotools.data.Query;
+import org.geotools.data.korean.ReadPipeline;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.factory.Hints;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class AltibaseDialectTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    JDBCDataStore dataStore;
+
+    AltibaseDialect dialect;
+
+    @Before
+    public void setUp() {
+        dataStore = new JDBCDataStore();
+        dialect = new AltibaseDialect(dataStore);
+    }
+
+    @Test
+    public void testEncodeGeometryEnvelope() {
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryEnvelope("ROADS", "GEOM", sql);
+        assertEquals(" MIN(MINX(\"GEOM\")), MIN(MINY(\"GEOM\")), MAX(MAXX(\"GEOM\")), "
+                + "MAX(MAXY(\"GEOM\"))", sql.toString());
+    }
+
+    @Test
+    public void testDecodeGeometryEnvelope() throws Exception {
+        // two envelopes, four columns each
+        ResultSet rs = resultSet(0d, 1d, 10d, 11d, 100d, 101d, 110d, 111d);
+        assertEquals(new Envelope(0, 10, 1, 11), dialect.decodeGeometryEnvelope(rs, 1, null));
+        assertEquals(new Envelope(100, 110, 101, 111), dialect.decodeGeometryEnvelope(rs, 2, null));
+    }
+
+    @Test
+    public void testDecodeEmptyGeometryEnvelope() throws Exception {
+        ResultSet rs = resultSet(0d, 1d, 10d, 11d, null, null, null, null);
+        assertTrue(dialect.decodeGeometryEnvelope(rs, 2, null).isNull());
+    }
+
+    @Test
+    public void testSelectHints() throws Exception {
+        dialect.setDecimationEnabled(true);
+        Hints queryHints = new Hints(Hints.GEOMETRY_DISTANCE, 1d);
+        Query query = new Query("roads", FF.bbox("geom", 0, 0, 10, 10, null));
+        query.setHints(queryHints);
+        dialect.handleSelectHints(new StringBuffer("SELECT * FROM roads"), null, query);
+
+        // the clip envelope goes to the select hints, the query ones are left alone
+        Hints hints = dialect.selectHints.get();
+        assertEquals(new Envelope(-2, 12, -2, 12), hints.get(ReadPipeline.CLIP_ENVELOPE));
+        assertEquals(1d, hints.get(Hints.GEOMETRY_DISTANCE));
+        assertNull(queryHints.get(ReadPipeline.CLIP_ENVELOPE));
+
+        // a select without hints does not pick up the previous ones
+        dialect.handleSelectHints(new StringBuffer("SELECT * FROM roads"), null,
+                new Query("roads"));
+        hints = dialect.selectHints.get();
+        assertTrue(hints == null || !hints.containsKey(ReadPipeline.CLIP_ENVELOPE));
+    }
+
+    @Test
+    public void testRelaxSpatialFilters() throws Exception {
+        dialect.setTwoPhaseFilterEnabled(true);
+        AltibasePSFilterToSql encoder = new AltibasePSFilterToSql(new AltibasePSDialect(dataStore, dialect));
+        encoder.setTwoPhaseFilterVertices(4);
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("geom", Polygon.class);
+        encoder.setFeatureType(tb.buildFeatureType());
+
+        // both spatial tests are encoded the same, only the top level one can be refined
+        WKTReader reader = new WKTReader();
+        Filter excluded = FF.not(FF.intersects(FF.property("geom"),
+                FF.literal(reader.read("POLYGON ((0 0, 1 0, 1 1, 0 1, 0 0))"))));
+        Filter refined = FF.intersects(FF.property("geom"),
+                FF.literal(reader.read("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))")));
+        Filter filter = FF.and(excluded, refined);
+        StringBuffer sql = new StringBuffer("SELECT * FROM roads ");
+        sql.append(encoder.encodeToString(filter));
+
+        List<ReadPipeline.Refinement> refinements = dialect.relaxSpatialFilters(sql,
+                new Query("roads", filter));
+        assertEquals(1, refinements.size());
+        String relaxed = sql.toString();
+        int not = relaxed.indexOf("NOT");
+        int mbr = relaxed.indexOf(FilterToSqlHelper.MBR_INTERSECTS);
+        assertTrue(relaxed, not >= 0 && mbr > not);
+        assertEquals(relaxed, mbr, relaxed.lastIndexOf(FilterToSqlHelper.MBR_INTERSECTS));
+        assertTrue(relaxed.substring(not, mbr).contains(refinements.get(0).exact));
+    }
+
+    /**
+     * Returns a result set positioned on a single row holding the values
+     */
+    static ResultSet resultSet(final Object... row) {
+        return (ResultSet) Proxy.newProxyInstance(AltibaseDialectTest.class.getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+                    Object last;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("wasNull".equals(method.getName())) {
+                            return last == null;
+                        }
+                        last = row[(Integer) args[0] - 1];
+                        if ("getDouble".equals(method.getName())) {
+                            return last == null ? 0d : last;
+                        }
+                        return last;
+                    }
+                });
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.altibase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.korean.GeometryMetadataCatalog;
+import org.junit.Test;
+
+public class AltibaseGeometryMetadataCatalogTest {
+
+    /** a GEOMETRY_COLUMNS row joined to SPATIAL_REF_SYS, without the geometry type */
+    static final Object[] ROW = { "GIS", "ROADS", "GEOM", 4326, 2 };
+
+    /**
+     * Returns a connection whose statements return the row, or fail if it is null, recording the
+     * calls made on the connection
+     */
+    static Connection connection(final boolean autoCommit, final Object[] row,
+            final List<String> calls) {
+        return (Connection) proxy(Connection.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                calls.add(method.getName());
+                if ("getAutoCommit".equals(method.getName())) {
+                    return autoCommit;
+                } else if ("createStatement".equals(method.getName())) {
+                    return statement(row, calls);
+                } else if ("setSavepoint".equals(method.getName())) {
+                    return proxy(Savepoint.class, this);
+                }
+                return null;
+            }
+        });
+    }
+
+    static Statement statement(final Object[] row, final List<String> calls) {
+        return (Statement) proxy(Statement.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                if (!"executeQuery".equals(method.getName())) {
+                    return null;
+                }
+                calls.add((String) args[0]);
+                if (row == null) {
+                    throw new SQLException("no GEOMETRY_COLUMNS");
+                }
+                return proxy(ResultSet.class, new InvocationHandler() {
+                    boolean next = true;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("next".equals(method.getName())) {
+                            boolean result = next;
+                            next = false;
+                            return result;
+                        } else if ("wasNull".equals(method.getName())) {
+                            return false;
+                        } else if (args != null && args[0] instanceof Integer) {
+                            return row[(Integer) args[0] - 1];
+                        }
+                        return null;
+                    }
+                });
+            }
+        });
+    }
+
+    static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(AltibaseGeometryMetadataCatalogTest.class.getClassLoader(),
+                new Class[] { type }, handler);
+    }
+
+    @Test
+    public void testSpatialRefSysJoin() {
+        AltibaseGeometryMetadataCatalog catalog = new AltibaseGeometryMetadataCatalog();
+        List<String> calls = new ArrayList<String>();
+        assertNull(catalog.get("GIS", "ROADS", "GEOM", connection(true, null, calls)));
+
+        // loaded again after the failure
+        calls.clear();
+        GeometryMetadataCatalog.Entry entry = catalog.get("GIS", "ROADS", "GEOM",
+                connection(true, ROW, calls));
+        assertNotNull(entry);
+        assertEquals("GIS", entry.schema);
+        assertNull(entry.type);
+        assertEquals(Integer.valueOf(4326), entry.srid);
+        assertEquals(2, entry.dimension);
+        assertEquals(1, count(calls, AltibaseGeometryMetadataCatalog.GEOMETRY_COLUMNS_SQL));
+    }
+
+    @Test
+    public void testRefreshDropsSampledTypes() {
+        AltibaseGeometryMetadataCatalog catalog = new AltibaseGeometryMetadataCatalog();
+        catalog.putSampledType("GIS", "ROADS", "GEOM", "LINESTRING");
+        assertEquals("LINESTRING", catalog.getSampledType("GIS", "ROADS", "GEOM"));
+        assertNull(catalog.getSampledType("GIS", "ROADS", "OTHER"));
+
+        catalog.refresh();
+        assertNull(catalog.getSampledType("GIS", "ROADS", "GEOM"));
+    }
+
+    static int count(List<String> calls, String name) {
+        int count = 0;
+        for (String call : calls) {
+            if (call.equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
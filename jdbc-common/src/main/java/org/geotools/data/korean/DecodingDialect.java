@@ -0,0 +1,50 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import org.geotools.util.factory.Hints;
+import org.opengis.feature.type.GeometryDescriptor;
+
+/**
+ * The geometry decoding settings of a dialect, as the {@link ReadPipeline} applies them to the
+ * feature selects it reads ahead
+ */
+public interface DecodingDialect {
+
+    /**
+     * Returns true if the geometries of the given column are decoded through the point fast path,
+     * see {@link WKBReader#readPoint}
+     */
+    boolean isPointFastPath(GeometryDescriptor descriptor);
+
+    /**
+     * Returns true if the geometries read with the given query hints should be two dimensional
+     */
+    boolean isForce2D(Hints hints);
+
+    /**
+     * Returns the tolerance geometries are decimated by while decoding, null if decimation is
+     * disabled or not requested
+     */
+    Double getDecimationDistance(Hints hints);
+
+    /**
+     * Returns true if the geometries are handed out undecoded, see {@link LazyWKBGeometry}. The
+     * pipeline then decodes them only for the exact tests of two phase filtering.
+     */
+    boolean isLazyDecodeEnabled();
+}
@@ -0,0 +1,440 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.ManageableDataSource;
+import org.geotools.data.jdbc.datasource.UnWrapper;
+import org.geotools.util.factory.Hints;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Decorates the data source of a data store, the connections and statements it hands out let
+ * feature selects be routed through the {@link ReadPipeline}, and prepared statements be reused
+ * through a {@link StatementCache} per physical connection. Each dialect module installs a
+ * subclass of its own.
+ */
+public class DecoratingDataSource implements ManageableDataSource {
+
+    /**
+     * Implemented by the statements handed out by this data source, the dialect uses it to flag
+     * the statements that select features
+     */
+    public interface FeatureSelect {
+        void setFeatureType(SimpleFeatureType featureType, Hints hints);
+    }
+
+    /**
+     * Told when the transaction of a connection handed out by this data source ends
+     */
+    public interface TransactionListener {
+        /**
+         * The connection committed, or was closed or switched to auto commit, it may not have been
+         * in a transaction
+         */
+        void committed(Connection cx);
+
+        void rolledBack(Connection cx);
+    }
+
+    final DataSource wrapped;
+
+    final List<TransactionListener> transactionListeners =
+            new CopyOnWriteArrayList<TransactionListener>();
+
+    ReadPipeline readPipeline;
+
+    int statementCacheSize;
+
+    /**
+     * The statement caches by physical connection, the cached statements keep their connection
+     * alive so the caches of closed connections are dropped by {@link #getStatementCache}
+     */
+    final Map<Connection, StatementCache> statementCaches = Collections
+            .synchronizedMap(new IdentityHashMap<Connection, StatementCache>());
+
+    final AtomicLong statementCacheHits = new AtomicLong();
+
+    final AtomicLong statementCacheMisses = new AtomicLong();
+
+    public DecoratingDataSource(DataSource wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    public DataSource getWrappedDataSource() {
+        return wrapped;
+    }
+
+    public ReadPipeline getReadPipeline() {
+        return readPipeline;
+    }
+
+    public void setReadPipeline(ReadPipeline readPipeline) {
+        this.readPipeline = readPipeline;
+    }
+
+    public void addTransactionListener(TransactionListener listener) {
+        transactionListeners.add(listener);
+    }
+
+    /**
+     * Maximum number of prepared statements cached per physical connection, 0 disables the cache
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Number of prepared statements served from the statement cache
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * Number of prepared statements that had to be prepared with the statement cache enabled
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Returns the physical connection behind the pooled one
+     */
+    static Connection unwrap(Connection pooled) {
+        UnWrapper unwrapper = DataSourceFinder.getUnWrapper(pooled);
+        if (unwrapper != null) {
+            Connection unwrapped = unwrapper.unwrap(pooled);
+            if (unwrapped != null) {
+                return unwrapped;
+            }
+        }
+        return pooled;
+    }
+
+    /**
+     * Returns the statement cache of the physical connection, closing and dropping the caches of
+     * the physical connections closed since
+     */
+    StatementCache getStatementCache(Connection physical) {
+        StatementCache cache;
+        List<StatementCache> closed = new ArrayList<StatementCache>();
+        synchronized (statementCaches) {
+            Iterator<Map.Entry<Connection, StatementCache>> it = statementCaches.entrySet()
+                    .iterator();
+            while (it.hasNext()) {
+                Map.Entry<Connection, StatementCache> entry = it.next();
+                if (entry.getKey() != physical && isClosed(entry.getKey())) {
+                    closed.add(entry.getValue());
+                    it.remove();
+                }
+            }
+            cache = statementCaches.get(physical);
+            if (cache == null) {
+                cache = new StatementCache(statementCacheSize);
+                statementCaches.put(physical, cache);
+            }
+        }
+        for (StatementCache statements : closed) {
+            statements.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the arguments a statement is prepared or a query is executed with, subclasses may
+     * rewrite the SQL they carry. Returns the arguments themselves by default.
+     */
+    protected Object[] rewrite(Connection cx, Object[] args) throws SQLException {
+        return args;
+    }
+
+    static boolean isClosed(Connection cx) {
+        try {
+            return cx.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        return wrap(wrapped.getConnection());
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(wrapped.getConnection(username, password));
+    }
+
+    Connection wrap(Connection cx) {
+        if (cx == null) {
+            return null;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { Connection.class }, new ConnectionHandler(cx));
+    }
+
+    public void close() throws SQLException {
+        if (readPipeline != null) {
+            readPipeline.close();
+        }
+        List<StatementCache> caches;
+        synchronized (statementCaches) {
+            caches = new ArrayList<StatementCache>(statementCaches.values());
+            statementCaches.clear();
+        }
+        for (StatementCache cache : caches) {
+            cache.clear();
+        }
+        if (wrapped instanceof ManageableDataSource) {
+            ((ManageableDataSource) wrapped).close();
+        }
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return wrapped.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        wrapped.setLogWriter(out);
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        wrapped.setLoginTimeout(seconds);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return wrapped.getLoginTimeout();
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return wrapped.getParentLogger();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return wrapped.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || wrapped.isWrapperFor(iface);
+    }
+
+    /**
+     * Invokes the method on the target, unwrapping the exceptions thrown by it
+     */
+    static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Handles the identity related {@link Object} methods, returns null if the method is not one
+     * of them
+     */
+    static Object invokeObjectMethod(Object proxy, Object target, Method method, Object[] args) {
+        String name = method.getName();
+        if ("equals".equals(name) && args != null && args.length == 1) {
+            return proxy == args[0];
+        } else if ("hashCode".equals(name) && args == null) {
+            return System.identityHashCode(proxy);
+        } else if ("toString".equals(name) && args == null) {
+            return "DecoratingDataSource wrapper for " + target;
+        }
+        return null;
+    }
+
+    class ConnectionHandler implements InvocationHandler {
+
+        final Connection cx;
+
+        /** the physical connection behind cx, the cached statements are prepared there */
+        Connection physical;
+
+        StatementCache statementCache;
+
+        ConnectionHandler(Connection cx) {
+            this.cx = cx;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeObjectMethod(proxy, cx, method, args);
+            if (result != null) {
+                return result;
+            }
+
+            if ("prepareStatement".equals(method.getName())) {
+                args = rewrite(cx, args);
+            }
+
+            // the data store prepares selects with a result set type and concurrency
+            if (statementCacheSize > 0 && "prepareStatement".equals(method.getName())
+                    && (args.length == 1 || (args.length == 3 && args[1] instanceof Integer))) {
+                return prepareCached((Connection) proxy, method, args);
+            }
+
+            result = DecoratingDataSource.invoke(cx, method, args);
+            String name = method.getName();
+            if ((args == null && ("commit".equals(name) || "close".equals(name)))
+                    || ("setAutoCommit".equals(name) && Boolean.TRUE.equals(args[0]))) {
+                // closing or switching to auto commit may commit too, depending on the driver
+                for (TransactionListener listener : transactionListeners) {
+                    listener.committed((Connection) proxy);
+                }
+            } else if (args == null && "rollback".equals(name)) {
+                for (TransactionListener listener : transactionListeners) {
+                    listener.rolledBack((Connection) proxy);
+                }
+            }
+            if (result instanceof Statement) {
+                Class<?> type = method.getReturnType();
+                return Proxy.newProxyInstance(DecoratingDataSource.class.getClassLoader(),
+                        new Class[] { type, FeatureSelect.class },
+                        new StatementHandler((Statement) result, (Connection) proxy));
+            }
+            return result;
+        }
+
+        /**
+         * Takes the statement from the cache of the physical connection, or prepares it there, the
+         * statement goes back to the cache when closed
+         */
+        Object prepareCached(Connection proxy, Method method, Object[] args) throws Throwable {
+            if (statementCache == null) {
+                physical = unwrap(cx);
+                statementCache = getStatementCache(physical);
+            }
+
+            String key = (String) args[0];
+            if (args.length == 3) {
+                key = args[1] + ":" + args[2] + ":" + key;
+            }
+            PreparedStatement ps = statementCache.take(key);
+            if (ps != null) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statementCacheMisses.incrementAndGet();
+                ps = (PreparedStatement) DecoratingDataSource.invoke(physical, method, args);
+            }
+
+            StatementHandler handler = new StatementHandler(ps, proxy);
+            handler.sql = key;
+            handler.cache = statementCache;
+            return Proxy.newProxyInstance(DecoratingDataSource.class.getClassLoader(),
+                    new Class[] { PreparedStatement.class, FeatureSelect.class }, handler);
+        }
+    }
+
+    class StatementHandler implements InvocationHandler {
+
+        final Statement st;
+
+        final Connection cx;
+
+        SimpleFeatureType featureType;
+
+        Hints hints;
+
+        /** the cache key and the cache of a cached statement, released instead of closed */
+        String sql;
+
+        StatementCache cache;
+
+        StatementHandler(Statement st, Connection cx) {
+            this.st = st;
+            this.cx = cx;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeObjectMethod(proxy, st, method, args);
+            if (result != null) {
+                return result;
+            }
+
+            String name = method.getName();
+            if ("setFeatureType".equals(name)) {
+                featureType = (SimpleFeatureType) args[0];
+                hints = (Hints) args[1];
+                return null;
+            } else if ("getConnection".equals(name)) {
+                return cx;
+            } else if ("close".equals(name) && sql != null) {
+                // the statement may be in use again, only the first close releases it
+                if (cache != null) {
+                    release();
+                }
+                return null;
+            } else if ("executeQuery".equals(name)) {
+                args = rewrite(cx, args);
+            }
+
+            result = DecoratingDataSource.invoke(st, method, args);
+            if ("executeQuery".equals(name) && featureType != null && readPipeline != null) {
+                result = readPipeline.open((ResultSet) result, (Statement) proxy, featureType,
+                        hints);
+            }
+            return result;
+        }
+
+        void release() {
+            StatementCache released = cache;
+            cache = null;
+            PreparedStatement ps = (PreparedStatement) st;
+            if (StatementCache.isClosed(ps)) {
+                return;
+            }
+            try {
+                ps.clearParameters();
+                released.release(sql, ps);
+            } catch (SQLException e) {
+                StatementCache.close(ps);
+            }
+        }
+    }
+}
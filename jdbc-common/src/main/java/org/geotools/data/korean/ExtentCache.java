@@ -0,0 +1,395 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Cache of the optimized bounds of the tables, kept for a time to live and dropped when the data
+ * store commits inserts, updates or deletes of features of the table. The bounds can also be
+ * persisted in a metadata table, created on first use and written on connections of their own, so
+ * that they survive restarts:
+ *
+ * <pre>
+ * TABLE_NAME VARCHAR(255) PRIMARY KEY, MINX, MINY, MAXX, MAXY, UPDATED (epoch milliseconds)
+ * </pre>
+ *
+ * A table without bounds, an empty one, has null coordinates.
+ */
+public class ExtentCache implements DecoratingDataSource.TransactionListener {
+
+    static final Logger LOGGER = Logging.getLogger(ExtentCache.class);
+
+    final long ttl;
+
+    final String table;
+
+    /** the SQL type of the numeric columns of the metadata table */
+    final String numberType;
+
+    final JDBCDataStore dataStore;
+
+    final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /** the tables written by the pending transactions, by connection */
+    final Map<Connection, Set<String>> pending = Collections
+            .synchronizedMap(new IdentityHashMap<Connection, Set<String>>());
+
+    /** the tables known to have no row in the metadata table, deleted since last stored */
+    final Set<String> deleted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** whether the data source reports the commits, see {@link #listen(DecoratingDataSource)} */
+    volatile boolean transactional;
+
+    /** whether the metadata table exists, null until checked */
+    volatile Boolean tableExists;
+
+    static class Entry {
+        final List<ReferencedEnvelope> bounds;
+
+        final long updated;
+
+        Entry(List<ReferencedEnvelope> bounds, long updated) {
+            this.bounds = bounds;
+            this.updated = updated;
+        }
+    }
+
+    /**
+     * @param ttl the time to live of the bounds, in milliseconds
+     * @param table the metadata table persisting the bounds, null to keep them in memory only
+     * @param dataStore the data store whose data source the metadata table is written with
+     * @param numberType the SQL type of the numeric columns of the metadata table
+     */
+    public ExtentCache(long ttl, String table, JDBCDataStore dataStore, String numberType) {
+        this.ttl = ttl;
+        this.table = table;
+        this.dataStore = dataStore;
+        this.numberType = numberType;
+    }
+
+    /**
+     * Drops the bounds of the tables written in a transaction when it commits, instead of on every
+     * write
+     */
+    public void listen(DecoratingDataSource dataSource) {
+        dataSource.addTransactionListener(this);
+        transactional = true;
+    }
+
+    /**
+     * Returns the cached bounds of the feature type, null if there are none or they expired
+     */
+    public List<ReferencedEnvelope> get(SimpleFeatureType featureType, Connection cx) {
+        String key = featureType.getTypeName();
+        if (isPending(key, cx)) {
+            // the transaction sees its own writes
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null && cx != null && isPersistent(cx)) {
+            entry = load(featureType, cx);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        if (entry == null || System.currentTimeMillis() - entry.updated > ttl) {
+            return null;
+        }
+
+        List<ReferencedEnvelope> bounds = new ArrayList<ReferencedEnvelope>();
+        for (ReferencedEnvelope envelope : entry.bounds) {
+            bounds.add(new ReferencedEnvelope(envelope));
+        }
+        return bounds;
+    }
+
+    public void put(SimpleFeatureType featureType, List<ReferencedEnvelope> bounds, Connection cx) {
+        if (isPending(featureType.getTypeName(), cx)) {
+            // computed with writes that may not commit
+            return;
+        }
+        List<ReferencedEnvelope> copy = new ArrayList<ReferencedEnvelope>();
+        for (ReferencedEnvelope envelope : bounds) {
+            copy.add(new ReferencedEnvelope(envelope));
+        }
+        Entry entry = new Entry(Collections.unmodifiableList(copy), System.currentTimeMillis());
+        entries.put(featureType.getTypeName(), entry);
+        if (isPersistent(cx)) {
+            store(featureType.getTypeName(), entry);
+        }
+    }
+
+    /**
+     * Drops the bounds of the feature type written on the connection, when its transaction
+     * commits if the data source reports it, right away otherwise
+     */
+    public void invalidate(SimpleFeatureType featureType, Connection cx) {
+        String typeName = featureType.getTypeName();
+        try {
+            if (transactional && cx != null && !cx.getAutoCommit()) {
+                synchronized (pending) {
+                    Set<String> typeNames = pending.get(cx);
+                    if (typeNames == null) {
+                        typeNames = new HashSet<String>();
+                        pending.put(cx, typeNames);
+                    }
+                    typeNames.add(typeName);
+                }
+                return;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed to check the auto commit mode", e);
+        }
+        drop(typeName, cx);
+    }
+
+    public void committed(Connection cx) {
+        Set<String> typeNames = pending.remove(cx);
+        if (typeNames != null) {
+            for (String typeName : typeNames) {
+                drop(typeName, null);
+            }
+        }
+    }
+
+    public void rolledBack(Connection cx) {
+        pending.remove(cx);
+    }
+
+    boolean isPending(String typeName, Connection cx) {
+        if (cx == null) {
+            return false;
+        }
+        synchronized (pending) {
+            Set<String> typeNames = pending.get(cx);
+            return typeNames != null && typeNames.contains(typeName);
+        }
+    }
+
+    void drop(String typeName, Connection cx) {
+        entries.remove(typeName);
+        if (isPersistent(cx) && deleted.add(typeName)) {
+            delete(typeName);
+        }
+    }
+
+    /**
+     * Returns whether the bounds are persisted, checking the metadata table with the connection
+     * given, or with one of its own if null
+     */
+    boolean isPersistent(Connection cx) {
+        if (table == null) {
+            return false;
+        }
+        if (tableExists == null) {
+            tableExists = checkTable(cx);
+        }
+        return Boolean.TRUE.equals(tableExists);
+    }
+
+    Boolean checkTable(Connection cx) {
+        Connection own = null;
+        ResultSet rs = null;
+        Statement st = null;
+        try {
+            if (cx == null) {
+                cx = own = getConnection();
+            }
+            DatabaseMetaData metaData = cx.getMetaData();
+            rs = metaData.getTables(null, null, table, null);
+            if (rs.next()) {
+                return true;
+            }
+            close(rs);
+            rs = null;
+
+            // not in the transaction of the caller, the DDL would commit its pending changes
+            if (own == null) {
+                own = getConnection();
+            }
+            st = own.createStatement();
+            st.execute("CREATE TABLE " + table + " (TABLE_NAME VARCHAR(255) PRIMARY KEY, MINX "
+                    + numberType + ", MINY " + numberType + ", MAXX " + numberType + ", MAXY "
+                    + numberType + ", UPDATED " + numberType + ")");
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to create the extent cache table " + table
+                    + ", the extents are cached in memory only", e);
+            return false;
+        } finally {
+            close(rs);
+            close(st);
+            close(own);
+        }
+    }
+
+    /**
+     * Returns an auto commit connection of the data store, the metadata table is written on
+     * connections of their own so that the writes neither wait for nor roll back with the
+     * transactions of the features
+     */
+    Connection getConnection() throws SQLException {
+        Connection cx = dataStore.getDataSource().getConnection();
+        if (!cx.getAutoCommit()) {
+            cx.setAutoCommit(true);
+        }
+        return cx;
+    }
+
+    Entry load(SimpleFeatureType featureType, Connection cx) {
+        CoordinateReferenceSystem crs = featureType.getGeometryDescriptor() == null ? null
+                : featureType.getGeometryDescriptor().getCoordinateReferenceSystem();
+        String sql = "SELECT MINX, MINY, MAXX, MAXY, UPDATED FROM " + table
+                + " WHERE TABLE_NAME = ?";
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Savepoint savePoint = null;
+        try {
+            savePoint = cx.getAutoCommit() ? null : cx.setSavepoint();
+            ps = cx.prepareStatement(sql);
+            ps.setString(1, featureType.getTypeName());
+            rs = ps.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+
+            List<ReferencedEnvelope> bounds = new ArrayList<ReferencedEnvelope>();
+            double minX = rs.getDouble(1);
+            if (!rs.wasNull()) {
+                bounds.add(new ReferencedEnvelope(minX, rs.getDouble(3), rs.getDouble(2),
+                        rs.getDouble(4), crs));
+            }
+            return new Entry(Collections.unmodifiableList(bounds), rs.getLong(5));
+        } catch (SQLException e) {
+            rollback(cx, savePoint);
+            LOGGER.log(Level.FINE, "Failed to load the cached extent of "
+                    + featureType.getTypeName(), e);
+            return null;
+        } finally {
+            close(rs);
+            close(ps);
+            release(cx, savePoint);
+        }
+    }
+
+    void store(String typeName, Entry entry) {
+        Connection cx = null;
+        PreparedStatement ps = null;
+        try {
+            cx = getConnection();
+            ps = cx.prepareStatement("DELETE FROM " + table + " WHERE TABLE_NAME = ?");
+            ps.setString(1, typeName);
+            ps.executeUpdate();
+            close(ps);
+
+            ps = cx.prepareStatement("INSERT INTO " + table
+                    + " (TABLE_NAME, MINX, MINY, MAXX, MAXY, UPDATED) VALUES (?, ?, ?, ?, ?, ?)");
+            ps.setString(1, typeName);
+            if (entry.bounds.isEmpty()) {
+                for (int i = 2; i <= 5; i++) {
+                    ps.setNull(i, Types.DOUBLE);
+                }
+            } else {
+                ReferencedEnvelope envelope = entry.bounds.get(0);
+                ps.setDouble(2, envelope.getMinX());
+                ps.setDouble(3, envelope.getMinY());
+                ps.setDouble(4, envelope.getMaxX());
+                ps.setDouble(5, envelope.getMaxY());
+            }
+            ps.setLong(6, entry.updated);
+            ps.executeUpdate();
+            deleted.remove(typeName);
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed to store the cached extent of " + typeName, e);
+        } finally {
+            close(ps);
+            close(cx);
+        }
+    }
+
+    void delete(String typeName) {
+        Connection cx = null;
+        PreparedStatement ps = null;
+        try {
+            cx = getConnection();
+            ps = cx.prepareStatement("DELETE FROM " + table + " WHERE TABLE_NAME = ?");
+            ps.setString(1, typeName);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            // deleted again next time
+            deleted.remove(typeName);
+            LOGGER.log(Level.FINE, "Failed to delete the cached extent of " + typeName, e);
+        } finally {
+            close(ps);
+            close(cx);
+        }
+    }
+
+    static void rollback(Connection cx, Savepoint savePoint) {
+        if (savePoint != null) {
+            try {
+                cx.rollback(savePoint);
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Failed to rollback to the savepoint", e);
+            }
+        }
+    }
+
+    static void release(Connection cx, Savepoint savePoint) {
+        if (savePoint != null) {
+            try {
+                cx.releaseSavepoint(savePoint);
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Failed to release the savepoint", e);
+            }
+        }
+    }
+
+    static void close(AutoCloseable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to close", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.visitor.SimplifyingFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.Or;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Rewrites a filter before it is encoded to SQL, so that the database gets fewer and simpler
+ * predicates. On top of the {@link SimplifyingFilterVisitor} simplifications, ranges included:
+ * <ul>
+ * <li>the BBOX filters of an OR are merged when their union is a box, or dropped when contained in
+ * another one
+ * <li>the BBOX filters of an AND are dropped when implied by another spatial filter of the same
+ * attribute, and intersected on point attributes
+ * <li>the spatial filters of an OR implied by one of its BBOX filters are dropped
+ * </ul>
+ * All the rewrites are exact, the optimized filter selects the same features.
+ */
+public class FilterOptimizer extends SimplifyingFilterVisitor {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    final SimpleFeatureType featureType;
+
+    FilterOptimizer(SimpleFeatureType featureType) {
+        this.featureType = featureType;
+        if (featureType != null) {
+            setFeatureType(featureType);
+            setRangeSimplicationEnabled(true);
+        }
+    }
+
+    /**
+     * Returns the optimized filter, the filter itself if there is nothing to optimize
+     */
+    public static Filter optimize(Filter filter, SimpleFeatureType featureType) {
+        if (filter == null || filter == Filter.INCLUDE || filter == Filter.EXCLUDE) {
+            return filter;
+        }
+        return (Filter) filter.accept(new FilterOptimizer(featureType), null);
+    }
+
+    @Override
+    public Object visit(And filter, Object extraData) {
+        Object simplified = super.visit(filter, extraData);
+        if (!(simplified instanceof And)) {
+            return simplified;
+        }
+
+        List<Filter> children = new ArrayList<Filter>(flatten((And) simplified,
+                new LinkedHashSet<Filter>()));
+
+        // a BBOX implied by another spatial filter of the same attribute is redundant
+        for (int i = children.size() - 1; i >= 0; i--) {
+            Filter child = children.get(i);
+            if (child instanceof BBOX) {
+                for (Filter other : children) {
+                    if (other != child && implies(other, (BBOX) child)) {
+                        children.remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        // on points, intersecting several boxes is intersecting their intersection
+        for (int i = 0; i < children.size(); i++) {
+            if (!(children.get(i) instanceof BBOX) || !isPoint(property(children.get(i)))) {
+                continue;
+            }
+            BBOX bbox = (BBOX) children.get(i);
+            if (envelope(bbox) == null) {
+                continue;
+            }
+            Envelope envelope = new Envelope(envelope(bbox));
+            CoordinateReferenceSystem crs = crs(bbox);
+            boolean intersected = false;
+            for (int j = children.size() - 1; j > i; j--) {
+                Filter other = children.get(j);
+                if (other instanceof BBOX && sameOperands(bbox, (BBOX) other)) {
+                    envelope = envelope.intersection(envelope(other));
+                    if (crs == null) {
+                        crs = crs(other);
+                    }
+                    children.remove(j);
+                    intersected = true;
+                }
+            }
+            if (envelope.isNull()) {
+                return Filter.EXCLUDE;
+            } else if (intersected) {
+                children.set(i, bbox(bbox, envelope, crs));
+            }
+        }
+        return children.size() == 1 ? children.get(0) : FF.and(children);
+    }
+
+    @Override
+    public Object visit(Or filter, Object extraData) {
+        Object simplified = super.visit(filter, extraData);
+        if (!(simplified instanceof Or)) {
+            return simplified;
+        }
+
+        List<Filter> children = new ArrayList<Filter>(flatten((Or) simplified,
+                new LinkedHashSet<Filter>()));
+
+        // merge the boxes whose union is a box, until there is nothing left to merge
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < children.size() && !merged; i++) {
+                if (!(children.get(i) instanceof BBOX)) {
+                    continue;
+                }
+                BBOX bbox = (BBOX) children.get(i);
+                for (int j = i + 1; j < children.size() && !merged; j++) {
+                    Filter other = children.get(j);
+                    if (!(other instanceof BBOX) || !sameOperands(bbox, (BBOX) other)) {
+                        continue;
+                    }
+                    Envelope union = union(envelope(bbox), envelope(other));
+                    if (union != null) {
+                        CoordinateReferenceSystem crs = crs(bbox);
+                        children.set(i, bbox(bbox, union, crs != null ? crs : crs(other)));
+                        children.remove(j);
+                        merged = true;
+                    }
+                }
+            }
+        }
+
+        // a spatial filter implying one of the boxes selects nothing more
+        for (int i = children.size() - 1; i >= 0; i--) {
+            Filter child = children.get(i);
+            for (Filter other : children) {
+                if (other != child && other instanceof BBOX && implies(child, (BBOX) other)) {
+                    children.remove(i);
+                    break;
+                }
+            }
+        }
+        return children.size() == 1 ? children.get(0) : FF.or(children);
+    }
+
+    static LinkedHashSet<Filter> flatten(And filter, LinkedHashSet<Filter> children) {
+        for (Filter child : filter.getChildren()) {
+            if (child instanceof And) {
+                flatten((And) child, children);
+            } else {
+                children.add(child);
+            }
+        }
+        return children;
+    }
+
+    static LinkedHashSet<Filter> flatten(Or filter, LinkedHashSet<Filter> children) {
+        for (Filter child : filter.getChildren()) {
+            if (child instanceof Or) {
+                flatten((Or) child, children);
+            } else {
+                children.add(child);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Returns true if the filter is a spatial filter that can only hold where the geometry of the
+     * attribute of the box intersects the box
+     */
+    static boolean implies(Filter filter, BBOX bbox) {
+        if (!(filter instanceof BBOX || filter instanceof Intersects || filter instanceof Within
+                || filter instanceof Contains || filter instanceof Overlaps
+                || filter instanceof Touches || filter instanceof Crosses
+                || filter instanceof Equals)) {
+            return false;
+        }
+        BinarySpatialOperator spatial = (BinarySpatialOperator) filter;
+        String property = property(spatial);
+        Literal literal = literal(spatial);
+        if (property == null || literal == null || literal(bbox) == null
+                || !property.equals(property(bbox))
+                || !sameCRS(literal.getValue(), literal(bbox).getValue())) {
+            return false;
+        }
+        Envelope envelope = envelope(literal.getValue());
+        Envelope box = envelope(bbox);
+        return envelope != null && box != null && box.contains(envelope);
+    }
+
+    /**
+     * Returns true if the boxes apply to the same attribute, in the same CRS
+     */
+    static boolean sameOperands(BBOX bbox, BBOX other) {
+        String property = property(bbox);
+        return property != null && property.equals(property(other)) && literal(bbox) != null
+                && literal(other) != null
+                && sameCRS(literal(bbox).getValue(), literal(other).getValue())
+                && envelope(bbox) != null && envelope(other) != null;
+    }
+
+    /**
+     * Returns the union of the envelopes if it is exactly covered by them, null otherwise
+     */
+    static Envelope union(Envelope a, Envelope b) {
+        boolean sameX = a.getMinX() == b.getMinX() && a.getMaxX() == b.getMaxX();
+        boolean sameY = a.getMinY() == b.getMinY() && a.getMaxY() == b.getMaxY();
+        if (a.contains(b) || b.contains(a) || (sameX && a.intersects(b))
+                || (sameY && a.intersects(b))) {
+            Envelope union = new Envelope(a);
+            union.expandToInclude(b);
+            return union;
+        }
+        return null;
+    }
+
+    static BBOX bbox(BBOX bbox, Envelope envelope, CoordinateReferenceSystem crs) {
+        return FF.bbox(operand(bbox), new ReferencedEnvelope(envelope, crs));
+    }
+
+    boolean isPoint(String property) {
+        if (featureType == null || property == null) {
+            return false;
+        }
+        AttributeDescriptor descriptor = featureType.getDescriptor(property);
+        return descriptor != null && Point.class.equals(descriptor.getType().getBinding());
+    }
+
+    static Expression operand(BinarySpatialOperator filter) {
+        return filter.getExpression1() instanceof PropertyName ? filter.getExpression1()
+                : filter.getExpression2();
+    }
+
+    static String property(Filter filter) {
+        if (!(filter instanceof BinarySpatialOperator)) {
+            return null;
+        }
+        Expression operand = operand((BinarySpatialOperator) filter);
+        return operand instanceof PropertyName ? ((PropertyName) operand).getPropertyName()
+                : null;
+    }
+
+    static Literal literal(BinarySpatialOperator filter) {
+        if (filter.getExpression2() instanceof Literal) {
+            return (Literal) filter.getExpression2();
+        } else if (filter.getExpression1() instanceof Literal) {
+            return (Literal) filter.getExpression1();
+        }
+        return null;
+    }
+
+    static Envelope envelope(Filter filter) {
+        Literal literal = literal((BinarySpatialOperator) filter);
+        return literal == null ? null : envelope(literal.getValue());
+    }
+
+    static Envelope envelope(Object value) {
+        if (value instanceof Envelope) {
+            return (Envelope) value;
+        } else if (value instanceof Geometry && !((Geometry) value).isEmpty()) {
+            return ((Geometry) value).getEnvelopeInternal();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the CRS of the box literal, whether it is an envelope or a geometry
+     */
+    static CoordinateReferenceSystem crs(Filter bbox) {
+        Literal literal = literal((BinarySpatialOperator) bbox);
+        return literal == null ? null : crs(literal.getValue());
+    }
+
+    static boolean sameCRS(Object value, Object other) {
+        CoordinateReferenceSystem crs = crs(value);
+        CoordinateReferenceSystem otherCRS = crs(other);
+        return crs == null || otherCRS == null || CRS.equalsIgnoreMetadata(crs, otherCRS);
+    }
+
+    static CoordinateReferenceSystem crs(Object value) {
+        if (value instanceof ReferencedEnvelope) {
+            return ((ReferencedEnvelope) value).getCoordinateReferenceSystem();
+        } else if (value instanceof Geometry
+                && ((Geometry) value).getUserData() instanceof CoordinateReferenceSystem) {
+            return (CoordinateReferenceSystem) ((Geometry) value).getUserData();
+        }
+        return null;
+    }
+}
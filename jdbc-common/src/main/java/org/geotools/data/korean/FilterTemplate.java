@@ -0,0 +1,461 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterVisitor;
+import org.opengis.filter.Id;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.PropertyIsNil;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.NilExpression;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.Beyond;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.DWithin;
+import org.opengis.filter.spatial.Disjoint;
+import org.opengis.filter.spatial.DistanceBufferOperator;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+import org.opengis.filter.temporal.After;
+import org.opengis.filter.temporal.AnyInteracts;
+import org.opengis.filter.temporal.Before;
+import org.opengis.filter.temporal.Begins;
+import org.opengis.filter.temporal.BegunBy;
+import org.opengis.filter.temporal.BinaryTemporalOperator;
+import org.opengis.filter.temporal.During;
+import org.opengis.filter.temporal.EndedBy;
+import org.opengis.filter.temporal.Ends;
+import org.opengis.filter.temporal.Meets;
+import org.opengis.filter.temporal.MetBy;
+import org.opengis.filter.temporal.OverlappedBy;
+import org.opengis.filter.temporal.TContains;
+import org.opengis.filter.temporal.TEquals;
+import org.opengis.filter.temporal.TOverlaps;
+
+/**
+ * The SQL a prepared statement filter encoder produced for a filter structure, and the plan to
+ * extract its parameters from another filter of the same structure: parameter <code>i</code> is the
+ * literal <code>literals[i]</code> of the filter, in the order {@link #fingerprint} collects them.
+ * <p>
+ * Filters differing only by their literal values share a template, everything else the SQL
+ * depends on, from property names to like patterns and distances, is part of the fingerprint.
+ */
+public class FilterTemplate {
+
+    /** marks the filter structures whose parameters cannot be mapped to their literals */
+    public static final FilterTemplate UNCACHEABLE = new FilterTemplate(null, null, null, null, null,
+            null);
+
+    public final String sql;
+
+    public final int[] literals;
+
+    public final List<Class> types;
+
+    public final List<Integer> srids;
+
+    public final List<Integer> dimensions;
+
+    public final List<AttributeDescriptor> descriptors;
+
+    public FilterTemplate(String sql, int[] literals, List<Class> types, List<Integer> srids,
+            List<Integer> dimensions, List<AttributeDescriptor> descriptors) {
+        this.sql = sql;
+        this.literals = literals;
+        this.types = types;
+        this.srids = srids;
+        this.dimensions = dimensions;
+        this.descriptors = descriptors;
+    }
+
+    /**
+     * Returns the structural fingerprint of the filter, collecting its literals in visiting order.
+     * The geometry literals of at least <code>twoPhaseFilterVertices</code> vertices are marked,
+     * the spatial tests against them are encoded for two phase filtering.
+     *
+     * @param twoPhaseFilterVertices the two phase filtering threshold, 0 if it is disabled
+     */
+    public static String fingerprint(Filter filter, List<Literal> literals, int twoPhaseFilterVertices) {
+        StringBuilder sb = new StringBuilder();
+        filter.accept(new Fingerprint(literals, twoPhaseFilterVertices), sb);
+        return sb.toString();
+    }
+
+    /**
+     * Bounded LRU cache of the templates, keyed by the fingerprints
+     */
+    public static class Cache {
+
+        final Map<String, FilterTemplate> templates;
+
+        public Cache(final int maxSize) {
+            this.templates = new LinkedHashMap<String, FilterTemplate>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FilterTemplate> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        public synchronized FilterTemplate get(String key) {
+            return templates.get(key);
+        }
+
+        public synchronized void put(String key, FilterTemplate template) {
+            templates.put(key, template);
+        }
+
+        public synchronized int size() {
+            return templates.size();
+        }
+    }
+
+    static class Fingerprint implements FilterVisitor, ExpressionVisitor {
+
+        final List<Literal> literals;
+
+        final int twoPhaseFilterVertices;
+
+        Fingerprint(List<Literal> literals, int twoPhaseFilterVertices) {
+            this.literals = literals;
+            this.twoPhaseFilterVertices = twoPhaseFilterVertices;
+        }
+
+        StringBuilder append(Object data, Object token) {
+            return ((StringBuilder) data).append(token);
+        }
+
+        Object expressions(Object data, String name, Expression... expressions) {
+            append(data, name).append('(');
+            for (Expression expression : expressions) {
+                if (expression == null) {
+                    append(data, "null");
+                } else {
+                    expression.accept(this, data);
+                }
+                append(data, ',');
+            }
+            return append(data, ')');
+        }
+
+        Object filters(Object data, String name, List<Filter> children) {
+            append(data, name).append('(');
+            for (Filter child : children) {
+                child.accept(this, data);
+                append(data, ',');
+            }
+            return append(data, ')');
+        }
+
+        Object comparison(Object data, String name, BinaryComparisonOperator filter) {
+            append(data, filter.isMatchingCase()).append(filter.getMatchAction());
+            return expressions(data, name, filter.getExpression1(), filter.getExpression2());
+        }
+
+        Object spatial(Object data, String name, BinarySpatialOperator filter) {
+            append(data, filter.getMatchAction());
+            if (filter instanceof DistanceBufferOperator) {
+                DistanceBufferOperator distance = (DistanceBufferOperator) filter;
+                append(data, distance.getDistance()).append(distance.getDistanceUnits());
+            }
+            return expressions(data, name, filter.getExpression1(), filter.getExpression2());
+        }
+
+        Object temporal(Object data, String name, BinaryTemporalOperator filter) {
+            // begin/end strings are encoded as periods, see FilterToSqlHelper#period
+            append(data, filter.getMatchAction()).append(isPeriod(filter.getExpression1()))
+                    .append(isPeriod(filter.getExpression2()));
+            return expressions(data, name, filter.getExpression1(), filter.getExpression2());
+        }
+
+        static boolean isPeriod(Expression expression) {
+            if (!(expression instanceof Literal)) {
+                return false;
+            }
+            Object value = ((Literal) expression).getValue();
+            return value instanceof String && ((String) value).indexOf('/') > 0;
+        }
+
+        Object math(Object data, String name, BinaryExpression expression) {
+            return expressions(data, name, expression.getExpression1(),
+                    expression.getExpression2());
+        }
+
+        public Object visitNullFilter(Object data) {
+            return append(data, "NULL");
+        }
+
+        public Object visit(ExcludeFilter filter, Object data) {
+            return append(data, "EXCLUDE");
+        }
+
+        public Object visit(IncludeFilter filter, Object data) {
+            return append(data, "INCLUDE");
+        }
+
+        public Object visit(And filter, Object data) {
+            return filters(data, "AND", filter.getChildren());
+        }
+
+        public Object visit(Id filter, Object data) {
+            // the ids are encoded in the SQL
+            return append(data, "ID").append(filter.getIdentifiers());
+        }
+
+        public Object visit(Not filter, Object data) {
+            append(data, "NOT(");
+            filter.getFilter().accept(this, data);
+            return append(data, ')');
+        }
+
+        public Object visit(Or filter, Object data) {
+            return filters(data, "OR", filter.getChildren());
+        }
+
+        public Object visit(PropertyIsBetween filter, Object data) {
+            append(data, filter.getMatchAction());
+            return expressions(data, "BETWEEN", filter.getExpression(),
+                    filter.getLowerBoundary(), filter.getUpperBoundary());
+        }
+
+        public Object visit(PropertyIsEqualTo filter, Object data) {
+            return comparison(data, "EQ", filter);
+        }
+
+        public Object visit(PropertyIsNotEqualTo filter, Object data) {
+            return comparison(data, "NE", filter);
+        }
+
+        public Object visit(PropertyIsGreaterThan filter, Object data) {
+            return comparison(data, "GT", filter);
+        }
+
+        public Object visit(PropertyIsGreaterThanOrEqualTo filter, Object data) {
+            return comparison(data, "GE", filter);
+        }
+
+        public Object visit(PropertyIsLessThan filter, Object data) {
+            return comparison(data, "LT", filter);
+        }
+
+        public Object visit(PropertyIsLessThanOrEqualTo filter, Object data) {
+            return comparison(data, "LE", filter);
+        }
+
+        public Object visit(PropertyIsLike filter, Object data) {
+            // the pattern is encoded in the SQL
+            append(data, "LIKE").append(filter.getLiteral()).append('|')
+                    .append(filter.getWildCard()).append(filter.getSingleChar())
+                    .append(filter.getEscape()).append(filter.isMatchingCase())
+                    .append(filter.getMatchAction());
+            return expressions(data, "", filter.getExpression());
+        }
+
+        public Object visit(PropertyIsNull filter, Object data) {
+            return expressions(data, "ISNULL", filter.getExpression());
+        }
+
+        public Object visit(PropertyIsNil filter, Object data) {
+            append(data, filter.getNilReason());
+            return expressions(data, "ISNIL", filter.getExpression());
+        }
+
+        public Object visit(BBOX filter, Object data) {
+            return spatial(data, "BBOX", filter);
+        }
+
+        public Object visit(Beyond filter, Object data) {
+            return spatial(data, "BEYOND", filter);
+        }
+
+        public Object visit(Contains filter, Object data) {
+            return spatial(data, "CONTAINS", filter);
+        }
+
+        public Object visit(Crosses filter, Object data) {
+            return spatial(data, "CROSSES", filter);
+        }
+
+        public Object visit(Disjoint filter, Object data) {
+            return spatial(data, "DISJOINT", filter);
+        }
+
+        public Object visit(DWithin filter, Object data) {
+            return spatial(data, "DWITHIN", filter);
+        }
+
+        public Object visit(Equals filter, Object data) {
+            return spatial(data, "EQUALS", filter);
+        }
+
+        public Object visit(Intersects filter, Object data) {
+            return spatial(data, "INTERSECTS", filter);
+        }
+
+        public Object visit(Overlaps filter, Object data) {
+            return spatial(data, "OVERLAPS", filter);
+        }
+
+        public Object visit(Touches filter, Object data) {
+            return spatial(data, "TOUCHES", filter);
+        }
+
+        public Object visit(Within filter, Object data) {
+            return spatial(data, "WITHIN", filter);
+        }
+
+        public Object visit(After after, Object data) {
+            return temporal(data, "AFTER", after);
+        }
+
+        public Object visit(AnyInteracts anyInteracts, Object data) {
+            return temporal(data, "ANYINTERACTS", anyInteracts);
+        }
+
+        public Object visit(Before before, Object data) {
+            return temporal(data, "BEFORE", before);
+        }
+
+        public Object visit(Begins begins, Object data) {
+            return temporal(data, "BEGINS", begins);
+        }
+
+        public Object visit(BegunBy begunBy, Object data) {
+            return temporal(data, "BEGUNBY", begunBy);
+        }
+
+        public Object visit(During during, Object data) {
+            return temporal(data, "DURING", during);
+        }
+
+        public Object visit(EndedBy endedBy, Object data) {
+            return temporal(data, "ENDEDBY", endedBy);
+        }
+
+        public Object visit(Ends ends, Object data) {
+            return temporal(data, "ENDS", ends);
+        }
+
+        public Object visit(Meets meets, Object data) {
+            return temporal(data, "MEETS", meets);
+        }
+
+        public Object visit(MetBy metBy, Object data) {
+            return temporal(data, "METBY", metBy);
+        }
+
+        public Object visit(OverlappedBy overlappedBy, Object data) {
+            return temporal(data, "OVERLAPPEDBY", overlappedBy);
+        }
+
+        public Object visit(TContains contains, Object data) {
+            return temporal(data, "TCONTAINS", contains);
+        }
+
+        public Object visit(TEquals equals, Object data) {
+            return temporal(data, "TEQUALS", equals);
+        }
+
+        public Object visit(TOverlaps contains, Object data) {
+            return temporal(data, "TOVERLAPS", contains);
+        }
+
+        public Object visit(NilExpression expression, Object data) {
+            return append(data, "NIL");
+        }
+
+        public Object visit(Add expression, Object data) {
+            return math(data, "+", expression);
+        }
+
+        public Object visit(Divide expression, Object data) {
+            return math(data, "/", expression);
+        }
+
+        public Object visit(Function expression, Object data) {
+            List<Expression> parameters = expression.getParameters();
+            return expressions(data, "F:" + expression.getName(),
+                    parameters.toArray(new Expression[parameters.size()]));
+        }
+
+        public Object visit(Literal expression, Object data) {
+            // the value is a parameter, only its type matters to the SQL
+            literals.add(expression);
+            Object value = expression.getValue();
+            append(data, '?').append(value == null ? "null" : value.getClass().getName());
+            if (twoPhaseFilterVertices > 0
+                    && (value instanceof Geometry || value instanceof Envelope)) {
+                // same test as FilterToSqlHelper#visitComparisonSpatialOperator
+                Geometry geometry = expression.evaluate(null, Geometry.class);
+                if (geometry != null && geometry.getNumPoints() >= twoPhaseFilterVertices) {
+                    append(data, '+');
+                }
+            }
+            return data;
+        }
+
+        public Object visit(Multiply expression, Object data) {
+            return math(data, "*", expression);
+        }
+
+        public Object visit(PropertyName expression, Object data) {
+            return append(data, '"').append(expression.getPropertyName()).append('"');
+        }
+
+        public Object visit(Subtract expression, Object data) {
+            return math(data, "-", expression);
+        }
+    }
+}
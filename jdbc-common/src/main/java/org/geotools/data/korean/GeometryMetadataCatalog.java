@@ -0,0 +1,281 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * In memory copy of the GEOMETRY_COLUMNS table, loaded with a single query on first use so that
+ * building the feature types does not query the catalog once per geometry column. The copy is
+ * dropped by {@link #refresh()}, which the dialect calls when it creates or drops a table.
+ * Columns missing from the copy are not registered. Only when the table cannot be loaded does the
+ * dialect query the columns one by one, see {@link #prepareColumnQuery}. Dialects whose
+ * catalog differs override {@link #getGeometryColumnsSql()} and {@link #readEntry(ResultSet)}.
+ */
+public class GeometryMetadataCatalog {
+
+    static final Logger LOGGER = Logging.getLogger(GeometryMetadataCatalog.class);
+
+    static final String GEOMETRY_COLUMNS_SQL = "SELECT F_TABLE_SCHEMA, F_TABLE_NAME, "
+            + "F_GEOMETRY_COLUMN, F_GEOMETRY_TYPE, SRID, COORD_DIMENSION FROM GEOMETRY_COLUMNS";
+
+    static final String UDT_NAMES_SQL = "SELECT column_name, udt_name "
+            + "FROM information_schema.columns WHERE table_schema = ? AND table_name = ?";
+
+    public static class Entry {
+        public final String schema;
+
+        /** the geometry type, null if the catalog does not record it */
+        public final String type;
+
+        public final Integer srid;
+
+        public final int dimension;
+
+        public Entry(String schema, String type, Integer srid, int dimension) {
+            this.schema = schema;
+            this.type = type;
+            this.srid = srid;
+            this.dimension = dimension;
+        }
+    }
+
+    /** the geometry columns by table and column name, null until loaded */
+    volatile Map<String, List<Entry>> columns;
+
+    /** the user defined type names of the columns, by schema and table name */
+    final Map<String, Map<String, String>> udtNames =
+            new ConcurrentHashMap<String, Map<String, String>>();
+
+    /**
+     * Returns the metadata of the geometry column, null if it is not registered
+     *
+     * @param schema the schema of the table, null to match any schema
+     */
+    public Entry get(String schema, String table, String column, Connection cx) {
+        Map<String, List<Entry>> loaded = load(cx);
+        List<Entry> entries = loaded == null ? null : loaded.get(key(table, column));
+        if (entries != null) {
+            for (Entry entry : entries) {
+                if (schema == null || entry.schema == null || schema.equals(entry.schema)) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the GEOMETRY_COLUMNS table is loaded, loading it if needed. Otherwise the
+     * lookups of {@link #get} return null and the dialect has to query the columns one by one.
+     */
+    public boolean isLoaded(Connection cx) {
+        return load(cx) != null;
+    }
+
+    /**
+     * Prepares the query of a value of the GEOMETRY_COLUMNS row of a single column, for when the
+     * table cannot be loaded at once. The table and column names, and the schema if known, are
+     * bound to the conditions appended to the select.
+     *
+     * @param select selects the value from GEOMETRY_COLUMNS, without a WHERE clause
+     */
+    public static PreparedStatement prepareColumnQuery(String select, String schema,
+            String table, String column, Connection cx) throws SQLException {
+        StringBuilder sql = new StringBuilder(select);
+        sql.append(" WHERE F_TABLE_NAME = ? AND F_GEOMETRY_COLUMN = ?");
+        if (schema != null) {
+            sql.append(" AND F_TABLE_SCHEMA = ?");
+        }
+        LOGGER.log(Level.FINE, "Geometry metadata check; {0} ", sql);
+        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        try {
+            ps.setString(1, table);
+            ps.setString(2, column);
+            if (schema != null) {
+                ps.setString(3, schema);
+            }
+        } catch (SQLException e) {
+            close(ps);
+            throw e;
+        }
+        return ps;
+    }
+
+    /**
+     * Returns the user defined type name of the column, loading those of the whole table
+     */
+    public String getUdtName(String schema, String table, String column, Connection cx)
+            throws SQLException {
+        String key = key(schema, table);
+        Map<String, String> names = udtNames.get(key);
+        if (names == null) {
+            names = new HashMap<String, String>();
+            PreparedStatement ps = cx.prepareStatement(UDT_NAMES_SQL);
+            try {
+                ps.setString(1, schema);
+                ps.setString(2, table);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    while (rs.next()) {
+                        names.put(rs.getString(1), rs.getString(2));
+                    }
+                } finally {
+                    close(rs);
+                }
+            } finally {
+                close(ps);
+            }
+            udtNames.put(key, names);
+        }
+        return names.get(column);
+    }
+
+    /**
+     * Drops the loaded metadata, the next lookup loads it again
+     */
+    public void refresh() {
+        columns = null;
+        udtNames.clear();
+    }
+
+    /**
+     * Returns the loaded metadata, loading it if needed, null if the load failed
+     */
+    Map<String, List<Entry>> load(Connection cx) {
+        Map<String, List<Entry>> loaded = columns;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = columns;
+                if (loaded == null) {
+                    // left null if the query failed, the next lookup tries again
+                    loaded = query(cx);
+                    columns = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the query loading the whole GEOMETRY_COLUMNS table, its rows are read by
+     * {@link #readEntry(ResultSet)}
+     */
+    protected String getGeometryColumnsSql() {
+        return GEOMETRY_COLUMNS_SQL;
+    }
+
+    /**
+     * Reads the metadata of the current row, the table and column names are its second and third
+     * columns
+     */
+    protected Entry readEntry(ResultSet rs) throws SQLException {
+        Integer srid = rs.getInt(5);
+        if (rs.wasNull()) {
+            srid = null;
+        }
+        return new Entry(rs.getString(1), rs.getString(4), srid, rs.getInt(6));
+    }
+
+    /**
+     * Queries the GEOMETRY_COLUMNS table, under a savepoint when in a transaction so that a
+     * failure does not abort it, returns null if the query failed
+     */
+    Map<String, List<Entry>> query(Connection cx) {
+        Map<String, List<Entry>> loaded = new HashMap<String, List<Entry>>();
+        Statement st = null;
+        ResultSet rs = null;
+        Savepoint savePoint = null;
+        String sql = getGeometryColumnsSql();
+        try {
+            LOGGER.log(Level.FINE, "Geometry metadata load; {0} ", sql);
+            savePoint = cx.getAutoCommit() ? null : cx.setSavepoint();
+            st = cx.createStatement();
+            rs = st.executeQuery(sql);
+            while (rs.next()) {
+                Entry entry = readEntry(rs);
+
+                String key = key(rs.getString(2), rs.getString(3));
+                List<Entry> entries = loaded.get(key);
+                if (entries == null) {
+                    entries = new ArrayList<Entry>(1);
+                    loaded.put(key, entries);
+                }
+                entries.add(entry);
+            }
+        } catch (SQLException e) {
+            rollback(cx, savePoint);
+            LOGGER.log(Level.WARNING, "Failed to load the geometry_columns table, "
+                    + "the geometry columns are looked up one by one", e);
+            return null;
+        } finally {
+            close(rs);
+            close(st);
+            release(cx, savePoint);
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    protected static String key(String first, String second) {
+        return first + "." + second;
+    }
+
+    static void rollback(Connection cx, Savepoint savePoint) {
+        if (savePoint != null) {
+            try {
+                cx.rollback(savePoint);
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Failed to rollback to the savepoint", e);
+            }
+        }
+    }
+
+    static void release(Connection cx, Savepoint savePoint) {
+        if (savePoint != null) {
+            try {
+                cx.releaseSavepoint(savePoint);
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Failed to release the savepoint", e);
+            }
+        }
+    }
+
+    static void close(AutoCloseable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to close", e);
+            }
+        }
+    }
+}
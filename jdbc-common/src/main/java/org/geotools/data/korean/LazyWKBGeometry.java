@@ -0,0 +1,461 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateFilter;
+import org.locationtech.jts.geom.CoordinateSequenceComparator;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryComponentFilter;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.GeometryFilter;
+import org.locationtech.jts.geom.IntersectionMatrix;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBConstants;
+
+/**
+ * A geometry that keeps the raw WKB and decodes it only when its coordinates are first accessed.
+ * The geometry type and the envelope are read straight from the WKB bytes, the envelope on its first
+ * use only, so consumers that only look at the attributes, or at the bounds, never pay for the
+ * geometry decoding.
+ * <p>
+ * The usual operations are delegated to the decoded geometry. This class is not a {@link Point},
+ * {@link org.locationtech.jts.geom.Polygon} and so on, code that dispatches on the geometry class
+ * (renderers, encoders, the JTS operations receiving it as an argument) has to call
+ * {@link #getGeometry()} first. For this reason lazy decoding is meant for data stores serving
+ * attribute oriented requests only.
+ */
+public class LazyWKBGeometry extends Geometry {
+
+    private static final long serialVersionUID = -3164213858213412207L;
+
+    final byte[] wkb;
+
+    final int geometryType;
+
+    final boolean kairosTypes;
+
+    transient volatile Geometry geometry;
+
+    public LazyWKBGeometry(byte[] wkb, GeometryFactory factory) throws ParseException {
+        this(wkb, factory, false);
+    }
+
+    /**
+     * Wraps the WKB, of a Kairos geometry if <code>kairosTypes</code> is true, see
+     * {@link WKBReader#WKBReader(GeometryFactory, boolean)}
+     */
+    public LazyWKBGeometry(byte[] wkb, GeometryFactory factory, boolean kairosTypes)
+            throws ParseException {
+        super(factory);
+        this.wkb = wkb;
+        this.kairosTypes = kairosTypes;
+        this.geometryType = WKBReader.readGeometryType(wkb, kairosTypes);
+    }
+
+    /**
+     * Returns the raw WKB this geometry was built from
+     */
+    public byte[] getWKB() {
+        return wkb;
+    }
+
+    /**
+     * Returns true if the WKB has already been decoded
+     */
+    public boolean isDecoded() {
+        return geometry != null;
+    }
+
+    /**
+     * Returns the decoded geometry, decoding the WKB on the first call
+     */
+    public Geometry getGeometry() {
+        Geometry result = geometry;
+        if (result == null) {
+            try {
+                result = new WKBReader(getFactory(), kairosTypes).read(wkb);
+            } catch (ParseException e) {
+                throw new IllegalStateException("An exception occurred while parsing WKB data", e);
+            }
+            result.setSRID(getSRID());
+            result.setUserData(getUserData());
+            geometry = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the decoded geometry if the argument is lazy, the argument itself otherwise
+     */
+    static Geometry unwrap(Geometry g) {
+        return g instanceof LazyWKBGeometry ? ((LazyWKBGeometry) g).getGeometry() : g;
+    }
+
+    @Override
+    public void geometryChanged() {
+        // the WKB itself cannot change, only the decoded geometry can
+        if (geometry != null) {
+            geometry.geometryChanged();
+        }
+        envelope = null;
+    }
+
+    @Override
+    public void setSRID(int SRID) {
+        super.setSRID(SRID);
+        if (geometry != null) {
+            geometry.setSRID(SRID);
+        }
+    }
+
+    @Override
+    public void setUserData(Object userData) {
+        super.setUserData(userData);
+        if (geometry != null) {
+            geometry.setUserData(userData);
+        }
+    }
+
+    // answered from the WKB header
+
+    public String getGeometryType() {
+        switch (geometryType) {
+        case WKBConstants.wkbPoint:
+            return "Point";
+        case WKBConstants.wkbLineString:
+            return "LineString";
+        case WKBConstants.wkbPolygon:
+            return "Polygon";
+        case WKBConstants.wkbMultiPoint:
+            return "MultiPoint";
+        case WKBConstants.wkbMultiLineString:
+            return "MultiLineString";
+        case WKBConstants.wkbMultiPolygon:
+            return "MultiPolygon";
+        default:
+            return "GeometryCollection";
+        }
+    }
+
+    public boolean isEmpty() {
+        return getEnvelopeInternal().isNull();
+    }
+
+    public int getDimension() {
+        switch (geometryType) {
+        case WKBConstants.wkbPoint:
+        case WKBConstants.wkbMultiPoint:
+            return 0;
+        case WKBConstants.wkbLineString:
+        case WKBConstants.wkbMultiLineString:
+            return 1;
+        case WKBConstants.wkbPolygon:
+        case WKBConstants.wkbMultiPolygon:
+            return 2;
+        default:
+            return getGeometry().getDimension();
+        }
+    }
+
+    protected Envelope computeEnvelopeInternal() {
+        // once decoded the coordinates may have been changed in place
+        Geometry decoded = geometry;
+        if (decoded != null) {
+            return new Envelope(decoded.getEnvelopeInternal());
+        }
+        try {
+            return WKBReader.readEnvelope(wkb, kairosTypes);
+        } catch (ParseException e) {
+            throw new IllegalStateException("An exception occurred while parsing WKB data", e);
+        }
+    }
+
+    protected int getSortIndex() {
+        return getTypeCode();
+    }
+
+    protected int getTypeCode() {
+        switch (geometryType) {
+        case WKBConstants.wkbPoint:
+            return 0;
+        case WKBConstants.wkbMultiPoint:
+            return 1;
+        case WKBConstants.wkbLineString:
+            return 2;
+        case WKBConstants.wkbMultiLineString:
+            return 4;
+        case WKBConstants.wkbPolygon:
+            return 5;
+        case WKBConstants.wkbMultiPolygon:
+            return 6;
+        default:
+            return 7;
+        }
+    }
+
+    // delegated to the decoded geometry
+
+    public Coordinate getCoordinate() {
+        return getGeometry().getCoordinate();
+    }
+
+    public Coordinate[] getCoordinates() {
+        return getGeometry().getCoordinates();
+    }
+
+    public int getNumPoints() {
+        return getGeometry().getNumPoints();
+    }
+
+    @Override
+    public int getNumGeometries() {
+        return getGeometry().getNumGeometries();
+    }
+
+    @Override
+    public Geometry getGeometryN(int n) {
+        return getGeometry().getGeometryN(n);
+    }
+
+    public Geometry getBoundary() {
+        return getGeometry().getBoundary();
+    }
+
+    public int getBoundaryDimension() {
+        return getGeometry().getBoundaryDimension();
+    }
+
+    public Geometry reverse() {
+        return getGeometry().reverse();
+    }
+
+    protected Geometry reverseInternal() {
+        return getGeometry().reverse();
+    }
+
+    public boolean equalsExact(Geometry other, double tolerance) {
+        return getGeometry().equalsExact(unwrap(other), tolerance);
+    }
+
+    public void apply(CoordinateFilter filter) {
+        getGeometry().apply(filter);
+    }
+
+    public void apply(CoordinateSequenceFilter filter) {
+        getGeometry().apply(filter);
+    }
+
+    public void apply(GeometryFilter filter) {
+        getGeometry().apply(filter);
+    }
+
+    public void apply(GeometryComponentFilter filter) {
+        getGeometry().apply(filter);
+    }
+
+    public Geometry copy() {
+        return getGeometry().copy();
+    }
+
+    protected Geometry copyInternal() {
+        return getGeometry().copy();
+    }
+
+    public void normalize() {
+        getGeometry().normalize();
+    }
+
+    @Override
+    public int compareTo(Object o) {
+        return getGeometry().compareTo(o instanceof Geometry ? unwrap((Geometry) o) : o);
+    }
+
+    @Override
+    public int compareTo(Object o, CoordinateSequenceComparator comp) {
+        return getGeometry().compareTo(o instanceof Geometry ? unwrap((Geometry) o) : o, comp);
+    }
+
+    protected int compareToSameClass(Object o) {
+        return compareTo(o);
+    }
+
+    protected int compareToSameClass(Object o, CoordinateSequenceComparator comp) {
+        return compareTo(o, comp);
+    }
+
+    @Override
+    public double getArea() {
+        return getGeometry().getArea();
+    }
+
+    @Override
+    public double getLength() {
+        return getGeometry().getLength();
+    }
+
+    @Override
+    public Point getCentroid() {
+        return getGeometry().getCentroid();
+    }
+
+    @Override
+    public Point getInteriorPoint() {
+        return getGeometry().getInteriorPoint();
+    }
+
+    @Override
+    public boolean isSimple() {
+        return getGeometry().isSimple();
+    }
+
+    @Override
+    public boolean isValid() {
+        return getGeometry().isValid();
+    }
+
+    @Override
+    public boolean isRectangle() {
+        return getGeometry().isRectangle();
+    }
+
+    @Override
+    public double distance(Geometry g) {
+        return getGeometry().distance(unwrap(g));
+    }
+
+    @Override
+    public boolean isWithinDistance(Geometry geom, double distance) {
+        return getGeometry().isWithinDistance(unwrap(geom), distance);
+    }
+
+    @Override
+    public boolean intersects(Geometry g) {
+        if (!getEnvelopeInternal().intersects(g.getEnvelopeInternal())) {
+            return false;
+        }
+        return getGeometry().intersects(unwrap(g));
+    }
+
+    @Override
+    public boolean disjoint(Geometry g) {
+        return !intersects(g);
+    }
+
+    @Override
+    public boolean touches(Geometry g) {
+        return getGeometry().touches(unwrap(g));
+    }
+
+    @Override
+    public boolean crosses(Geometry g) {
+        return getGeometry().crosses(unwrap(g));
+    }
+
+    @Override
+    public boolean within(Geometry g) {
+        return getGeometry().within(unwrap(g));
+    }
+
+    @Override
+    public boolean contains(Geometry g) {
+        return getGeometry().contains(unwrap(g));
+    }
+
+    @Override
+    public boolean overlaps(Geometry g) {
+        return getGeometry().overlaps(unwrap(g));
+    }
+
+    @Override
+    public boolean covers(Geometry g) {
+        return getGeometry().covers(unwrap(g));
+    }
+
+    @Override
+    public boolean coveredBy(Geometry g) {
+        return getGeometry().coveredBy(unwrap(g));
+    }
+
+    @Override
+    public boolean relate(Geometry g, String intersectionPattern) {
+        return getGeometry().relate(unwrap(g), intersectionPattern);
+    }
+
+    @Override
+    public IntersectionMatrix relate(Geometry g) {
+        return getGeometry().relate(unwrap(g));
+    }
+
+    @Override
+    public boolean equalsTopo(Geometry g) {
+        return getGeometry().equalsTopo(unwrap(g));
+    }
+
+    @Override
+    public Geometry buffer(double distance) {
+        return getGeometry().buffer(distance);
+    }
+
+    @Override
+    public Geometry buffer(double distance, int quadrantSegments) {
+        return getGeometry().buffer(distance, quadrantSegments);
+    }
+
+    @Override
+    public Geometry buffer(double distance, int quadrantSegments, int endCapStyle) {
+        return getGeometry().buffer(distance, quadrantSegments, endCapStyle);
+    }
+
+    @Override
+    public Geometry convexHull() {
+        return getGeometry().convexHull();
+    }
+
+    @Override
+    public Geometry intersection(Geometry other) {
+        return getGeometry().intersection(unwrap(other));
+    }
+
+    @Override
+    public Geometry union(Geometry other) {
+        return getGeometry().union(unwrap(other));
+    }
+
+    @Override
+    public Geometry union() {
+        return getGeometry().union();
+    }
+
+    @Override
+    public Geometry difference(Geometry other) {
+        return getGeometry().difference(unwrap(other));
+    }
+
+    @Override
+    public Geometry symDifference(Geometry other) {
+        return getGeometry().symDifference(unwrap(other));
+    }
+
+    @Override
+    public String toText() {
+        return getGeometry().toText();
+    }
+}
@@ -0,0 +1,721 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataSourceException;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.Converters;
+import org.geotools.util.factory.Hints;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.CoordinateSequenceFactory;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.io.ParseException;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+
+/**
+ * Pipelined reader for feature selects: the rows and the raw WKB are pulled off the result set
+ * ahead of the feature reader, a bounded pool of workers decodes the geometries in parallel, and
+ * the rows are handed back to the feature reader in their original order.
+ * <p>
+ * Every JDBC call stays on the thread of the feature reader, as connections are not thread safe
+ * and the data store may use the same connection for other statements while reading. Only the
+ * decoding of the fetched bytes runs on the workers. At most <code>queueDepth</code> rows are
+ * fetched ahead of the consumer, the window is topped up on each call to <code>next()</code>.
+ * <p>
+ * With two phase filtering the select only carries MBR tests for the large filter geometries, the
+ * workers apply the exact tests, see {@link Refinement}, and the rejected rows are skipped.
+ */
+public class ReadPipeline {
+
+    static final Logger LOGGER = Logging.getLogger(ReadPipeline.class);
+
+    public static final int DEFAULT_QUEUE_DEPTH = 256;
+
+    /**
+     * Hint carrying the {@link Refinement}s of a feature select, set by the dialects when two
+     * phase filtering applies
+     */
+    public static final Hints.Key REFINEMENTS = new Hints.Key(List.class);
+
+    /**
+     * Hint carrying the envelope outside of which the parts of multi geometries can be dropped
+     * while decoding, set by the dialects when decimation is enabled
+     */
+    public static final Hints.Key CLIP_ENVELOPE = new Hints.Key(Envelope.class);
+
+    /**
+     * A result set whose geometry columns are decoded by the pipeline, the dialect picks up the
+     * decoded geometries instead of parsing the column again
+     */
+    public interface DecodedResultSet extends ResultSet {
+
+        Geometry getGeometry(int column, GeometryFactory factory) throws IOException, SQLException;
+
+        Geometry getGeometry(String column, GeometryFactory factory) throws IOException,
+                SQLException;
+    }
+
+    final JDBCDataStore dataStore;
+
+    final DecodingDialect dialect;
+
+    /** true if the geometries are read with the Kairos type codes */
+    final boolean kairosTypes;
+
+    final int queueDepth;
+
+    final ExecutorService decodeExecutor;
+
+    final ThreadLocal<WKBReader> readers = new ThreadLocal<WKBReader>();
+
+    public ReadPipeline(JDBCDataStore dataStore, DecodingDialect dialect, boolean kairosTypes,
+            int queueDepth, int threads) {
+        this.dataStore = dataStore;
+        this.dialect = dialect;
+        this.kairosTypes = kairosTypes;
+        this.queueDepth = Math.max(1, queueDepth);
+        this.decodeExecutor = Executors.newFixedThreadPool(Math.max(1, threads),
+                new PipelineThreadFactory("decode"));
+    }
+
+    /**
+     * Starts pipelining the given feature select result set, returns the result set unchanged if it
+     * has no geometry column to decode, or if the geometries are decoded lazily and there is no
+     * exact test to apply
+     */
+    public ResultSet open(ResultSet rs, Statement statement, SimpleFeatureType featureType, Hints hints)
+            throws SQLException {
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        boolean[] geometries = new boolean[columnCount];
+        boolean[] points = new boolean[columnCount];
+        boolean found = false;
+        boolean allPoints = true;
+        for (int i = 0; i < columnCount; i++) {
+            AttributeDescriptor descriptor = findDescriptor(featureType,
+                    metadata.getColumnLabel(i + 1));
+            if (descriptor instanceof GeometryDescriptor) {
+                geometries[i] = true;
+                points[i] = dialect.isPointFastPath((GeometryDescriptor) descriptor);
+                allPoints &= points[i];
+                found = true;
+            }
+        }
+        List<?> refinements = hints == null ? null : (List<?>) hints.get(REFINEMENTS);
+        boolean refining = refinements != null && !refinements.isEmpty();
+        // the geometries would be decoded for nothing, the lazy ones keep the raw bytes
+        if (!found || (dialect.isLazyDecodeEnabled() && !refining)) {
+            return rs;
+        }
+
+        PipelinedResultSet handler = new PipelinedResultSet(rs, statement, metadata, geometries);
+        handler.factory = getGeometryFactory(hints);
+        handler.pointColumns = points;
+        // decoding a point costs less than handing it over to a worker
+        handler.inline = allPoints;
+        handler.force2D = dialect.isForce2D(hints);
+        if (refining) {
+            handler.refinements = new Refinement[refinements.size()];
+            handler.refinementColumns = new int[refinements.size()];
+            for (int i = 0; i < refinements.size(); i++) {
+                Refinement refinement = (Refinement) refinements.get(i);
+                handler.refinements[i] = refinement;
+                handler.refinementColumns[i] = findColumn(featureType, metadata, geometries,
+                        refinement.attribute);
+                if (handler.refinementColumns[i] < 0) {
+                    LOGGER.log(Level.WARNING, "The refined attribute " + refinement.attribute
+                            + " is not selected, the MBR test results are returned as is");
+                }
+            }
+            // the exact tests need the full geometries, so no decimation and clipping, and they
+            // are worth a worker even for points
+            handler.inline = false;
+        } else {
+            Double distance = dialect.getDecimationDistance(hints);
+            if (distance != null) {
+                handler.decimationTolerance = distance;
+                handler.clipEnvelope = (Envelope) hints.get(CLIP_ENVELOPE);
+            }
+        }
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { DecodedResultSet.class }, handler);
+    }
+
+    /**
+     * Returns the index of the geometry column of the attribute, or -1 if it is not selected
+     */
+    int findColumn(SimpleFeatureType featureType, ResultSetMetaData metadata,
+            boolean[] geometries, String attribute) throws SQLException {
+        for (int i = 0; i < geometries.length; i++) {
+            if (geometries[i]) {
+                AttributeDescriptor descriptor = findDescriptor(featureType,
+                        metadata.getColumnLabel(i + 1));
+                if (descriptor.getLocalName().equalsIgnoreCase(attribute)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    AttributeDescriptor findDescriptor(SimpleFeatureType featureType, String label) {
+        if (label == null) {
+            return null;
+        }
+        AttributeDescriptor descriptor = featureType.getDescriptor(label);
+        if (descriptor == null) {
+            for (AttributeDescriptor ad : featureType.getAttributeDescriptors()) {
+                if (ad.getLocalName().equalsIgnoreCase(label)) {
+                    return ad;
+                }
+            }
+        }
+        return descriptor;
+    }
+
+    public void close() {
+        decodeExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the factory the feature reader will ask the geometries for, picked from the hints the
+     * way JDBCFeatureReader does, so that the workers decode them with it in the first place
+     */
+    GeometryFactory getGeometryFactory(Hints hints) {
+        GeometryFactory factory = null;
+        if (hints != null) {
+            factory = (GeometryFactory) hints.get(Hints.JTS_GEOMETRY_FACTORY);
+            if (factory == null) {
+                CoordinateSequenceFactory csFactory = (CoordinateSequenceFactory) hints
+                        .get(Hints.JTS_COORDINATE_SEQUENCE_FACTORY);
+                if (csFactory != null) {
+                    factory = new GeometryFactory(csFactory);
+                }
+            }
+        }
+        return factory == null ? dataStore.getGeometryFactory() : factory;
+    }
+
+    /**
+     * Returns true if the factories build the same geometries. JDBCFeatureReader creates its own
+     * factory around a hinted sequence factory, so the instances differ.
+     */
+    static boolean isEquivalent(GeometryFactory factory, GeometryFactory other) {
+        return factory == other || (factory != null && other != null
+                && factory.getCoordinateSequenceFactory() == other.getCoordinateSequenceFactory()
+                && factory.getSRID() == other.getSRID()
+                && factory.getPrecisionModel().equals(other.getPrecisionModel()));
+    }
+
+    WKBReader getReader(GeometryFactory factory) {
+        WKBReader reader = readers.get();
+        if (reader == null || reader.getGeometryFactory() != factory) {
+            reader = new WKBReader(factory, kairosTypes);
+            readers.set(reader);
+        }
+        return reader;
+    }
+
+    Geometry decode(byte[] bytes, GeometryFactory factory, double decimationTolerance,
+            Envelope clipEnvelope, boolean force2D) throws ParseException {
+        if (bytes == null) {
+            return null;
+        }
+        WKBReader reader = getReader(factory);
+        reader.setDecimationTolerance(decimationTolerance);
+        reader.setClipEnvelope(clipEnvelope);
+        reader.setForce2D(force2D);
+        return reader.read(bytes);
+    }
+
+    static Future<Row> completed(Row row) {
+        FutureTask<Row> future = new FutureTask<Row>(new Runnable() {
+            public void run() {
+            }
+        }, row);
+        future.run();
+        return future;
+    }
+
+    /**
+     * The exact test of a spatial filter whose SQL was relaxed to an MBR test. The prepared filter
+     * geometry is shared by the decoding workers, it is tested as
+     * <code>geometry.operator(attribute)</code>.
+     */
+    public static class Refinement {
+
+        /** the filter, and the exact and MBR SQL fragments it was encoded as */
+        public final Filter filter;
+
+        public final String exact;
+
+        public final String mbr;
+
+        /** the position of the exact fragment in the encoded filter, -1 if unknown */
+        public final int offset;
+
+        /** the encoded filter, set once it is complete */
+        public String where;
+
+        public final String attribute;
+
+        final String operator;
+
+        final PreparedGeometry geometry;
+
+        public Refinement(Filter filter, String exact, String mbr, int offset, String attribute,
+                String operator, PreparedGeometry geometry) {
+            this.filter = filter;
+            this.exact = exact;
+            this.mbr = mbr;
+            this.offset = offset;
+            this.attribute = attribute;
+            this.operator = operator;
+            this.geometry = geometry;
+        }
+
+        boolean accepts(Geometry g) {
+            if (g == null) {
+                return false;
+            } else if ("contains".equals(operator)) {
+                return geometry.contains(g);
+            } else if ("within".equals(operator)) {
+                return geometry.within(g);
+            } else if ("overlaps".equals(operator)) {
+                return geometry.overlaps(g);
+            } else if ("touches".equals(operator)) {
+                return geometry.touches(g);
+            } else if ("crosses".equals(operator)) {
+                return geometry.crosses(g);
+            }
+            return geometry.intersects(g);
+        }
+    }
+
+    /**
+     * A fetched row, the geometry columns hold the raw WKB in <code>values</code> and the decoded
+     * geometry in <code>geometries</code>
+     */
+    static class Row {
+
+        final Object[] values;
+
+        final Geometry[] geometries;
+
+        GeometryFactory factory;
+
+        Exception failure;
+
+        /** set when an exact test of the two phase filtering fails */
+        boolean rejected;
+
+        Row(Object[] values) {
+            this.values = values;
+            this.geometries = new Geometry[values.length];
+        }
+    }
+
+    class PipelinedResultSet implements InvocationHandler {
+
+        final ResultSet rs;
+
+        final Statement statement;
+
+        final ResultSetMetaData metadata;
+
+        final boolean[] geometryColumns;
+
+        /** the rows fetched ahead of the consumer, in their original order */
+        final ArrayDeque<Future<Row>> queue;
+
+        final Map<String, Integer> columns = new HashMap<String, Integer>();
+
+        boolean closed;
+
+        /** set once the result set has no more rows */
+        boolean exhausted;
+
+        /** the failure of the result set, thrown once the rows fetched before it are consumed */
+        SQLException failure;
+
+        Row current;
+
+        boolean wasNull;
+
+        double decimationTolerance;
+
+        Envelope clipEnvelope;
+
+        boolean force2D;
+
+        boolean[] pointColumns;
+
+        boolean inline;
+
+        Refinement[] refinements;
+
+        int[] refinementColumns;
+
+        /** the factory the geometries are decoded with */
+        GeometryFactory factory;
+
+        PipelinedResultSet(ResultSet rs, Statement statement, ResultSetMetaData metadata,
+                boolean[] geometryColumns) throws SQLException {
+            this.rs = rs;
+            this.statement = statement;
+            this.metadata = metadata;
+            this.geometryColumns = geometryColumns;
+            this.queue = new ArrayDeque<Future<Row>>(queueDepth);
+            for (int i = geometryColumns.length; i > 0; i--) {
+                columns.put(metadata.getColumnLabel(i).toUpperCase(), i);
+            }
+        }
+
+        /**
+         * Fetches rows until the window is full or the result set is exhausted, the decoding of
+         * each row is handed over to the workers
+         */
+        void fetch() {
+            final GeometryFactory factory = this.factory;
+            try {
+                while (!exhausted && queue.size() < queueDepth) {
+                    if (!rs.next()) {
+                        exhausted = true;
+                        break;
+                    }
+                    final Row row = new Row(fetchValues());
+                    if (inline) {
+                        decodeRow(row, factory);
+                        queue.add(completed(row));
+                    } else {
+                        queue.add(decodeExecutor.submit(new Callable<Row>() {
+                            public Row call() throws Exception {
+                                decodeRow(row, factory);
+                                return row;
+                            }
+                        }));
+                    }
+                }
+            } catch (SQLException e) {
+                exhausted = true;
+                failure = e;
+            }
+        }
+
+        Object[] fetchValues() throws SQLException {
+            Object[] values = new Object[geometryColumns.length];
+            for (int i = 0; i < values.length; i++) {
+                int column = i + 1;
+                if (geometryColumns[i]) {
+                    values[i] = rs.getBytes(column);
+                } else {
+                    Object value = rs.getObject(column);
+                    // LOBs are bound to the cursor position, materialize them
+                    if (value instanceof Clob) {
+                        value = rs.getString(column);
+                    } else if (value instanceof Blob) {
+                        value = rs.getBytes(column);
+                    }
+                    values[i] = value;
+                }
+            }
+            return values;
+        }
+
+        void decodeRow(Row row, GeometryFactory factory) {
+            row.factory = factory;
+            try {
+                for (int i = 0; i < geometryColumns.length; i++) {
+                    if (geometryColumns[i]) {
+                        byte[] bytes = (byte[]) row.values[i];
+                        Geometry geometry = null;
+                        if (pointColumns[i] && bytes != null) {
+                            geometry = WKBReader.readPoint(bytes, factory, force2D, kairosTypes);
+                        }
+                        if (geometry == null) {
+                            geometry = decode(bytes, factory, decimationTolerance, clipEnvelope,
+                                    force2D);
+                        }
+                        row.geometries[i] = geometry;
+                    }
+                }
+                if (refinements != null) {
+                    refine(row);
+                }
+            } catch (Exception e) {
+                row.failure = e;
+            }
+        }
+
+        void refine(Row row) {
+            for (int i = 0; i < refinements.length; i++) {
+                int column = refinementColumns[i];
+                if (column >= 0 && !refinements[i].accepts(row.geometries[column])) {
+                    row.rejected = true;
+                    return;
+                }
+            }
+        }
+
+        boolean next() throws SQLException {
+            if (closed) {
+                return false;
+            }
+            try {
+                do {
+                    fetch();
+                    Future<Row> row = queue.poll();
+                    if (row == null) {
+                        current = null;
+                        if (failure != null) {
+                            throw failure;
+                        }
+                        return false;
+                    }
+                    current = row.get();
+                } while (current.rejected);
+                return true;
+            } catch (InterruptedException e) {
+                throw new SQLException("Interrupted while waiting for the next row", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                }
+                throw new SQLException("Failed to read the next row", cause);
+            }
+        }
+
+        void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Future<Row> row : queue) {
+                row.cancel(false);
+            }
+            queue.clear();
+            current = null;
+            rs.close();
+        }
+
+        int findColumn(String label) throws SQLException {
+            Integer column = columns.get(label.toUpperCase());
+            if (column == null) {
+                throw new SQLException("Unknown column " + label);
+            }
+            return column;
+        }
+
+        Object getValue(int column) throws SQLException {
+            if (current == null) {
+                throw new SQLException("The result set is not positioned on a row");
+            }
+            if (column < 1 || column > current.values.length) {
+                throw new SQLException("Invalid column index " + column);
+            }
+            Object value = current.values[column - 1];
+            wasNull = value == null;
+            return value;
+        }
+
+        Geometry getGeometry(int column, GeometryFactory factory) throws IOException,
+                SQLException {
+            Object value = getValue(column);
+            if (!geometryColumns[column - 1] || !isEquivalent(current.factory, factory)) {
+                try {
+                    return decode((byte[]) value, factory, decimationTolerance, clipEnvelope,
+                            force2D);
+                } catch (Exception e) {
+                    throw new DataSourceException("An exception occurred while parsing WKB data",
+                            e);
+                }
+            }
+            if (current.failure != null) {
+                throw new DataSourceException("An exception occurred while parsing WKB data",
+                        current.failure);
+            }
+            return current.geometries[column - 1];
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = DecoratingDataSource.invokeObjectMethod(proxy, rs, method, args);
+            if (result != null) {
+                return result;
+            }
+
+            String name = method.getName();
+            if ("next".equals(name)) {
+                return next();
+            } else if ("close".equals(name)) {
+                close();
+                return null;
+            } else if ("isClosed".equals(name)) {
+                return closed;
+            } else if ("wasNull".equals(name)) {
+                return wasNull;
+            } else if ("getMetaData".equals(name)) {
+                return metadata;
+            } else if ("getStatement".equals(name)) {
+                return statement;
+            } else if ("findColumn".equals(name)) {
+                return findColumn((String) args[0]);
+            } else if ("getGeometry".equals(name)) {
+                int column = args[0] instanceof String ? findColumn((String) args[0])
+                        : (Integer) args[0];
+                return getGeometry(column, (GeometryFactory) args[1]);
+            } else if (name.startsWith("get") && args != null && args.length > 0
+                    && (args[0] instanceof Integer || args[0] instanceof String)) {
+                int column = args[0] instanceof String ? findColumn((String) args[0])
+                        : (Integer) args[0];
+                Class<?> target = method.getReturnType();
+                if (args.length == 2 && args[1] instanceof Class) {
+                    target = (Class<?>) args[1];
+                }
+                return convert(getValue(column), target);
+            }
+            // anything else goes to the result set, note that its cursor is ahead of the rows
+            // handed out by next()
+            return DecoratingDataSource.invoke(rs, method, args);
+        }
+    }
+
+    /**
+     * Converts a fetched value to the type expected by a getter
+     */
+    static Object convert(Object value, Class<?> target) throws SQLException {
+        if (value == null) {
+            if (target == boolean.class) {
+                return Boolean.FALSE;
+            } else if (target.isPrimitive()) {
+                return toNumber(0, target);
+            }
+            return null;
+        }
+        if (target == Object.class || target.isInstance(value)) {
+            return value;
+        }
+
+        if (target == String.class) {
+            return value.toString();
+        } else if (target == InputStream.class && value instanceof byte[]) {
+            return new ByteArrayInputStream((byte[]) value);
+        } else if (target == Reader.class) {
+            return new StringReader(value.toString());
+        } else if (target == boolean.class || target == Boolean.class) {
+            if (value instanceof Number) {
+                return ((Number) value).intValue() != 0;
+            }
+            return "1".equals(value.toString()) || Boolean.parseBoolean(value.toString());
+        } else if (value instanceof java.util.Date) {
+            long time = ((java.util.Date) value).getTime();
+            if (target == Timestamp.class) {
+                return new Timestamp(time);
+            } else if (target == java.sql.Date.class) {
+                return new java.sql.Date(time);
+            } else if (target == Time.class) {
+                return new Time(time);
+            }
+        } else if (target.isPrimitive() || Number.class.isAssignableFrom(target)) {
+            Number number = value instanceof Number ? (Number) value : new BigDecimal(value
+                    .toString().trim());
+            return toNumber(number, target);
+        }
+
+        Object converted = Converters.convert(value, target);
+        if (converted == null) {
+            throw new SQLException("Cannot convert " + value.getClass().getSimpleName() + " to "
+                    + target.getSimpleName());
+        }
+        return converted;
+    }
+
+    static Object toNumber(Number number, Class<?> target) {
+        if (target == int.class || target == Integer.class) {
+            return number.intValue();
+        } else if (target == long.class || target == Long.class) {
+            return number.longValue();
+        } else if (target == double.class || target == Double.class) {
+            return number.doubleValue();
+        } else if (target == float.class || target == Float.class) {
+            return number.floatValue();
+        } else if (target == short.class || target == Short.class) {
+            return number.shortValue();
+        } else if (target == byte.class || target == Byte.class) {
+            return number.byteValue();
+        } else if (target == BigDecimal.class) {
+            return new BigDecimal(number.toString());
+        }
+        return Converters.convert(number, target);
+    }
+
+    static class PipelineThreadFactory implements ThreadFactory {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        final String role;
+
+        PipelineThreadFactory(String role) {
+            this.role = role;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "read-pipeline-" + role + "-"
+                    + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
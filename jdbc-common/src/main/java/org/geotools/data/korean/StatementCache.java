@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Bounded LRU cache of the prepared statements of a single physical connection, keyed by their SQL
+ * text, prefixed by the result set type and concurrency if any. A statement is removed from the
+ * cache while in use and put back when it is closed, so the same SQL can still be open twice on
+ * the connection. The cache does not reference the connection, the statements are prepared by the
+ * caller.
+ */
+class StatementCache {
+
+    static final Logger LOGGER = Logging.getLogger(StatementCache.class);
+
+    final int maxSize;
+
+    final Map<String, PreparedStatement> statements;
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a cached statement for the sql, removing it from the cache, or null if there is none
+     */
+    synchronized PreparedStatement take(String sql) {
+        PreparedStatement ps = statements.remove(sql);
+        if (ps != null && isClosed(ps)) {
+            return null;
+        }
+        return ps;
+    }
+
+    /**
+     * Puts back a statement returned by {@link #take(String)} or prepared after a miss, closing the
+     * least recently used statements over the cache size
+     */
+    void release(String sql, PreparedStatement ps) {
+        List<PreparedStatement> evicted = new ArrayList<PreparedStatement>();
+        synchronized (this) {
+            PreparedStatement previous = statements.put(sql, ps);
+            if (previous != null && previous != ps) {
+                evicted.add(previous);
+            }
+            Iterator<PreparedStatement> it = statements.values().iterator();
+            while (statements.size() > maxSize && it.hasNext()) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+        for (PreparedStatement statement : evicted) {
+            close(statement);
+        }
+    }
+
+    /**
+     * Closes all the cached statements
+     */
+    void clear() {
+        List<PreparedStatement> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<PreparedStatement>(statements.values());
+            statements.clear();
+        }
+        for (PreparedStatement statement : evicted) {
+            close(statement);
+        }
+    }
+
+    synchronized int size() {
+        return statements.size();
+    }
+
+    static boolean isClosed(PreparedStatement ps) {
+        try {
+            return ps.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    static void close(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed to close a cached statement", e);
+        }
+    }
+}
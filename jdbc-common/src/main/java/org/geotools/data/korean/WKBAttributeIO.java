@@ -0,0 +1,301 @@
+package org.geotools.data.korean;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.geotools.data.DataSourceException;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.InputStreamInStream;
+import org.locationtech.jts.io.WKBWriter;
+
+/**
+ * An attribute IO implementation that can manage the WKB
+ * 
+ * @author Andrea Aime
+ * 
+ * @source $URL: http://svn.osgeo.org/geotools/branches/2.7.x/modules/plugin/jdbc/jdbc-postgis/src/main
+ *         /java/org/geotools/data/postgis/WKBAttributeIO.java $
+ * @since 2.4.1
+ */
+public class WKBAttributeIO {
+
+    WKBReader wkbr;
+
+    GeometryFactory gf;
+
+    boolean streaming = false;
+
+    boolean lazy = false;
+
+    double decimationTolerance = 0;
+
+    Envelope clipEnvelope;
+
+    boolean force2D = false;
+
+    boolean points = false;
+
+    final boolean kairosTypes;
+
+    ChunkedInputStream chunkedStream = new ChunkedInputStream();
+
+    InputStreamInStream streamInStream = new InputStreamInStream(chunkedStream);
+
+    public WKBAttributeIO() {
+        this(new GeometryFactory());
+    }
+
+    public WKBAttributeIO(GeometryFactory gf) {
+        this(gf, false);
+    }
+
+    /**
+     * Creates a reader, of the Kairos geometries if <code>kairosTypes</code> is true, see
+     * {@link WKBReader#WKBReader(GeometryFactory, boolean)}
+     */
+    public WKBAttributeIO(GeometryFactory gf, boolean kairosTypes) {
+        this.gf = gf;
+        this.kairosTypes = kairosTypes;
+        wkbr = new WKBReader(gf, kairosTypes);
+    }
+
+    /**
+     * Sets the factory used to build geometries, the reader is rebuilt only when the factory
+     * actually changes, so this can be called for every decoded row.
+     */
+    public void setGeometryFactory(GeometryFactory gf) {
+        if (gf != this.gf) {
+            this.gf = gf;
+            wkbr = new WKBReader(gf, kairosTypes);
+            wkbr.setDecimationTolerance(decimationTolerance);
+            wkbr.setClipEnvelope(clipEnvelope);
+            wkbr.setForce2D(force2D);
+        }
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Enables decoding straight from {@link ResultSet#getBinaryStream} through a reusable chunk
+     * buffer, instead of materializing every geometry as a byte array first.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Enables returning {@link LazyWKBGeometry} instances, that decode the WKB only when the
+     * coordinates are first accessed. Streaming is ignored in this mode, the raw bytes are needed.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isForce2D() {
+        return force2D;
+    }
+
+    /**
+     * Enables decoding the X and Y ordinates only, see {@link WKBReader#setForce2D(boolean)}
+     */
+    public void setForce2D(boolean force2D) {
+        this.force2D = force2D;
+        wkbr.setForce2D(force2D);
+    }
+
+    public boolean isPoints() {
+        return points;
+    }
+
+    /**
+     * Enables the point fast path, see {@link WKBReader#readPoint(byte[], GeometryFactory, boolean, boolean)}.
+     * The geometries are always read as byte arrays in this mode, neither streamed nor lazy.
+     */
+    public void setPoints(boolean points) {
+        this.points = points;
+    }
+
+    /**
+     * Sets the decimation tolerance and clip envelope used while decoding, see
+     * {@link WKBReader#setDecimationTolerance(double)} and
+     * {@link WKBReader#setClipEnvelope(Envelope)}
+     */
+    public void setDecimation(double tolerance, Envelope clip) {
+        this.decimationTolerance = tolerance;
+        this.clipEnvelope = clip;
+        wkbr.setDecimationTolerance(tolerance);
+        wkbr.setClipEnvelope(clip);
+    }
+
+    /**
+     * This method will convert a Well Known Binary representation to a JTS Geometry object.
+     * 
+     * @param wkb te wkb encoded byte array
+     * 
+     * @return a JTS Geometry object that is equivalent to the WTB representation passed in by param wkb
+     * 
+     * @throws IOException if more than one geometry object was found in the WTB representation, or if the parser could not parse the WKB
+     *         representation.
+     */
+    private Geometry wkb2Geometry(byte[] wkbBytes) throws IOException {
+        if (wkbBytes == null)
+            return null;
+        try {
+            if (points) {
+                Point point = WKBReader.readPoint(wkbBytes, gf, force2D, kairosTypes);
+                if (point != null) {
+                    return point;
+                }
+            }
+            if (lazy) {
+                return new LazyWKBGeometry(wkbBytes, gf, kairosTypes);
+            }
+            return wkbr.read(wkbBytes);
+        } catch (Exception e) {
+            throw new DataSourceException("An exception occurred while parsing WKB data", e);
+        }
+    }
+
+    /**
+     * Decodes a WKB geometry incrementally from the given stream, the stream is closed afterwards.
+     */
+    private Geometry wkb2Geometry(InputStream wkbStream) throws IOException {
+        if (wkbStream == null)
+            return null;
+        try {
+            chunkedStream.setSource(wkbStream);
+            return wkbr.read(streamInStream);
+        } catch (Exception e) {
+            throw new DataSourceException("An exception occurred while parsing WKB data", e);
+        } finally {
+            chunkedStream.setSource(null);
+            wkbStream.close();
+        }
+    }
+
+    /**
+     * @see org.geotools.data.jdbc.attributeio.AttributeIO#read(java.sql.ResultSet, int)
+     */
+    public Object read(ResultSet rs, String columnName) throws IOException {
+        try {
+            if (streaming && !lazy && !points) {
+                return wkb2Geometry(rs.getBinaryStream(columnName));
+            }
+            byte bytes[] = rs.getBytes(columnName);
+            if (bytes == null)
+                return null;
+            return wkb2Geometry(bytes);
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * @see org.geotools.data.jdbc.attributeio.AttributeIO#read(java.sql.ResultSet, int)
+     */
+    public Object read(ResultSet rs, int columnIndex) throws IOException {
+        try {
+            if (streaming && !lazy && !points) {
+                return wkb2Geometry(rs.getBinaryStream(columnIndex));
+            }
+            byte bytes[] = rs.getBytes(columnIndex);
+            if (bytes == null)
+                return null;
+            return wkb2Geometry(bytes);
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * @see org.geotools.data.jdbc.attributeio.AttributeIO#write(java.sql.PreparedStatement, int, java.lang.Object)
+     */
+    public void write(PreparedStatement ps, int position, Object value) throws IOException {
+        try {
+            if (value == null) {
+                ps.setNull(position, Types.OTHER);
+            } else {
+                ps.setBytes(position, new WKBWriter().write((Geometry) value));
+            }
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+
+    }
+
+    /**
+     * Reads from a JDBC binary stream through a reusable chunk buffer. Every read request is
+     * satisfied completely, as {@link InputStreamInStream} expects, a request past the end of the
+     * stream fails so that a corrupt WKB count does not read on forever.
+     */
+    static class ChunkedInputStream extends InputStream {
+
+        static final int CHUNK_SIZE = 8192;
+
+        final byte[] chunk = new byte[CHUNK_SIZE];
+
+        InputStream source;
+
+        int position = 0;
+
+        int limit = 0;
+
+        void setSource(InputStream source) {
+            this.source = source;
+            this.position = 0;
+            this.limit = 0;
+        }
+
+        private boolean fill() throws IOException {
+            position = 0;
+            limit = source.read(chunk, 0, chunk.length);
+            if (limit < 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (position >= limit) {
+                if (!fill()) {
+                    return -1;
+                }
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int total = 0;
+            while (total < len) {
+                if (position >= limit && !fill()) {
+                    break;
+                }
+                int count = Math.min(len - total, limit - position);
+                System.arraycopy(chunk, position, b, off + total, count);
+                position += count;
+                total += count;
+            }
+            if (total < len) {
+                throw new EOFException("Unexpected end of the WKB stream");
+            }
+            return total;
+        }
+    }
+}
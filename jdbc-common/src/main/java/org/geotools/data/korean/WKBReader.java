@@ -0,0 +1,776 @@
+/*
+ *  GeoTools - The Open Source Java GIS Toolkit
+ *  http://geotools.org
+ * 
+ *  (C) 2015, Open Source Geospatial Foundation (OSGeo)
+ * 
+ * The JTS Topology Suite is a collection of Java classes that
+ * implement the fundamental operations required to validate a given
+ * geo-spatial data set to a known topological specification.
+ *
+ * Copyright (C) 2001 Vivid Solutions
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * For more information, contact:
+ *
+ *     Vivid Solutions
+ *     Suite #1A
+ *     2328 Government Street
+ *     Victoria BC  V8T 5G5
+ *     Canada
+ *
+ *     (250)385-6040
+ *     www.vividsolutions.com
+ */
+package org.geotools.data.korean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFactory;
+import org.locationtech.jts.geom.CoordinateSequences;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.impl.CoordinateArraySequenceFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.io.ByteOrderDataInStream;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.InStream;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBConstants;
+import org.locationtech.jts.io.WKBWriter;
+
+/**
+ * Reads a {@link Geometry}from a byte stream in Well-Known Binary format. Supports use of an {@link InStream}, which allows easy use with arbitrary
+ * byte stream sources.
+ * <p>
+ * This class reads the format describe in {@link WKBWriter}. It also partially handles the <b>Extended WKB</b> format used by PostGIS, by parsing and
+ * storing SRID values. The ISO type codes (1000 to 3007) and the EWKB Z and M flags are both understood, measures are kept as such in the
+ * sequences. The Kairos specific codes (1001 to 1006 for the 2D types, 235 for polygons) clash with the ISO Z codes, they are only read as such
+ * by a reader built for Kairos. The reader repairs structurally-invalid input (specifically, LineStrings and
+ * LinearRings which contain too few points have vertices added, and non-closed rings are closed).
+ * <p>
+ * Ordinates are decoded in bulk straight into {@link PackedCoordinateSequence.Double} arrays, no {@link org.locationtech.jts.geom.Coordinate} is
+ * created per vertex. When reading from a byte array the ordinates of a whole sequence are copied through a byte order aware {@link ByteBuffer} view.
+ * In {@link #setForce2D(boolean) 2D mode} the Z ordinates are skipped without being decoded. When the geometry factory has its own coordinate
+ * sequence factory, other than the JTS default ones, the packed sequences are copied into sequences of that factory.
+ * <p>
+ * Counts are checked against the bytes left in a byte array, and arrays read from a stream grow as the ordinates arrive, so that a corrupt count
+ * fails with a {@link ParseException} instead of allocating a huge array.
+ * <p>
+ * This class is designed to support reuse of a single instance to read multiple geometries. This class is not thread-safe; each thread should create
+ * its own instance.
+ * 
+ * @see WKBWriter for a formal format specification
+ */
+public class WKBReader {
+    /**
+     * Converts a hexadecimal string to a byte array. The hexadecimal digit symbols are case-insensitive.
+     * 
+     * @param hex a string containing hex digits
+     * @return an array of bytes with the value of the hex string
+     */
+    public static byte[] hexToBytes(String hex) {
+        int byteLen = hex.length() / 2;
+        byte[] bytes = new byte[byteLen];
+
+        for (int i = 0; i < hex.length() / 2; i++) {
+            int i2 = 2 * i;
+            if (i2 + 1 > hex.length())
+                throw new IllegalArgumentException("Hex string has odd length");
+
+            int nib1 = hexToInt(hex.charAt(i2));
+            int nib0 = hexToInt(hex.charAt(i2 + 1));
+            byte b = (byte) ((nib1 << 4) + (byte) nib0);
+            bytes[i] = b;
+        }
+        return bytes;
+    }
+
+    private static int hexToInt(char hex) {
+        int nib = Character.digit(hex, 16);
+        if (nib < 0)
+            throw new IllegalArgumentException("Invalid hex digit: '" + hex + "'");
+        return nib;
+    }
+
+    /**
+     * Returns the OGC geometry type code (1 to 7) of a WKB geometry, mapping the ISO codes and, if asked to, the Kairos specific codes to the
+     * standard ones
+     * 
+     * @param bytes the WKB geometry
+     * @param kairosTypes true if 1001 to 1006 and 235 are the Kairos codes rather than the ISO Z ones
+     * @return the geometry type code, from {@link WKBConstants#wkbPoint} to {@link WKBConstants#wkbGeometryCollection}
+     * @throws ParseException if the WKB type is unknown
+     */
+    public static int readGeometryType(byte[] bytes, boolean kairosTypes) throws ParseException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            buffer.order(buffer.get() == WKBConstants.wkbNDR ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            return decodeType(buffer.getInt(), kairosTypes) & TYPE_MASK;
+        } catch (RuntimeException e) {
+            throw new ParseException("Invalid WKB: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the envelope of a WKB geometry scanning its ordinates, without building any geometry or coordinate object
+     * 
+     * @param bytes the WKB geometry
+     * @param kairosTypes true if 1001 to 1006 and 235 are the Kairos codes rather than the ISO Z ones
+     * @return the envelope, a null envelope if the geometry is empty
+     * @throws ParseException if the WKB is ill-formed
+     */
+    public static Envelope readEnvelope(byte[] bytes, boolean kairosTypes) throws ParseException {
+        Envelope envelope = new Envelope();
+        try {
+            scanEnvelope(ByteBuffer.wrap(bytes), envelope, kairosTypes);
+        } catch (RuntimeException e) {
+            throw new ParseException("Invalid WKB: " + e.getMessage());
+        }
+        return envelope;
+    }
+
+    private static void scanEnvelope(ByteBuffer buffer, Envelope envelope, boolean kairosTypes) throws ParseException {
+        buffer.order(buffer.get() == WKBConstants.wkbNDR ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int typeInt = buffer.getInt();
+        int type = decodeType(typeInt, kairosTypes);
+        int dimension = dimension(type);
+        if ((typeInt & EWKB_SRID) != 0) {
+            buffer.getInt();
+        }
+
+        switch (type & TYPE_MASK) {
+        case WKBConstants.wkbPoint:
+            scanOrdinates(buffer, 1, dimension, envelope);
+            break;
+        case WKBConstants.wkbLineString:
+            scanOrdinates(buffer, buffer.getInt(), dimension, envelope);
+            break;
+        case WKBConstants.wkbPolygon:
+            int numRings = buffer.getInt();
+            for (int i = 0; i < numRings; i++) {
+                scanOrdinates(buffer, buffer.getInt(), dimension, envelope);
+            }
+            break;
+        default:
+            int numGeom = buffer.getInt();
+            for (int i = 0; i < numGeom; i++) {
+                scanEnvelope(buffer, envelope, kairosTypes);
+            }
+        }
+    }
+
+    private static void scanOrdinates(ByteBuffer buffer, int size, int dimension, Envelope envelope) {
+        int skip = (dimension - 2) * 8;
+        for (int i = 0; i < size; i++) {
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+            if (skip > 0) {
+                buffer.position(buffer.position() + skip);
+            }
+            // empty points are encoded with NaN ordinates
+            if (!Double.isNaN(x) && !Double.isNaN(y)) {
+                envelope.expandToInclude(x, y);
+            }
+        }
+    }
+
+    /**
+     * Maps the type word to the OGC geometry type, combined with {@link #HAS_Z} and {@link #HAS_M}. The dimensions come from the EWKB flags or
+     * the ISO codes (1000 for Z, 2000 for M, 3000 for ZM), the Kairos codes have their Z flag only.
+     */
+    private static int decodeType(int typeInt, boolean kairosTypes) throws ParseException {
+        int code = typeInt & ~(EWKB_Z | EWKB_M | EWKB_SRID);
+        int flags = ((typeInt & EWKB_Z) != 0 ? HAS_Z : 0) | ((typeInt & EWKB_M) != 0 ? HAS_M : 0);
+        int geometryType;
+        if (kairosTypes && code > 1000 && code <= 1006) {
+            geometryType = code - 1000;
+        } else if (kairosTypes && code == 235) {
+            geometryType = WKBConstants.wkbPolygon;
+        } else {
+            geometryType = code % 1000;
+            switch (code / 1000) {
+            case 0:
+                break;
+            case 1:
+                flags |= HAS_Z;
+                break;
+            case 2:
+                flags |= HAS_M;
+                break;
+            case 3:
+                flags |= HAS_Z | HAS_M;
+                break;
+            default:
+                throw new ParseException("Unknown WKB type " + code);
+            }
+        }
+        if (geometryType < WKBConstants.wkbPoint || geometryType > WKBConstants.wkbGeometryCollection) {
+            throw new ParseException("Unknown WKB type " + code);
+        }
+        return geometryType | flags;
+    }
+
+    /**
+     * Returns the number of ordinates per vertex of a type returned by {@link #decodeType(int, boolean)}
+     */
+    private static int dimension(int type) {
+        return 2 + ((type & HAS_Z) != 0 ? 1 : 0) + ((type & HAS_M) != 0 ? 1 : 0);
+    }
+
+    /**
+     * Decodes a point WKB straight into a packed point, without going through a reader instance. Meant for point layers, where the per geometry
+     * setup of the general reader outweighs the decoding itself.
+     * 
+     * @param bytes the WKB geometry
+     * @param factory the factory used to build the point
+     * @param force2D true if the Z and M ordinates should be skipped
+     * @param kairosTypes true if 1001 to 1006 and 235 are the Kairos codes rather than the ISO Z ones
+     * @return the point, or null if the WKB is not a point
+     */
+    public static Point readPoint(byte[] bytes, GeometryFactory factory, boolean force2D, boolean kairosTypes) {
+        if (bytes.length < 21) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.order(buffer.get() == WKBConstants.wkbNDR ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int typeInt = buffer.getInt();
+        int type;
+        try {
+            type = decodeType(typeInt, kairosTypes);
+        } catch (ParseException e) {
+            return null;
+        }
+        if ((type & TYPE_MASK) != WKBConstants.wkbPoint) {
+            return null;
+        }
+        int dimension = dimension(type);
+        int SRID = (typeInt & EWKB_SRID) != 0 ? buffer.getInt() : 0;
+        if (buffer.remaining() < dimension * 8) {
+            return null;
+        }
+
+        int outputDimension = force2D ? 2 : dimension;
+        int measures = force2D || (type & HAS_M) == 0 ? 0 : 1;
+        double[] ordinates = new double[outputDimension];
+        for (int i = 0; i < outputDimension; i++) {
+            ordinates[i] = buffer.getDouble();
+        }
+        PrecisionModel precisionModel = factory.getPrecisionModel();
+        if (!precisionModel.isFloating()) {
+            ordinates[0] = precisionModel.makePrecise(ordinates[0]);
+            ordinates[1] = precisionModel.makePrecise(ordinates[1]);
+        }
+        CoordinateSequence sequence = new PackedCoordinateSequence.Double(ordinates, outputDimension, measures);
+        CoordinateSequenceFactory sequenceFactory = sequenceFactory(factory);
+        Point point = factory.createPoint(sequenceFactory == PACKED_FACTORY ? sequence : sequenceFactory.create(sequence));
+        if (SRID != 0) {
+            point.setSRID(SRID);
+        }
+        return point;
+    }
+
+    private static final String INVALID_GEOM_TYPE_MSG = "Invalid geometry type encountered in ";
+
+    // flags of the EWKB type word
+    private static final int EWKB_Z = 0x80000000;
+
+    private static final int EWKB_M = 0x40000000;
+
+    private static final int EWKB_SRID = 0x20000000;
+
+    // the geometry type and the flags of the decoded types, see decodeType
+    private static final int TYPE_MASK = 0xff;
+
+    private static final int HAS_Z = 0x100;
+
+    private static final int HAS_M = 0x200;
+
+    private static final CoordinateSequenceFactory PACKED_FACTORY = PackedCoordinateSequenceFactory.DOUBLE_FACTORY;
+
+    // initial size of the ordinate arrays read from a stream, they grow as the ordinates arrive
+    private static final int STREAM_CHUNK = 4096;
+
+    /**
+     * Returns the sequence factory of the geometry factory, or the packed one when it is a JTS default one
+     */
+    private static CoordinateSequenceFactory sequenceFactory(GeometryFactory factory) {
+        CoordinateSequenceFactory sequenceFactory = factory.getCoordinateSequenceFactory();
+        if (sequenceFactory == null || sequenceFactory instanceof CoordinateArraySequenceFactory
+                || sequenceFactory == PackedCoordinateSequenceFactory.DOUBLE_FACTORY) {
+            return PACKED_FACTORY;
+        }
+        return sequenceFactory;
+    }
+
+    private GeometryFactory factory;
+
+    // the factory of the sequences built, the packed one unless the geometry factory has its own
+    private CoordinateSequenceFactory sequenceFactory;
+
+    private PrecisionModel precisionModel;
+
+    private boolean makePrecise;
+
+    // default dimension - will be set on read
+    private int inputDimension = 2;
+
+    // dimension of the sequences built, lower than the input one when the Z and M ordinates are skipped
+    private int outputDimension = 2;
+
+    // number of measures of the sequences built
+    private int outputMeasures = 0;
+
+    // true if 1001 to 1006 and 235 are the Kairos codes rather than the ISO Z ones
+    private final boolean kairosTypes;
+
+    // true if only the X and Y ordinates should be decoded
+    private boolean force2D = false;
+
+    private boolean hasSRID = false;
+
+    /**
+     * true if structurally invalid input should be reported rather than repaired. At some point this could be made client-controllable.
+     */
+    private boolean isStrict = false;
+
+    private ByteOrderDataInStream dis = new ByteOrderDataInStream();
+
+    // the byte array being read, null when reading from an InStream
+    private ByteBuffer buffer;
+
+    // vertices closer than this to the previous kept vertex are dropped while reading
+    private double decimationTolerance = 0;
+
+    // parts of multi geometries falling outside of this envelope are dropped while reading
+    private Envelope clipEnvelope;
+
+    public WKBReader() {
+        this(new GeometryFactory());
+    }
+
+    public WKBReader(GeometryFactory geometryFactory) {
+        this(geometryFactory, false);
+    }
+
+    /**
+     * Creates a reader, of the Kairos geometries if <code>kairosTypes</code> is true. Kairos encodes the 2D types as 1001 to 1006, and some
+     * polygons as 235, the other readers reject 235 and read 1001 to 1006 as the ISO Z types.
+     */
+    public WKBReader(GeometryFactory geometryFactory, boolean kairosTypes) {
+        this.factory = geometryFactory;
+        this.kairosTypes = kairosTypes;
+        sequenceFactory = sequenceFactory(factory);
+        precisionModel = factory.getPrecisionModel();
+        makePrecise = !precisionModel.isFloating();
+    }
+
+    public GeometryFactory getGeometryFactory() {
+        return factory;
+    }
+
+    public boolean isKairosTypes() {
+        return kairosTypes;
+    }
+
+    public double getDecimationTolerance() {
+        return decimationTolerance;
+    }
+
+    /**
+     * Sets the decimation tolerance, usually the size of a pixel. While reading, line and ring vertices closer than the tolerance (on both axes) to
+     * the previous kept vertex are dropped. The end points are always kept, and a sequence is left untouched if decimation would make it
+     * structurally invalid. Zero (the default) disables decimation.
+     */
+    public void setDecimationTolerance(double decimationTolerance) {
+        this.decimationTolerance = decimationTolerance;
+    }
+
+    public Envelope getClipEnvelope() {
+        return clipEnvelope;
+    }
+
+    /**
+     * Sets the clip envelope, usually the query area expanded by a few pixels. While reading, the parts of multi geometries and collections not
+     * intersecting it are dropped. Null (the default) disables clipping.
+     */
+    public void setClipEnvelope(Envelope clipEnvelope) {
+        this.clipEnvelope = clipEnvelope;
+    }
+
+    public boolean isForce2D() {
+        return force2D;
+    }
+
+    /**
+     * Sets whether only the X and Y ordinates are decoded. When true the Z and M ordinates are skipped in the byte stream and the geometries read
+     * are always two dimensional.
+     */
+    public void setForce2D(boolean force2D) {
+        this.force2D = force2D;
+    }
+
+    /**
+     * Reads a single {@link Geometry} in WKB format from a byte array.
+     * 
+     * @param bytes the byte array to read from
+     * @return the geometry read
+     * @throws ParseException if the WKB is ill-formed
+     */
+    public Geometry read(byte[] bytes) throws ParseException {
+        buffer = ByteBuffer.wrap(bytes);
+        try {
+            return readGeometry();
+        } catch (IOException ex) {
+            throw new RuntimeException("Unexpected IOException caught: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            // buffer underflows and the like
+            throw new ParseException("Invalid WKB: " + ex.getMessage());
+        } finally {
+            buffer = null;
+        }
+    }
+
+    /**
+     * Reads a {@link Geometry} in binary WKB format from an {@link InStream}.
+     * 
+     * @param is the stream to read from
+     * @return the Geometry read
+     * @throws IOException if the underlying stream creates an error
+     * @throws ParseException if the WKB is ill-formed
+     */
+    public Geometry read(InStream is) throws IOException, ParseException {
+        buffer = null;
+        dis.setInStream(is);
+        try {
+            return readGeometry();
+        } catch (RuntimeException ex) {
+            // negative array sizes and the like
+            throw new ParseException("Invalid WKB: " + ex.getMessage());
+        }
+    }
+
+    private Geometry readGeometry() throws IOException, ParseException {
+        // determine byte order
+        byte byteOrderWKB = readByte();
+        // always set byte order, since it may change from geometry to geometry
+        setOrder(byteOrderWKB == WKBConstants.wkbNDR);
+
+        int typeInt = readInt();
+        int type = decodeType(typeInt, kairosTypes);
+
+        // determine if Z and M values are present
+        inputDimension = dimension(type);
+        outputDimension = force2D ? 2 : inputDimension;
+        outputMeasures = force2D || (type & HAS_M) == 0 ? 0 : 1;
+
+        // determine if SRIDs are present
+        hasSRID = (typeInt & EWKB_SRID) != 0;
+
+        int SRID = 0;
+        if (hasSRID) {
+            SRID = readInt();
+        }
+
+        Geometry geom = null;
+        switch (type & TYPE_MASK) {
+        case WKBConstants.wkbPoint:
+            geom = readPoint();
+            break;
+        case WKBConstants.wkbLineString:
+            geom = readLineString();
+            break;
+        case WKBConstants.wkbPolygon:
+            geom = readPolygon();
+            break;
+        case WKBConstants.wkbMultiPoint:
+            geom = readMultiPoint();
+            break;
+        case WKBConstants.wkbMultiLineString:
+            geom = readMultiLineString();
+            break;
+        case WKBConstants.wkbMultiPolygon:
+            geom = readMultiPolygon();
+            break;
+        default:
+            geom = readGeometryCollection();
+        }
+        setSRID(geom, SRID);
+        return geom;
+    }
+
+    private void setOrder(boolean littleEndian) {
+        if (buffer != null) {
+            buffer.order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        } else {
+            dis.setOrder(littleEndian ? ByteOrderValues.LITTLE_ENDIAN : ByteOrderValues.BIG_ENDIAN);
+        }
+    }
+
+    private byte readByte() throws IOException {
+        return buffer != null ? buffer.get() : dis.readByte();
+    }
+
+    private int readInt() throws IOException {
+        return buffer != null ? buffer.getInt() : dis.readInt();
+    }
+
+    /**
+     * Sets the SRID, if it was specified in the WKB
+     * 
+     * @param g the geometry to update
+     * @return the geometry with an updated SRID value, if required
+     */
+    private Geometry setSRID(Geometry g, int SRID) {
+        if (SRID != 0)
+            g.setSRID(SRID);
+        return g;
+    }
+
+    private Point readPoint() throws IOException, ParseException {
+        CoordinateSequence pts = readCoordinateSequence(1, 1);
+        return factory.createPoint(pts);
+    }
+
+    private LineString readLineString() throws IOException, ParseException {
+        int size = readInt();
+        CoordinateSequence pts = readCoordinateSequenceLineString(size);
+        return factory.createLineString(pts);
+    }
+
+    private LinearRing readLinearRing() throws IOException, ParseException {
+        int size = readInt();
+        CoordinateSequence pts = readCoordinateSequenceRing(size);
+        return factory.createLinearRing(pts);
+    }
+
+    private Polygon readPolygon() throws IOException, ParseException {
+        // a ring is at least its point count
+        int numRings = checkCount(readInt(), 4);
+        if (numRings == 0)
+            return factory.createPolygon();
+
+        LinearRing shell = readLinearRing();
+        List<LinearRing> holes = new ArrayList<LinearRing>(Math.min(numRings - 1, 16));
+        for (int i = 0; i < numRings - 1; i++) {
+            holes.add(readLinearRing());
+        }
+        return factory.createPolygon(shell, holes.toArray(new LinearRing[holes.size()]));
+    }
+
+    private MultiPoint readMultiPoint() throws IOException, ParseException {
+        List<Geometry> geoms = readParts(Point.class, "MultiPoint");
+        return factory.createMultiPoint(geoms.toArray(new Point[geoms.size()]));
+    }
+
+    private MultiLineString readMultiLineString() throws IOException, ParseException {
+        List<Geometry> geoms = readParts(LineString.class, "MultiLineString");
+        return factory.createMultiLineString(geoms.toArray(new LineString[geoms.size()]));
+    }
+
+    private MultiPolygon readMultiPolygon() throws IOException, ParseException {
+        List<Geometry> geoms = readParts(Polygon.class, "MultiPolygon");
+        return factory.createMultiPolygon(geoms.toArray(new Polygon[geoms.size()]));
+    }
+
+    private GeometryCollection readGeometryCollection() throws IOException, ParseException {
+        List<Geometry> geoms = readParts(Geometry.class, "GeometryCollection");
+        return factory.createGeometryCollection(geoms.toArray(new Geometry[geoms.size()]));
+    }
+
+    /**
+     * Reads the parts of a multi geometry, dropping the ones outside of the clip envelope
+     */
+    private List<Geometry> readParts(Class<? extends Geometry> partType, String multiType) throws IOException, ParseException {
+        // a part is at least its byte order and type
+        int numGeom = checkCount(readInt(), 5);
+        List<Geometry> geoms = new ArrayList<Geometry>(Math.min(numGeom, 16));
+        for (int i = 0; i < numGeom; i++) {
+            Geometry g = readGeometry();
+            if (!partType.isInstance(g))
+                throw new ParseException(INVALID_GEOM_TYPE_MSG + multiType);
+            if (clipEnvelope == null || clipEnvelope.intersects(g.getEnvelopeInternal())) {
+                geoms.add(g);
+            }
+        }
+        return geoms;
+    }
+
+    /**
+     * Reads a sequence, decimating it if a tolerance is set and the result has at least <code>minSize</code> vertices
+     */
+    private CoordinateSequence readCoordinateSequence(int size, int minSize) throws IOException, ParseException {
+        checkCount(size, inputDimension * 8);
+        if (size > Integer.MAX_VALUE / inputDimension) {
+            throw new ParseException("Invalid WKB: too many points " + size);
+        }
+        double[] ordinates = buffer != null ? readOrdinates(size) : readStreamOrdinates(size);
+        makePrecise(ordinates);
+        if (decimationTolerance > 0 && size > minSize) {
+            ordinates = decimate(ordinates, minSize);
+        }
+        CoordinateSequence sequence = new PackedCoordinateSequence.Double(ordinates, outputDimension, outputMeasures);
+        return sequenceFactory == PACKED_FACTORY ? sequence : sequenceFactory.create(sequence);
+    }
+
+    /**
+     * Checks that the count is not negative, and when reading a byte array that the bytes left can hold that many items of the minimum size
+     */
+    private int checkCount(int count, int minBytes) throws ParseException {
+        if (count < 0 || (buffer != null && (long) count * minBytes > buffer.remaining())) {
+            throw new ParseException("Invalid WKB: count " + count + " exceeds the bytes left");
+        }
+        return count;
+    }
+
+    /**
+     * Drops the vertices closer than the tolerance to the previous kept one, the first and last vertices are always kept
+     */
+    private double[] decimate(double[] ordinates, int minSize) {
+        final int dim = outputDimension;
+        final int size = ordinates.length / dim;
+        final double tolerance = decimationTolerance;
+
+        // first pass, count the vertices to keep
+        int kept = 2;
+        double lastX = ordinates[0];
+        double lastY = ordinates[1];
+        for (int i = 1; i < size - 1; i++) {
+            double x = ordinates[i * dim];
+            double y = ordinates[i * dim + 1];
+            if (Math.abs(x - lastX) > tolerance || Math.abs(y - lastY) > tolerance) {
+                kept++;
+                lastX = x;
+                lastY = y;
+            }
+        }
+        if (kept == size || kept < minSize) {
+            return ordinates;
+        }
+
+        // second pass, copy them
+        double[] result = new double[kept * dim];
+        System.arraycopy(ordinates, 0, result, 0, dim);
+        int target = dim;
+        lastX = ordinates[0];
+        lastY = ordinates[1];
+        for (int i = 1; i < size - 1; i++) {
+            double x = ordinates[i * dim];
+            double y = ordinates[i * dim + 1];
+            if (Math.abs(x - lastX) > tolerance || Math.abs(y - lastY) > tolerance) {
+                System.arraycopy(ordinates, i * dim, result, target, dim);
+                target += dim;
+                lastX = x;
+                lastY = y;
+            }
+        }
+        System.arraycopy(ordinates, (size - 1) * dim, result, target, dim);
+        return result;
+    }
+
+    /**
+     * Reads the ordinates of a sequence from the byte array, skipping the ones beyond the output dimension
+     */
+    private double[] readOrdinates(int size) {
+        final int inDim = inputDimension;
+        final int outDim = outputDimension;
+        double[] ordinates = new double[size * outDim];
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        if (inDim == outDim) {
+            doubles.get(ordinates);
+        } else {
+            for (int i = 0, j = 0; i < size; i++) {
+                ordinates[j++] = doubles.get(i * inDim);
+                ordinates[j++] = doubles.get(i * inDim + 1);
+            }
+        }
+        buffer.position(buffer.position() + size * inDim * 8);
+        return ordinates;
+    }
+
+    /**
+     * Reads the ordinates of a sequence from the stream, skipping the ones beyond the output dimension. The array grows as the ordinates arrive,
+     * so a corrupt size ends the stream before it is allocated.
+     */
+    private double[] readStreamOrdinates(int size) throws IOException {
+        final int inDim = inputDimension;
+        final int outDim = outputDimension;
+        final int length = size * outDim;
+        double[] ordinates = new double[Math.min(length, STREAM_CHUNK)];
+        for (int i = 0, k = 0; i < size; i++) {
+            if (k + outDim > ordinates.length) {
+                ordinates = Arrays.copyOf(ordinates, (int) Math.min(length, 2L * ordinates.length));
+            }
+            for (int j = 0; j < inDim; j++) {
+                double ordinate = dis.readDouble();
+                if (j < outDim) {
+                    ordinates[k++] = ordinate;
+                }
+            }
+        }
+        return ordinates;
+    }
+
+    /**
+     * Makes the X and Y ordinates precise according to the precision model in use, when it is not floating
+     */
+    private void makePrecise(double[] ordinates) {
+        if (makePrecise) {
+            final int outDim = outputDimension;
+            for (int i = 0; i < ordinates.length; i += outDim) {
+                ordinates[i] = precisionModel.makePrecise(ordinates[i]);
+                ordinates[i + 1] = precisionModel.makePrecise(ordinates[i + 1]);
+            }
+        }
+    }
+
+    private CoordinateSequence readCoordinateSequenceLineString(int size) throws IOException, ParseException {
+        CoordinateSequence seq = readCoordinateSequence(size, 2);
+        if (isStrict)
+            return seq;
+        if (seq.size() == 0 || seq.size() >= 2)
+            return seq;
+        return CoordinateSequences.extend(sequenceFactory, seq, 2);
+    }
+
+    private CoordinateSequence readCoordinateSequenceRing(int size) throws IOException, ParseException {
+        CoordinateSequence seq = readCoordinateSequence(size, 4);
+        if (isStrict)
+            return seq;
+        if (CoordinateSequences.isRing(seq))
+            return seq;
+        return CoordinateSequences.ensureValidRing(sequenceFactory, seq);
+    }
+
+}
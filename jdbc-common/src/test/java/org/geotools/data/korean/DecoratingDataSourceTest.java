@@ -0,0 +1,297 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DecoratingDataSourceTest {
+
+    Physical physical;
+
+    LinkedList<Connection> connections;
+
+    DecoratingDataSource dataSource;
+
+    List<String> events;
+
+    @Before
+    public void setUp() {
+        physical = new Physical();
+        connections = new LinkedList<Connection>();
+        dataSource = new DecoratingDataSource(dataSource());
+        events = new ArrayList<String>();
+        dataSource.addTransactionListener(new DecoratingDataSource.TransactionListener() {
+            public void committed(Connection cx) {
+                events.add("committed");
+            }
+
+            public void rolledBack(Connection cx) {
+                events.add("rolledBack");
+            }
+        });
+    }
+
+    @Test
+    public void testCacheDisabled() throws Exception {
+        connections.add(physical.connection());
+        Connection cx = dataSource.getConnection();
+        PreparedStatement ps = cx.prepareStatement("select 1");
+        ps.close();
+        cx.prepareStatement("select 1").close();
+
+        assertEquals(2, physical.prepared);
+        assertTrue(ps.isClosed());
+        assertEquals(0, dataSource.getStatementCacheHits());
+        assertEquals(0, dataSource.getStatementCacheMisses());
+    }
+
+    @Test
+    public void testStatementReuse() throws Exception {
+        dataSource.setStatementCacheSize(2);
+        connections.add(physical.connection());
+        Connection cx = dataSource.getConnection();
+
+        PreparedStatement ps = cx.prepareStatement("select 1");
+        assertSame(cx, ps.getConnection());
+        ps.close();
+        // a released statement stays open on the physical connection
+        assertFalse(ps.isClosed());
+        // closing twice releases once
+        ps.close();
+
+        cx.prepareStatement("select 1").close();
+        assertEquals(1, physical.prepared);
+        assertEquals(1, dataSource.getStatementCacheHits());
+        assertEquals(1, dataSource.getStatementCacheMisses());
+        // each use released once
+        assertEquals(2, physical.cleared);
+    }
+
+    @Test
+    public void testStatementInUse() throws Exception {
+        dataSource.setStatementCacheSize(2);
+        connections.add(physical.connection());
+        Connection cx = dataSource.getConnection();
+
+        // the same sql open twice is prepared twice
+        PreparedStatement ps1 = cx.prepareStatement("select 1");
+        PreparedStatement ps2 = cx.prepareStatement("select 1");
+        assertEquals(2, physical.prepared);
+        ps1.close();
+        ps2.close();
+
+        cx.prepareStatement("select 1");
+        assertEquals(2, physical.prepared);
+        assertEquals(1, dataSource.getStatementCacheHits());
+    }
+
+    @Test
+    public void testResultSetTypeKey() throws Exception {
+        dataSource.setStatementCacheSize(2);
+        connections.add(physical.connection());
+        Connection cx = dataSource.getConnection();
+
+        cx.prepareStatement("select 1").close();
+        cx.prepareStatement("select 1", ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY).close();
+        cx.prepareStatement("select 1", ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY).close();
+
+        assertEquals(2, physical.prepared);
+        assertEquals(1, dataSource.getStatementCacheHits());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        dataSource.setStatementCacheSize(1);
+        connections.add(physical.connection());
+        Connection cx = dataSource.getConnection();
+
+        PreparedStatement ps = cx.prepareStatement("select 1");
+        ps.close();
+        cx.prepareStatement("select 2").close();
+
+        assertTrue(ps.isClosed());
+        cx.prepareStatement("select 1").close();
+        assertEquals(3, physical.prepared);
+        assertEquals(0, dataSource.getStatementCacheHits());
+    }
+
+    @Test
+    public void testPhysicalConnectionKey() throws Exception {
+        dataSource.setStatementCacheSize(2);
+        Connection physical1 = physical.connection();
+        Connection physical2 = physical.connection();
+        // the pool hands out the first physical connection twice
+        connections.add(physical1);
+        connections.add(physical1);
+        connections.add(physical2);
+
+        Connection cx1 = dataSource.getConnection();
+        cx1.prepareStatement("select 1").close();
+        Connection cx2 = dataSource.getConnection();
+        assertNotSame(cx1, cx2);
+        cx2.prepareStatement("select 1").close();
+        assertEquals(1, physical.prepared);
+
+        dataSource.getConnection().prepareStatement("select 1").close();
+        assertEquals(2, physical.prepared);
+        assertEquals(1, dataSource.getStatementCacheHits());
+    }
+
+    @Test
+    public void testClosedConnection() throws Exception {
+        dataSource.setStatementCacheSize(2);
+        connections.add(physical.connection());
+        connections.add(physical.connection());
+
+        Connection cx1 = dataSource.getConnection();
+        PreparedStatement ps = cx1.prepareStatement("select 1");
+        ps.close();
+        cx1.close();
+
+        // the cache of the closed connection is closed when the next one is looked up
+        dataSource.getConnection().prepareStatement("select 1").close();
+        assertTrue(ps.isClosed());
+        assertEquals(1, dataSource.statementCaches.size());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        dataSource.setStatementCacheSize(2);
+        connections.add(physical.connection());
+        PreparedStatement ps = dataSource.getConnection().prepareStatement("select 1");
+        ps.close();
+
+        dataSource.close();
+        assertTrue(ps.isClosed());
+        assertTrue(dataSource.statementCaches.isEmpty());
+    }
+
+    @Test
+    public void testTransactionListeners() throws Exception {
+        connections.add(physical.connection());
+        Connection cx = dataSource.getConnection();
+
+        cx.setAutoCommit(false);
+        assertTrue(events.isEmpty());
+        cx.commit();
+        cx.rollback();
+        cx.setAutoCommit(true);
+        cx.close();
+
+        assertEquals(4, events.size());
+        assertEquals("committed", events.get(0));
+        assertEquals("rolledBack", events.get(1));
+        assertEquals("committed", events.get(2));
+        assertEquals("committed", events.get(3));
+    }
+
+    DataSource dataSource() {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { DataSource.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getConnection".equals(method.getName())) {
+                            return connections.removeFirst();
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Hands out the physical connections and statements, counting the prepared statements
+     */
+    static class Physical {
+
+        int prepared;
+
+        int cleared;
+
+        Connection connection() {
+            return (Connection) proxy(Connection.class, new Handler() {
+                Object call(Object proxy, String name, Object[] args) {
+                    if ("prepareStatement".equals(name)) {
+                        prepared++;
+                        return statement();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        PreparedStatement statement() {
+            return (PreparedStatement) proxy(PreparedStatement.class, new Handler() {
+                Object call(Object proxy, String name, Object[] args) {
+                    if ("clearParameters".equals(name)) {
+                        cleared++;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        static Object proxy(Class<?> type, InvocationHandler handler) {
+            return Proxy.newProxyInstance(DecoratingDataSourceTest.class.getClassLoader(),
+                    new Class[] { type }, handler);
+        }
+    }
+
+    /**
+     * Tracks the closed state and identity of a proxied connection or statement
+     */
+    abstract static class Handler implements InvocationHandler {
+
+        boolean closed;
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                closed = true;
+                return null;
+            } else if ("isClosed".equals(name)) {
+                return closed;
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            return call(proxy, name, args);
+        }
+
+        abstract Object call(Object proxy, String name, Object[] args);
+    }
+}
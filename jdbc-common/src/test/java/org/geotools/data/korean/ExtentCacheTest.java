@@ -0,0 +1,110 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Collections;
+
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.JDBCDataStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class ExtentCacheTest {
+
+    SimpleFeatureType featureType;
+
+    ExtentCache cache;
+
+    @Before
+    public void setUp() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("geom", Polygon.class);
+        featureType = tb.buildFeatureType();
+
+        cache = new ExtentCache(60000, null, new JDBCDataStore(), "DOUBLE");
+        cache.put(featureType, Collections.singletonList(new ReferencedEnvelope(0, 1, 0, 1,
+                null)), connection(true));
+    }
+
+    static Connection connection(final boolean autoCommit) {
+        return (Connection) Proxy.newProxyInstance(ExtentCacheTest.class.getClassLoader(),
+                new Class[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getAutoCommit".equals(method.getName())) {
+                            return autoCommit;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testAutoCommitInvalidates() {
+        cache.transactional = true;
+        cache.invalidate(featureType, connection(true));
+        assertNull(cache.get(featureType, connection(true)));
+    }
+
+    @Test
+    public void testCommitInvalidates() {
+        cache.transactional = true;
+        Connection cx = connection(false);
+        cache.invalidate(featureType, cx);
+        cache.invalidate(featureType, cx);
+
+        // the other connections do not see the pending writes, the writing one does
+        assertNotNull(cache.get(featureType, connection(true)));
+        assertNull(cache.get(featureType, cx));
+
+        // and does not cache bounds computed with them
+        cache.put(featureType, Collections.<ReferencedEnvelope> emptyList(), cx);
+        assertEquals(1, cache.get(featureType, connection(true)).size());
+
+        cache.committed(cx);
+        assertNull(cache.get(featureType, connection(true)));
+        assertNull(cache.pending.get(cx));
+    }
+
+    @Test
+    public void testRollbackKeeps() {
+        cache.transactional = true;
+        Connection cx = connection(false);
+        cache.invalidate(featureType, cx);
+        cache.rolledBack(cx);
+        assertNotNull(cache.get(featureType, cx));
+        assertNull(cache.pending.get(cx));
+    }
+
+    @Test
+    public void testNotTransactional() {
+        // without the data source reporting the commits the bounds are dropped right away
+        cache.invalidate(featureType, connection(false));
+        assertNull(cache.get(featureType, connection(true)));
+    }
+}
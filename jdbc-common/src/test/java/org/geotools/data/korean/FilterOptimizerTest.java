@@ -0,0 +1,127 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.Intersects;
+
+public class FilterOptimizerTest {
+
+    static final FilterFactory2 FF = FilterOptimizer.FF;
+
+    static final SimpleFeatureType FEATURE_TYPE;
+    static {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("geom", Polygon.class);
+        tb.add("location", Point.class);
+        FEATURE_TYPE = tb.buildFeatureType();
+    }
+
+    static BBOX bbox(String property, double minX, double minY, double maxX, double maxY) {
+        return FF.bbox(FF.property(property), new ReferencedEnvelope(minX, maxX, minY, maxY,
+                DefaultGeographicCRS.WGS84));
+    }
+
+    static Filter optimize(Filter filter) {
+        return FilterOptimizer.optimize(filter, FEATURE_TYPE);
+    }
+
+    @Test
+    public void testMergeAdjacentBoxes() {
+        Filter optimized = optimize(FF.or(bbox("geom", 0, 0, 10, 10), bbox("geom", 10, 0, 20, 10)));
+        assertTrue(optimized instanceof BBOX);
+        assertEquals(new Envelope(0, 20, 0, 10), FilterOptimizer.envelope(optimized));
+        assertSame(DefaultGeographicCRS.WGS84, FilterOptimizer.crs(optimized));
+    }
+
+    @Test
+    public void testKeepDisjointBoxes() {
+        Filter filter = FF.or(bbox("geom", 0, 0, 10, 10), bbox("geom", 20, 20, 30, 30));
+        assertEquals(2, ((org.opengis.filter.Or) optimize(filter)).getChildren().size());
+    }
+
+    @Test
+    public void testDropContainedBox() {
+        Filter optimized = optimize(FF.or(bbox("geom", 0, 0, 10, 10), bbox("geom", 2, 2, 4, 4)));
+        assertEquals(new Envelope(0, 10, 0, 10), FilterOptimizer.envelope(optimized));
+    }
+
+    @Test
+    public void testDropBoxImpliedBySpatialFilter() {
+        Intersects intersects = FF.intersects(FF.property("geom"),
+                FF.literal(JTS.toGeometry(new Envelope(2, 4, 2, 4))));
+        Filter optimized = optimize(FF.and(bbox("geom", 0, 0, 10, 10), intersects));
+        assertTrue(optimized instanceof Intersects);
+
+        // on another attribute the box is kept
+        optimized = optimize(FF.and(bbox("location", 0, 0, 10, 10), intersects));
+        assertEquals(2, ((org.opengis.filter.And) optimized).getChildren().size());
+    }
+
+    @Test
+    public void testDropSpatialFilterImplyingBox() {
+        Intersects intersects = FF.intersects(FF.property("geom"),
+                FF.literal(JTS.toGeometry(new Envelope(2, 4, 2, 4))));
+        Filter optimized = optimize(FF.or(bbox("geom", 0, 0, 10, 10), intersects));
+        assertTrue(optimized instanceof BBOX);
+    }
+
+    @Test
+    public void testIntersectPointBoxes() {
+        Filter optimized = optimize(FF.and(bbox("location", 0, 0, 10, 10),
+                bbox("location", 5, 5, 20, 20)));
+        assertTrue(optimized instanceof BBOX);
+        assertEquals(new Envelope(5, 10, 5, 10), FilterOptimizer.envelope(optimized));
+        assertSame(DefaultGeographicCRS.WGS84, FilterOptimizer.crs(optimized));
+
+        optimized = optimize(FF.and(bbox("location", 0, 0, 10, 10),
+                bbox("location", 20, 20, 30, 30)));
+        assertSame(Filter.EXCLUDE, optimized);
+
+        // only point attributes, a polygon can intersect both boxes without their intersection
+        optimized = optimize(FF.and(bbox("geom", 0, 0, 10, 10), bbox("geom", 5, 5, 20, 20)));
+        assertEquals(2, ((org.opengis.filter.And) optimized).getChildren().size());
+    }
+
+    @Test
+    public void testGeometryBoxKeepsCRS() {
+        Geometry polygon = JTS.toGeometry(new Envelope(0, 10, 0, 10));
+        polygon.setUserData(DefaultGeographicCRS.WGS84);
+        Filter geometryBox = FF.bbox(FF.property("geom"), FF.literal(polygon));
+        Filter optimized = optimize(FF.or(geometryBox, bbox("geom", 10, 0, 20, 10)));
+        assertTrue(optimized instanceof BBOX);
+        assertEquals(new Envelope(0, 20, 0, 10), FilterOptimizer.envelope(optimized));
+        assertSame(DefaultGeographicCRS.WGS84, FilterOptimizer.crs(optimized));
+    }
+}
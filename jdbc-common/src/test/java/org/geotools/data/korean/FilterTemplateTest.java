@@ -0,0 +1,95 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.JTS;
+import org.junit.Test;
+import org.locationtech.jts.densify.Densifier;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Literal;
+
+public class FilterTemplateTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static Filter filter(String name, Geometry geometry) {
+        return FF.and(FF.equals(FF.property("name"), FF.literal(name)),
+                FF.intersects(FF.property("geom"), FF.literal(geometry)));
+    }
+
+    static Geometry box(double size) {
+        return JTS.toGeometry(new Envelope(0, size, 0, size));
+    }
+
+    @Test
+    public void testLiteralValuesDoNotMatter() {
+        List<Literal> literals = new ArrayList<Literal>();
+        String fingerprint = FilterTemplate.fingerprint(filter("a", box(1)), literals, 0);
+        List<Literal> others = new ArrayList<Literal>();
+        assertEquals(fingerprint, FilterTemplate.fingerprint(filter("b", box(2)), others, 0));
+
+        // collected in visiting order
+        assertEquals(2, others.size());
+        assertEquals("b", others.get(0).getValue());
+        assertEquals(box(2), others.get(1).getValue());
+    }
+
+    @Test
+    public void testStructureMatters() {
+        List<Literal> literals = new ArrayList<Literal>();
+        String fingerprint = FilterTemplate.fingerprint(FF.equals(FF.property("name"),
+                FF.literal("a")), literals, 0);
+        assertFalse(fingerprint.equals(FilterTemplate.fingerprint(FF.equals(
+                FF.property("ref"), FF.literal("a")), literals, 0)));
+        assertFalse(fingerprint.equals(FilterTemplate.fingerprint(FF.notEqual(
+                FF.property("name"), FF.literal("a")), literals, 0)));
+        assertFalse(fingerprint.equals(FilterTemplate.fingerprint(FF.equals(
+                FF.property("name"), FF.literal(1)), literals, 0)));
+        assertFalse(fingerprint.equals(FilterTemplate.fingerprint(FF.equals(
+                FF.property("name"), FF.literal(null)), literals, 0)));
+
+        // the like pattern is written in the SQL
+        assertFalse(FilterTemplate.fingerprint(FF.like(FF.property("name"), "a%"), literals, 0)
+                .equals(FilterTemplate.fingerprint(FF.like(FF.property("name"), "b%"), literals,
+                        0)));
+    }
+
+    @Test
+    public void testTwoPhaseFilterVertices() {
+        Geometry small = box(10);
+        Geometry large = Densifier.densify(box(10), 0.1);
+        List<Literal> literals = new ArrayList<Literal>();
+
+        // without two phase filtering the vertex count does not matter
+        assertEquals(FilterTemplate.fingerprint(filter("a", small), literals, 0),
+                FilterTemplate.fingerprint(filter("a", large), literals, 0));
+
+        // with it, the spatial tests of the large geometries are encoded differently
+        assertFalse(FilterTemplate.fingerprint(filter("a", small), literals, 100).equals(
+                FilterTemplate.fingerprint(filter("a", large), literals, 100)));
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class GeometryMetadataCatalogTest {
+
+    /** a GEOMETRY_COLUMNS row */
+    static final Object[] ROW = { "GIS", "ROADS", "GEOM", "POLYGON", 4326, 2 };
+
+    /**
+     * Returns a connection whose statements return the row, or fail if it is null, recording the
+     * calls made on the connection
+     */
+    static Connection connection(final boolean autoCommit, final Object[] row,
+            final List<String> calls) {
+        return (Connection) proxy(Connection.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                calls.add(method.getName());
+                if ("getAutoCommit".equals(method.getName())) {
+                    return autoCommit;
+                } else if ("createStatement".equals(method.getName())) {
+                    return statement(row);
+                } else if ("setSavepoint".equals(method.getName())) {
+                    return proxy(Savepoint.class, this);
+                }
+                return null;
+            }
+        });
+    }
+
+    static Statement statement(final Object[] row) {
+        return (Statement) proxy(Statement.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+                if (!"executeQuery".equals(method.getName())) {
+                    return null;
+                } else if (row == null) {
+                    throw new SQLException("no GEOMETRY_COLUMNS");
+                }
+                return proxy(ResultSet.class, new InvocationHandler() {
+                    boolean next = true;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("next".equals(method.getName())) {
+                            boolean result = next;
+                            next = false;
+                            return result;
+                        } else if ("wasNull".equals(method.getName())) {
+                            return false;
+                        } else if (args != null && args[0] instanceof Integer) {
+                            return row[(Integer) args[0] - 1];
+                        }
+                        return null;
+                    }
+                });
+            }
+        });
+    }
+
+    static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(GeometryMetadataCatalogTest.class.getClassLoader(),
+                new Class[] { type }, handler);
+    }
+
+    @Test
+    public void testRetryAfterFailure() {
+        GeometryMetadataCatalog catalog = new GeometryMetadataCatalog();
+        List<String> calls = new ArrayList<String>();
+        assertNull(catalog.get("GIS", "ROADS", "GEOM", connection(true, null, calls)));
+        assertNull(catalog.columns);
+
+        GeometryMetadataCatalog.Entry entry = catalog.get("GIS", "ROADS", "GEOM",
+                connection(true, ROW, calls));
+        assertNotNull(entry);
+        assertEquals(Integer.valueOf(4326), entry.srid);
+        assertEquals(2, entry.dimension);
+        assertNotNull(catalog.columns);
+    }
+
+    @Test
+    public void testSavepoint() {
+        GeometryMetadataCatalog catalog = new GeometryMetadataCatalog();
+        List<String> calls = new ArrayList<String>();
+        catalog.get("GIS", "ROADS", "GEOM", connection(false, null, calls));
+        assertEquals(1, count(calls, "setSavepoint"));
+        assertEquals(1, count(calls, "rollback"));
+
+        calls.clear();
+        catalog.get("GIS", "ROADS", "GEOM", connection(false, ROW, calls));
+        assertEquals(1, count(calls, "setSavepoint"));
+        assertEquals(0, count(calls, "rollback"));
+        assertEquals(1, count(calls, "releaseSavepoint"));
+
+        // no savepoint in auto commit
+        catalog.refresh();
+        calls.clear();
+        catalog.get("GIS", "ROADS", "GEOM", connection(true, ROW, calls));
+        assertEquals(0, count(calls, "setSavepoint"));
+    }
+
+    @Test
+    public void testIsLoaded() {
+        GeometryMetadataCatalog catalog = new GeometryMetadataCatalog();
+        List<String> calls = new ArrayList<String>();
+        assertFalse(catalog.isLoaded(connection(true, null, calls)));
+        assertTrue(catalog.isLoaded(connection(true, ROW, calls)));
+
+        // a column missing from the loaded table is not registered, in any schema
+        Connection cx = connection(true, ROW, calls);
+        assertNull(catalog.get("GIS", "ROADS", "CENTERLINE", cx));
+        assertNull(catalog.get("OTHER", "ROADS", "GEOM", cx));
+        assertNotNull(catalog.get(null, "ROADS", "GEOM", cx));
+    }
+
+    @Test
+    public void testPrepareColumnQuery() throws Exception {
+        final List<String> calls = new ArrayList<String>();
+        Connection cx = (Connection) proxy(Connection.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                calls.add(String.valueOf(args[0]));
+                return proxy(PreparedStatement.class, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        calls.add(args[0] + "=" + args[1]);
+                        return null;
+                    }
+                });
+            }
+        });
+
+        // the names are bound, not inlined
+        GeometryMetadataCatalog.prepareColumnQuery("SELECT SRID FROM GEOMETRY_COLUMNS", "GIS",
+                "RO'ADS", "GEOM", cx);
+        assertEquals(Arrays.asList("SELECT SRID FROM GEOMETRY_COLUMNS WHERE F_TABLE_NAME = ? "
+                + "AND F_GEOMETRY_COLUMN = ? AND F_TABLE_SCHEMA = ?", "1=RO'ADS", "2=GEOM",
+                "3=GIS"), calls);
+
+        // any schema if unknown
+        calls.clear();
+        GeometryMetadataCatalog.prepareColumnQuery("SELECT SRID FROM GEOMETRY_COLUMNS", null,
+                "ROADS", "GEOM", cx);
+        assertEquals(Arrays.asList("SELECT SRID FROM GEOMETRY_COLUMNS WHERE F_TABLE_NAME = ? "
+                + "AND F_GEOMETRY_COLUMN = ?", "1=ROADS", "2=GEOM"), calls);
+    }
+
+    static int count(List<String> calls, String name) {
+        int count = 0;
+        for (String call : calls) {
+            if (call.equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
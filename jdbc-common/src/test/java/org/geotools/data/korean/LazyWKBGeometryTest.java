@@ -0,0 +1,73 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+
+public class LazyWKBGeometryTest {
+
+    static LazyWKBGeometry lazy(String wkt) throws Exception {
+        byte[] wkb = new WKBWriter().write(new WKTReader().read(wkt));
+        return new LazyWKBGeometry(wkb, new GeometryFactory());
+    }
+
+    @Test
+    public void testEnvelopeWithoutDecoding() throws Exception {
+        LazyWKBGeometry geometry = lazy("LINESTRING (0 0, 10 5)");
+        assertEquals("LineString", geometry.getGeometryType());
+        assertEquals(new Envelope(0, 10, 0, 5), geometry.getEnvelopeInternal());
+        assertFalse(geometry.isEmpty());
+        assertFalse(geometry.isDecoded());
+    }
+
+    @Test
+    public void testGeometryChanged() throws Exception {
+        LazyWKBGeometry geometry = lazy("LINESTRING (0 0, 10 5)");
+        assertEquals(new Envelope(0, 10, 0, 5), geometry.getEnvelopeInternal());
+
+        // unchanged geometries are not decoded
+        geometry.geometryChanged();
+        assertFalse(geometry.isDecoded());
+
+        geometry.apply(new CoordinateSequenceFilter() {
+            public void filter(CoordinateSequence seq, int i) {
+                seq.setOrdinate(i, CoordinateSequence.X, seq.getX(i) + 100);
+            }
+
+            public boolean isDone() {
+                return false;
+            }
+
+            public boolean isGeometryChanged() {
+                return true;
+            }
+        });
+        geometry.geometryChanged();
+        assertTrue(geometry.isDecoded());
+        assertEquals(new Envelope(100, 110, 0, 5), geometry.getEnvelopeInternal());
+    }
+}
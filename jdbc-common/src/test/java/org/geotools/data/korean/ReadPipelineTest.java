@@ -0,0 +1,314 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.factory.Hints;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFactory;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+
+public class ReadPipelineTest {
+
+    static final String[] LABELS = { "geom", "name" };
+
+    SimpleFeatureType featureType;
+
+    Dialect dialect;
+
+    ReadPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("geom", LineString.class);
+        tb.add("name", String.class);
+        featureType = tb.buildFeatureType();
+
+        dialect = new Dialect();
+        pipeline = new ReadPipeline(new JDBCDataStore(), dialect, false, 2, 2);
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Test
+    public void testHintedSequenceFactory() throws Exception {
+        RecordingSequenceFactory csFactory = new RecordingSequenceFactory();
+        Hints hints = new Hints(Hints.JTS_COORDINATE_SEQUENCE_FACTORY, csFactory);
+        ResultSet rs = pipeline.open(resultSet(rows(5), -1), null, featureType, hints);
+
+        // JDBCFeatureReader wraps the hinted sequence factory in a geometry factory of its own
+        GeometryFactory factory = new GeometryFactory(csFactory);
+        int count = 0;
+        while (rs.next()) {
+            Geometry geometry = ((ReadPipeline.DecodedResultSet) rs).getGeometry(1, factory);
+            assertSame(csFactory, geometry.getFactory().getCoordinateSequenceFactory());
+            assertEquals(count, geometry.getCoordinate().x, 0);
+            count++;
+        }
+        rs.close();
+        assertEquals(5, count);
+
+        // decoded once each, by the workers only
+        assertEquals(5, csFactory.creations);
+        assertFalse(csFactory.threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        // far more rows than the window, decoded by two workers
+        ResultSet rs = pipeline.open(resultSet(rows(200), -1), null, featureType, null);
+        GeometryFactory factory = new JDBCDataStore().getGeometryFactory();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(rs.next());
+            assertEquals("road " + i, rs.getString(2));
+            assertEquals("road " + i, rs.getString("NAME"));
+            Geometry geometry = ((ReadPipeline.DecodedResultSet) rs).getGeometry(1, factory);
+            assertEquals(i, geometry.getCoordinate().x, 0);
+        }
+        assertFalse(rs.next());
+        rs.close();
+    }
+
+    @Test
+    public void testResultSetFailure() throws Exception {
+        ResultSet rs = pipeline.open(resultSet(rows(5), 3), null, featureType, null);
+        // the rows fetched before the failure are handed out first
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rs.next());
+            assertEquals("road " + i, rs.getString(2));
+        }
+        try {
+            rs.next();
+            fail("the result set failure should have been thrown");
+        } catch (SQLException e) {
+            assertEquals("connection lost", e.getMessage());
+        }
+        rs.close();
+    }
+
+    @Test
+    public void testDecodeFailure() throws Exception {
+        Object[][] rows = rows(3);
+        rows[1][0] = new byte[] { 0, 0, 0, 0, 2, 0 };
+        ResultSet rs = pipeline.open(resultSet(rows, -1), null, featureType, null);
+        GeometryFactory factory = new JDBCDataStore().getGeometryFactory();
+        ReadPipeline.DecodedResultSet decoded = (ReadPipeline.DecodedResultSet) rs;
+
+        // only the row holding the corrupt geometry fails, when its geometry is asked for
+        assertTrue(rs.next());
+        assertEquals(0, decoded.getGeometry(1, factory).getCoordinate().x, 0);
+        assertTrue(rs.next());
+        assertEquals("road 1", rs.getString(2));
+        try {
+            decoded.getGeometry(1, factory);
+            fail("the corrupt geometry should have been reported");
+        } catch (IOException e) {
+            // expected
+        }
+        assertTrue(rs.next());
+        assertEquals(2, decoded.getGeometry(1, factory).getCoordinate().x, 0);
+        assertFalse(rs.next());
+        rs.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        Rows rows = new Rows(rows(100), -1);
+        ResultSet rs = pipeline.open((ResultSet) proxy(ResultSet.class, rows), null, featureType,
+                null);
+        assertTrue(rs.next());
+        assertTrue(rs.next());
+        rs.close();
+        assertTrue(rows.closed);
+        assertTrue(rs.isClosed());
+        assertFalse(rs.next());
+        // the rows are read ahead by the window only
+        assertTrue(rows.index < 10);
+        rs.close();
+    }
+
+    @Test
+    public void testLazyDecode() throws Exception {
+        dialect.lazy = true;
+        ResultSet rs = resultSet(rows(5), -1);
+        assertSame(rs, pipeline.open(rs, null, featureType, null));
+
+        // the exact tests still need the geometries
+        Geometry area = new WKTReader().read("POLYGON ((1.5 -1, 3.5 -1, 3.5 2, 1.5 2, 1.5 -1))");
+        ReadPipeline.Refinement refinement = new ReadPipeline.Refinement(null, "exact", "mbr", 0,
+                "geom", "intersects", PreparedGeometryFactory.prepare(area));
+        Hints hints = new Hints(ReadPipeline.REFINEMENTS, Collections.singletonList(refinement));
+        rs = pipeline.open(resultSet(rows(5), -1), null, featureType, hints);
+        assertTrue(rs instanceof ReadPipeline.DecodedResultSet);
+        assertTrue(rs.next());
+        assertEquals("road 2", rs.getString(2));
+        assertTrue(rs.next());
+        assertEquals("road 3", rs.getString(2));
+        assertFalse(rs.next());
+        rs.close();
+    }
+
+    /**
+     * Returns rows of a line string WKB starting at x = i, and a name
+     */
+    static Object[][] rows(int count) throws Exception {
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            Geometry line = new WKTReader().read("LINESTRING (" + i + " 0, " + i + " 1)");
+            rows[i] = new Object[] { new WKBWriter().write(line), "road " + i };
+        }
+        return rows;
+    }
+
+    /**
+     * Returns a result set over the rows, failing when moving to the row at <code>failAt</code>
+     * unless it is negative
+     */
+    static ResultSet resultSet(Object[][] rows, int failAt) {
+        return (ResultSet) proxy(ResultSet.class, new Rows(rows, failAt));
+    }
+
+    static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(ReadPipelineTest.class.getClassLoader(),
+                new Class[] { type }, handler);
+    }
+
+    static class Dialect implements DecodingDialect {
+
+        boolean lazy;
+
+        public boolean isPointFastPath(GeometryDescriptor descriptor) {
+            return false;
+        }
+
+        public boolean isForce2D(Hints hints) {
+            return false;
+        }
+
+        public Double getDecimationDistance(Hints hints) {
+            return null;
+        }
+
+        public boolean isLazyDecodeEnabled() {
+            return lazy;
+        }
+    }
+
+    static class Rows implements InvocationHandler {
+
+        final Object[][] rows;
+
+        final int failAt;
+
+        int index = -1;
+
+        boolean closed;
+
+        Rows(Object[][] rows, int failAt) {
+            this.rows = rows;
+            this.failAt = failAt;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            String name = method.getName();
+            if ("next".equals(name)) {
+                index++;
+                if (index == failAt) {
+                    throw new SQLException("connection lost");
+                }
+                return index < rows.length;
+            } else if ("close".equals(name)) {
+                closed = true;
+            } else if ("getMetaData".equals(name)) {
+                return proxy(ResultSetMetaData.class, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getColumnCount".equals(method.getName())) {
+                            return LABELS.length;
+                        }
+                        return LABELS[(Integer) args[0] - 1];
+                    }
+                });
+            } else if ("getBytes".equals(name) || "getObject".equals(name)) {
+                return rows[index][(Integer) args[0] - 1];
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Packed float sequences, recording the threads that build them
+     */
+    static class RecordingSequenceFactory implements CoordinateSequenceFactory {
+
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        volatile int creations;
+
+        synchronized CoordinateSequenceFactory record() {
+            threads.add(Thread.currentThread());
+            creations++;
+            return PackedCoordinateSequenceFactory.FLOAT_FACTORY;
+        }
+
+        public CoordinateSequence create(Coordinate[] coordinates) {
+            return record().create(coordinates);
+        }
+
+        public CoordinateSequence create(CoordinateSequence coordSeq) {
+            return record().create(coordSeq);
+        }
+
+        public CoordinateSequence create(int size, int dimension) {
+            return record().create(size, dimension);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+    @Test
+    public void testTakeRelease() {
+        StatementCache cache = new StatementCache(2);
+        assertNull(cache.take("select 1"));
+
+        PreparedStatement ps = statement();
+        cache.release("select 1", ps);
+        assertEquals(1, cache.size());
+
+        // taken statements leave the cache until released
+        assertSame(ps, cache.take("select 1"));
+        assertNull(cache.take("select 1"));
+        assertEquals(0, cache.size());
+        assertFalse(StatementCache.isClosed(ps));
+    }
+
+    @Test
+    public void testEviction() {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement ps1 = statement();
+        PreparedStatement ps2 = statement();
+        PreparedStatement ps3 = statement();
+        cache.release("select 1", ps1);
+        cache.release("select 2", ps2);
+
+        // using the first makes the second the least recently used one
+        cache.release("select 1", cache.take("select 1"));
+        cache.release("select 3", ps3);
+
+        assertEquals(2, cache.size());
+        assertFalse(StatementCache.isClosed(ps1));
+        assertTrue(StatementCache.isClosed(ps2));
+        assertFalse(StatementCache.isClosed(ps3));
+        assertNull(cache.take("select 2"));
+    }
+
+    @Test
+    public void testReleaseReplaces() {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement ps1 = statement();
+        PreparedStatement ps2 = statement();
+        cache.release("select 1", ps1);
+        cache.release("select 1", ps2);
+
+        assertEquals(1, cache.size());
+        assertTrue(StatementCache.isClosed(ps1));
+        assertSame(ps2, cache.take("select 1"));
+    }
+
+    @Test
+    public void testClosedStatement() throws Exception {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement ps = statement();
+        cache.release("select 1", ps);
+        ps.close();
+
+        assertNull(cache.take("select 1"));
+    }
+
+    @Test
+    public void testClear() {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement ps1 = statement();
+        PreparedStatement ps2 = statement();
+        cache.release("select 1", ps1);
+        cache.release("select 2", ps2);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertTrue(StatementCache.isClosed(ps1));
+        assertTrue(StatementCache.isClosed(ps2));
+    }
+
+    static PreparedStatement statement() {
+        return (PreparedStatement) Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(),
+                new Class[] { PreparedStatement.class }, new InvocationHandler() {
+                    boolean closed;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("close".equals(name)) {
+                            closed = true;
+                        } else if ("isClosed".equals(name)) {
+                            return closed;
+                        } else if ("equals".equals(name)) {
+                            return proxy == args[0];
+                        } else if ("hashCode".equals(name)) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.io.WKBWriter;
+
+public class WKBAttributeIOTest {
+
+    @Test
+    public void testChunkedShortReads() throws Exception {
+        byte[] bytes = bytes(WKBAttributeIO.ChunkedInputStream.CHUNK_SIZE * 2 + 100);
+        WKBAttributeIO.ChunkedInputStream stream = new WKBAttributeIO.ChunkedInputStream();
+        stream.setSource(new TricklingInputStream(bytes, 7));
+
+        // every request is satisfied completely, across the chunks and the short source reads
+        byte[] read = new byte[bytes.length];
+        assertEquals(1, stream.read(read, 0, 1));
+        assertEquals(1000, stream.read(read, 1, 1000));
+        assertEquals(bytes.length - 1001, stream.read(read, 1001, bytes.length - 1001));
+        assertArrayEquals(bytes, read);
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testChunkedEOF() throws Exception {
+        WKBAttributeIO.ChunkedInputStream stream = new WKBAttributeIO.ChunkedInputStream();
+        stream.setSource(new TricklingInputStream(bytes(10), 3));
+        assertEquals(0, stream.read());
+        try {
+            stream.read(new byte[10], 0, 10);
+            fail("a read past the end of the stream should fail");
+        } catch (EOFException e) {
+            // expected
+        }
+
+        // a new source starts over
+        stream.setSource(new ByteArrayInputStream(bytes(2)));
+        assertEquals(0, stream.read());
+        assertEquals(1, stream.read());
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        // a line larger than a chunk
+        Coordinate[] coordinates = new Coordinate[2000];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = new Coordinate(i, i % 7);
+        }
+        LineString line = new GeometryFactory().createLineString(coordinates);
+        TricklingInputStream source = new TricklingInputStream(new WKBWriter().write(line), 100);
+
+        WKBAttributeIO io = new WKBAttributeIO();
+        io.setStreaming(true);
+        Geometry read = (Geometry) io.read(resultSet(source), 1);
+        assertTrue(line.equalsExact(read));
+        assertTrue(source.closed);
+    }
+
+    @Test
+    public void testStreamingTruncated() throws Exception {
+        LineString line = new GeometryFactory().createLineString(new Coordinate[] {
+                new Coordinate(0, 0), new Coordinate(1, 1), new Coordinate(2, 2) });
+        byte[] wkb = new WKBWriter().write(line);
+        TricklingInputStream source = new TricklingInputStream(Arrays.copyOf(wkb,
+                wkb.length - 4), 5);
+
+        WKBAttributeIO io = new WKBAttributeIO();
+        io.setStreaming(true);
+        try {
+            io.read(resultSet(source), 1);
+            fail("a truncated geometry should be reported");
+        } catch (IOException e) {
+            // expected
+        }
+        assertTrue(source.closed);
+    }
+
+    static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    static ResultSet resultSet(final InputStream stream) {
+        return (ResultSet) Proxy.newProxyInstance(WKBAttributeIOTest.class.getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getBinaryStream".equals(method.getName())) {
+                            return stream;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Returns at most <code>max</code> bytes per read, and nothing every other read, the way
+     * network backed LOB streams do
+     */
+    static class TricklingInputStream extends InputStream {
+
+        final byte[] bytes;
+
+        final int max;
+
+        int position;
+
+        boolean empty;
+
+        boolean closed;
+
+        TricklingInputStream(byte[] bytes, int max) {
+            this.bytes = bytes;
+            this.max = max;
+        }
+
+        @Override
+        public int read() {
+            return position < bytes.length ? bytes[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= bytes.length) {
+                return -1;
+            }
+            empty = !empty;
+            if (empty) {
+                return 0;
+            }
+            int count = Math.min(Math.min(len, max), bytes.length - position);
+            System.arraycopy(bytes, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.impl.CoordinateArraySequenceFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.InStream;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+
+public class WKBReaderTest {
+
+    static final String[] WKT = { "POINT (1 2)", "LINESTRING (0 0, 1 1, 2 0.5)",
+            "LINESTRING EMPTY", "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 4, 4 4, 2 2))",
+            "POLYGON EMPTY", "MULTIPOINT ((0 0), (1 1))",
+            "MULTILINESTRING ((0 0, 1 1), (2 2, 3 3, 4 2))",
+            "MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+            "GEOMETRYCOLLECTION (POINT (1 1), LINESTRING (0 0, 2 2))",
+            "POINT Z (1 2 3)", "LINESTRING Z (0 0 1, 1 1 2, 2 0.5 3)",
+            "MULTIPOLYGON Z (((0 0 1, 1 0 1, 1 1 1, 0 0 1)))" };
+
+    @Test
+    public void testRoundTripMatchesJTS() throws Exception {
+        for (String wkt : WKT) {
+            Geometry geometry = new WKTReader().read(wkt);
+            int dimension = wkt.contains(" Z ") ? 3 : 2;
+            for (int byteOrder : new int[] { ByteOrderValues.BIG_ENDIAN,
+                    ByteOrderValues.LITTLE_ENDIAN }) {
+                byte[] wkb = new WKBWriter(dimension, byteOrder).write(geometry);
+                Geometry expected = new org.locationtech.jts.io.WKBReader().read(wkb);
+
+                assertSame(wkt, expected, new WKBReader().read(wkb));
+                assertSame(wkt, expected, new WKBReader().read(new BytesInStream(wkb)));
+                assertEquals(wkt, expected.getEnvelopeInternal(), WKBReader.readEnvelope(wkb, false));
+            }
+        }
+    }
+
+    @Test
+    public void testSRID() throws Exception {
+        Geometry geometry = new WKTReader().read("LINESTRING (0 0, 1 1)");
+        geometry.setSRID(4326);
+        byte[] wkb = new WKBWriter(2, true).write(geometry);
+        assertEquals(4326, new WKBReader().read(wkb).getSRID());
+    }
+
+    @Test
+    public void testForce2D() throws Exception {
+        Geometry geometry = new WKTReader().read("LINESTRING Z (0 0 1, 1 1 2)");
+        byte[] wkb = new WKBWriter(3).write(geometry);
+        WKBReader reader = new WKBReader();
+        reader.setForce2D(true);
+        LineString line = (LineString) reader.read(wkb);
+        assertEquals(2, line.getCoordinateSequence().getDimension());
+        assertEquals(new Coordinate(1, 1), line.getCoordinateN(1));
+    }
+
+    @Test
+    public void testSequenceFactory() throws Exception {
+        byte[] wkb = new WKBWriter().write(new WKTReader().read("LINESTRING (0 0, 1 1)"));
+
+        // the JTS default factory is replaced by packed sequences
+        GeometryFactory arrays = new GeometryFactory(CoordinateArraySequenceFactory.instance());
+        LineString line = (LineString) new WKBReader(arrays).read(wkb);
+        assertTrue(line.getCoordinateSequence() instanceof PackedCoordinateSequence.Double);
+
+        // any other factory is honoured
+        GeometryFactory floats = new GeometryFactory(PackedCoordinateSequenceFactory.FLOAT_FACTORY);
+        line = (LineString) new WKBReader(floats).read(wkb);
+        assertTrue(line.getCoordinateSequence() instanceof PackedCoordinateSequence.Float);
+        Point point = (Point) new WKBReader(floats)
+                .read(new WKBWriter().write(new WKTReader().read("POINT (1 2)")));
+        assertTrue(point.getCoordinateSequence() instanceof PackedCoordinateSequence.Float);
+    }
+
+    @Test
+    public void testReadPoint() throws Exception {
+        GeometryFactory factory = new GeometryFactory();
+        for (String wkt : new String[] { "POINT (1 2)", "POINT Z (1 2 3)" }) {
+            Geometry geometry = new WKTReader().read(wkt);
+            geometry.setSRID(4326);
+            int dimension = wkt.contains(" Z ") ? 3 : 2;
+            for (int byteOrder : new int[] { ByteOrderValues.BIG_ENDIAN,
+                    ByteOrderValues.LITTLE_ENDIAN }) {
+                byte[] wkb = new WKBWriter(dimension, byteOrder, true).write(geometry);
+                Geometry expected = new org.locationtech.jts.io.WKBReader().read(wkb);
+
+                Point point = WKBReader.readPoint(wkb, factory, false, false);
+                assertSame(wkt, expected, point);
+                assertEquals(wkt, 4326, point.getSRID());
+                assertEquals(wkt, dimension, point.getCoordinateSequence().getDimension());
+
+                point = WKBReader.readPoint(wkb, factory, true, false);
+                assertEquals(wkt, 2, point.getCoordinateSequence().getDimension());
+                assertEquals(wkt, new Coordinate(1, 2), point.getCoordinate());
+            }
+        }
+    }
+
+    @Test
+    public void testReadPointOtherTypes() throws Exception {
+        GeometryFactory factory = new GeometryFactory();
+        byte[] line = new WKBWriter().write(new WKTReader().read("LINESTRING (0 0, 1 1)"));
+        assertNull(WKBReader.readPoint(line, factory, false, false));
+
+        // truncated points are left to the general reader, which reports the error
+        byte[] point = new WKBWriter(3).write(new WKTReader().read("POINT Z (1 2 3)"));
+        byte[] truncated = new byte[point.length - 8];
+        System.arraycopy(point, 0, truncated, 0, truncated.length);
+        assertNull(WKBReader.readPoint(truncated, factory, false, false));
+        assertNull(WKBReader.readPoint(new byte[5], factory, false, false));
+    }
+
+    @Test
+    public void testKairosTypes() throws Exception {
+        // two vertices, of two ordinates for Kairos and three for ISO
+        byte[] line = wkb(1002, 2, 0, 0, 1, 1, 2, 2);
+        WKBReader kairos = new WKBReader(new GeometryFactory(), true);
+        assertEquals(new Envelope(0, 1, 0, 1), kairos.read(line).getEnvelopeInternal());
+        byte[] polygon = new WKBWriter().write(new WKTReader().read("POLYGON ((0 0, 1 0, 1 1, 0 0))"));
+        ByteBuffer.wrap(polygon).putInt(1, 235);
+        assertSame("kairos", new WKTReader().read("POLYGON ((0 0, 1 0, 1 1, 0 0))"),
+                kairos.read(polygon));
+        assertEquals(new Envelope(0, 1, 0, 1), WKBReader.readEnvelope(line, true));
+
+        // anywhere else 1002 is the ISO line string Z, and 235 is unknown
+        LineString lineZ = (LineString) new WKBReader().read(line);
+        assertEquals(2, lineZ.getNumPoints());
+        assertEquals(3, lineZ.getCoordinateSequence().getDimension());
+        assertEquals(new Envelope(0, 1, 0, 2), WKBReader.readEnvelope(line, false));
+        try {
+            new WKBReader().read(polygon);
+            fail("235 is only a Kairos type");
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMeasures() throws Exception {
+        // ISO M, ISO ZM and the EWKB M flag
+        LineString line = (LineString) new WKBReader().read(wkb(2002, 2, 0, 0, 5, 1, 1, 6));
+        assertEquals(3, line.getCoordinateSequence().getDimension());
+        assertEquals(1, line.getCoordinateSequence().getMeasures());
+        assertEquals(6, line.getCoordinateSequence().getM(1), 0);
+
+        Point point = (Point) new WKBReader().read(wkb(3001, -1, 1, 2, 3, 4));
+        assertEquals(4, point.getCoordinateSequence().getDimension());
+        assertEquals(1, point.getCoordinateSequence().getMeasures());
+        assertEquals(3, point.getCoordinateSequence().getZ(0), 0);
+        assertEquals(4, point.getCoordinateSequence().getM(0), 0);
+
+        byte[] ewkb = wkb(0x40000001, -1, 1, 2, 7);
+        point = WKBReader.readPoint(ewkb, new GeometryFactory(), false, false);
+        assertEquals(1, point.getCoordinateSequence().getMeasures());
+        assertEquals(7, point.getCoordinateSequence().getM(0), 0);
+
+        // 2D mode skips the measures
+        WKBReader reader = new WKBReader();
+        reader.setForce2D(true);
+        line = (LineString) reader.read(new BytesInStream(wkb(3002, 2, 0, 0, 1, 5, 1, 1, 2, 6)));
+        assertEquals(2, line.getCoordinateSequence().getDimension());
+        assertEquals(new Coordinate(1, 1), line.getCoordinateN(1));
+    }
+
+    @Test
+    public void testUnknownTypes() throws Exception {
+        for (int type : new int[] { 0, 8, 1008, 4001 }) {
+            try {
+                new WKBReader().read(wkb(type, -1, 1, 2));
+                fail("type " + type + " should have been rejected");
+            } catch (ParseException e) {
+                // expected
+            }
+        }
+        assertNull(WKBReader.readPoint(wkb(4001, -1, 1, 2, 3), new GeometryFactory(), false,
+                false));
+    }
+
+    /**
+     * Returns a big endian WKB of the given type code, the count is omitted if negative
+     */
+    static byte[] wkb(int type, int count, double... ordinates) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + (count < 0 ? 0 : 4) + ordinates.length * 8);
+        buffer.put((byte) 0).putInt(type);
+        if (count >= 0) {
+            buffer.putInt(count);
+        }
+        for (double ordinate : ordinates) {
+            buffer.putDouble(ordinate);
+        }
+        return buffer.array();
+    }
+
+    @Test
+    public void testDecimation() throws Exception {
+        WKBReader reader = new WKBReader();
+        reader.setDecimationTolerance(1);
+
+        byte[] wkb = new WKBWriter().write(new WKTReader()
+                .read("LINESTRING (0 0, 0.1 0.1, 0.2 0, 5 5, 5.1 5, 10 10)"));
+        assertSame("line", new WKTReader().read("LINESTRING (0 0, 5 5, 10 10)"),
+                reader.read(wkb));
+
+        // a ring decimated below four vertices is kept as is
+        String ring = "POLYGON ((0 0, 0.1 0, 0.1 0.1, 0 0.1, 0 0))";
+        wkb = new WKBWriter().write(new WKTReader().read(ring));
+        assertSame("ring", new WKTReader().read(ring), reader.read(wkb));
+    }
+
+    @Test
+    public void testClipEnvelope() throws Exception {
+        byte[] wkb = new WKBWriter().write(new WKTReader()
+                .read("MULTILINESTRING ((0 0, 1 1), (100 100, 101 101))"));
+        WKBReader reader = new WKBReader();
+        reader.setClipEnvelope(new Envelope(-1, 2, -1, 2));
+        assertSame("clip", new WKTReader().read("MULTILINESTRING ((0 0, 1 1))"), reader.read(wkb));
+    }
+
+    @Test
+    public void testCorruptCounts() throws Exception {
+        for (int count : new int[] { Integer.MAX_VALUE, 1 << 20, -1 }) {
+            byte[] wkb = lineString(count);
+            try {
+                new WKBReader().read(wkb);
+                fail("count " + count + " should have been rejected");
+            } catch (ParseException e) {
+                // expected
+            }
+
+            // a stream does not know its length, it ends before the array is allocated
+            try {
+                new WKBReader().read(new BytesInStream(wkb));
+                fail("count " + count + " should have been rejected");
+            } catch (ParseException e) {
+                // expected
+            } catch (EOFException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Returns a big endian line string WKB announcing the count but holding a single point
+     */
+    static byte[] lineString(int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + 16);
+        buffer.put((byte) 0).putInt(2).putInt(count).putDouble(1).putDouble(2);
+        return buffer.array();
+    }
+
+    static void assertSame(String message, Geometry expected, Geometry actual) {
+        assertEquals(message, expected.getGeometryType(), actual.getGeometryType());
+        assertEquals(message, expected.getNumGeometries(), actual.getNumGeometries());
+        Coordinate[] expectedCoordinates = expected.getCoordinates();
+        Coordinate[] actualCoordinates = actual.getCoordinates();
+        assertEquals(message, expectedCoordinates.length, actualCoordinates.length);
+        for (int i = 0; i < expectedCoordinates.length; i++) {
+            assertEquals(message, expectedCoordinates[i].x, actualCoordinates[i].x, 0);
+            assertEquals(message, expectedCoordinates[i].y, actualCoordinates[i].y, 0);
+            assertEquals(message, expectedCoordinates[i].getZ(), actualCoordinates[i].getZ(), 0);
+        }
+    }
+
+    /**
+     * Reads a byte array, failing past its end like the data store streams do
+     */
+    static class BytesInStream implements InStream {
+        final byte[] bytes;
+
+        int position;
+
+        BytesInStream(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public void read(byte[] buf) throws IOException {
+            if (position + buf.length > bytes.length) {
+                throw new EOFException();
+            }
+            System.arraycopy(bytes, position, buf, 0, buf.length);
+            position += buf.length;
+        }
+    }
+}
@@ -35,6 +35,34 @@ public class KairosNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
         parameters.put(KairosNGDataStoreFactory.LOOSEBBOX.key, KairosNGDataStoreFactory.LOOSEBBOX);
         parameters.put(KairosNGDataStoreFactory.PREPARED_STATEMENTS.key,
                 KairosNGDataStoreFactory.PREPARED_STATEMENTS);
+        parameters.put(KairosNGDataStoreFactory.STATEMENT_CACHE_SIZE.key,
+                KairosNGDataStoreFactory.STATEMENT_CACHE_SIZE);
+        parameters.put(KairosNGDataStoreFactory.FILTER_TEMPLATE_CACHE_SIZE.key,
+                KairosNGDataStoreFactory.FILTER_TEMPLATE_CACHE_SIZE);
+        parameters.put(KairosNGDataStoreFactory.EXTENT_CACHE_TTL.key,
+                KairosNGDataStoreFactory.EXTENT_CACHE_TTL);
+        parameters.put(KairosNGDataStoreFactory.EXTENT_CACHE_TABLE.key,
+                KairosNGDataStoreFactory.EXTENT_CACHE_TABLE);
+        parameters.put(KairosNGDataStoreFactory.STREAMING_DECODE.key,
+                KairosNGDataStoreFactory.STREAMING_DECODE);
+        parameters.put(KairosNGDataStoreFactory.SIMPLIFY.key, KairosNGDataStoreFactory.SIMPLIFY);
+        parameters.put(KairosNGDataStoreFactory.LAZY_DECODE.key,
+                KairosNGDataStoreFactory.LAZY_DECODE);
+        parameters.put(KairosNGDataStoreFactory.DECODE_DECIMATION.key,
+                KairosNGDataStoreFactory.DECODE_DECIMATION);
+        parameters.put(KairosNGDataStoreFactory.DECODE_2D.key, KairosNGDataStoreFactory.DECODE_2D);
+        parameters.put(KairosNGDataStoreFactory.POINT_FAST_PATH.key,
+                KairosNGDataStoreFactory.POINT_FAST_PATH);
+        parameters.put(KairosNGDataStoreFactory.READ_PIPELINE.key,
+                KairosNGDataStoreFactory.READ_PIPELINE);
+        parameters.put(KairosNGDataStoreFactory.READ_PIPELINE_QUEUE_DEPTH.key,
+                KairosNGDataStoreFactory.READ_PIPELINE_QUEUE_DEPTH);
+        parameters.put(KairosNGDataStoreFactory.READ_PIPELINE_THREADS.key,
+                KairosNGDataStoreFactory.READ_PIPELINE_THREADS);
+        parameters.put(KairosNGDataStoreFactory.TWO_PHASE_FILTER.key,
+                KairosNGDataStoreFactory.TWO_PHASE_FILTER);
+        parameters.put(KairosNGDataStoreFactory.TWO_PHASE_FILTER_VERTICES.key,
+                KairosNGDataStoreFactory.TWO_PHASE_FILTER_VERTICES);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
     }
 }
@@ -17,20 +17,37 @@
 package org.geotools.data.kairos;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.data.korean.FilterOptimizer;
+import org.geotools.data.korean.FilterTemplate;
+import org.geotools.data.korean.ReadPipeline;
 import org.geotools.filter.FilterCapabilities;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LinearRing;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.Or;
+import org.opengis.filter.expression.Function;
 import org.opengis.filter.expression.Literal;
 import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.temporal.BinaryTemporalOperator;
 
 @SuppressWarnings("deprecation")
 public class KairosPSFilterToSql extends PreparedFilterToSQL {
 
     FilterToSqlHelper helper;
 
+    FilterTemplate.Cache filterTemplates;
+
     public KairosPSFilterToSql(KairosPSDialect dialect) {
         super(dialect);
         helper = new FilterToSqlHelper(this);
@@ -44,9 +61,24 @@ public class KairosPSFilterToSql extends PreparedFilterToSQL {
         helper.looseBBOXEnabled = looseBBOXEnabled;
     }
 
+    public int getTwoPhaseFilterVertices() {
+        return helper.twoPhaseFilterVertices;
+    }
+
+    public void setTwoPhaseFilterVertices(int twoPhaseFilterVertices) {
+        helper.twoPhaseFilterVertices = twoPhaseFilterVertices;
+    }
+
     @Override
     protected void visitLiteralGeometry(Literal expression) throws IOException {
-        // evaluate the literal and store it for later
+        if (isPrepareEnabled()) {
+            // bind the geometry as a WKB parameter, see KairosPSDialect#setGeometryValue, so that the
+            // statement text does not change with the literal and the server can reuse its plan
+            visit(expression, Geometry.class);
+            return;
+        }
+
+        // not binding, visit(Literal) lands here again, write the literal inline
         Geometry geom = (Geometry) evaluateLiteral(expression, Geometry.class);
 
         if (geom instanceof LinearRing) {
@@ -59,11 +91,164 @@ public class KairosPSFilterToSql extends PreparedFilterToSQL {
         out.write("')");
     }
 
+    @Override
+    public void encode(Filter filter) throws FilterToSQLException {
+        if (filterTemplates == null || filter == null || featureType == null) {
+            // shorter and index friendlier predicates, see FilterOptimizer
+            write(encodeFilter(FilterOptimizer.optimize(filter, featureType)));
+            return;
+        }
+
+        // the template is keyed by the filter as given and holds the SQL of the optimized one, so
+        // a hit skips the optimizer too. The optimized filter must use each literal once as is,
+        // see createTemplate, a rewrite depending on the literal values is never cached.
+        List<Literal> literals = new ArrayList<Literal>();
+        String key = featureType.getTypeName() + "|" + inline + "|" + helper.looseBBOXEnabled
+                + "|" + helper.twoPhaseFilterVertices + "|"
+                + FilterTemplate.fingerprint(filter, literals, helper.twoPhaseFilterVertices);
+        FilterTemplate template = filterTemplates.get(key);
+        if (template == FilterTemplate.UNCACHEABLE) {
+            write(encodeFilter(FilterOptimizer.optimize(filter, featureType)));
+        } else if (template != null) {
+            apply(template, literals);
+        } else {
+            String sql = encodeFilter(FilterOptimizer.optimize(filter, featureType));
+            write(sql);
+
+            // two phase filtering depends on the literals, see FilterToSqlHelper#REFINEMENTS
+            List<ReadPipeline.Refinement> refinements = FilterToSqlHelper.REFINEMENTS.get();
+            if (refinements == null || refinements.isEmpty()) {
+                filterTemplates.put(key, createTemplate(sql, literals));
+            }
+        }
+    }
+
+    /**
+     * Encodes the filter on a writer of its own, so that the spatial tests recorded for two phase
+     * filtering know their offset in it, see FilterToSqlHelper#encoded
+     */
+    String encodeFilter(Filter filter) throws FilterToSQLException {
+        Writer target = out;
+        StringWriter sql = new StringWriter();
+        out = sql;
+        try {
+            super.encode(filter);
+        } finally {
+            out = target;
+        }
+        FilterToSqlHelper.encoded(sql.toString());
+        return sql.toString();
+    }
+
+    /**
+     * Maps each parameter of the SQL just encoded to the single literal of the filter it comes
+     * from, the filter structure is not cacheable if a parameter is derived from the literals, or
+     * if a literal is written in the SQL itself or dropped by the optimizer
+     */
+    FilterTemplate createTemplate(String sql, List<Literal> literals) {
+        int[] indexes = new int[literalValues.size()];
+        boolean[] used = new boolean[literals.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = -1;
+            for (int k = 0; k < used.length; k++) {
+                if (!used[k] && Objects.equals(literalValues.get(i),
+                        evaluateLiteral(literals.get(k), literalTypes.get(i)))) {
+                    if (indexes[i] >= 0) {
+                        // ambiguous
+                        return FilterTemplate.UNCACHEABLE;
+                    }
+                    indexes[i] = k;
+                }
+            }
+            if (indexes[i] < 0) {
+                return FilterTemplate.UNCACHEABLE;
+            }
+            used[indexes[i]] = true;
+        }
+        for (boolean u : used) {
+            if (!u) {
+                return FilterTemplate.UNCACHEABLE;
+            }
+        }
+        return new FilterTemplate(sql, indexes, new ArrayList<Class>(literalTypes),
+                new ArrayList<Integer>(SRIDs), new ArrayList<Integer>(dimensions),
+                new ArrayList<AttributeDescriptor>(descriptors));
+    }
+
+    /**
+     * Binds the literals as the parameters of the template, the SRIDs and dimensions the template
+     * has not taken from the filtered attributes are the ones of the literals
+     */
+    void apply(FilterTemplate template, List<Literal> literals) throws FilterToSQLException {
+        for (int i = 0; i < template.literals.length; i++) {
+            Object value = evaluateLiteral(literals.get(template.literals[i]),
+                    template.types.get(i));
+            literalValues.add(value);
+            Integer srid = template.srids.get(i);
+            Integer dimension = template.dimensions.get(i);
+            if (value instanceof Geometry) {
+                Geometry geometry = (Geometry) value;
+                if (srid == null && geometry.getSRID() > 0) {
+                    srid = geometry.getSRID();
+                }
+                if (dimension == null && geometry.getCoordinate() != null) {
+                    dimension = Double.isNaN(geometry.getCoordinate().getZ()) ? 2 : 3;
+                }
+            }
+            SRIDs.add(srid);
+            dimensions.add(dimension);
+        }
+        literalTypes.addAll(template.types);
+        descriptors.addAll(template.descriptors);
+        write(template.sql);
+    }
+
+    void write(String sql) throws FilterToSQLException {
+        if (out == null) {
+            throw new FilterToSQLException("Can't encode to a null writer.");
+        }
+        try {
+            out.write(sql);
+        } catch (IOException e) {
+            throw new FilterToSQLException("Problem writing filter: ", e);
+        }
+    }
+
+    @Override
+    public Object visit(Function function, Object extraData) throws RuntimeException {
+        helper.out = out;
+        if (helper.visitFunction(function, extraData)) {
+            return extraData;
+        }
+        return super.visit(function, extraData);
+    }
+
+    @Override
+    public Object visit(Id filter, Object extraData) {
+        helper.out = out;
+        return helper.visitId(filter, primaryKey, extraData) ? extraData
+                : super.visit(filter, extraData);
+    }
+
+    @Override
+    public Object visit(Or filter, Object extraData) {
+        helper.out = out;
+        return helper.visitOr(filter, featureType, extraData) ? extraData
+                : super.visit(filter, extraData);
+    }
+
     @Override
     protected FilterCapabilities createFilterCapabilities() {
         return helper.createFilterCapabilities();
     }
 
+    @Override
+    protected Object visitBinaryTemporalOperator(BinaryTemporalOperator filter,
+            PropertyName property, Literal temporal, boolean swapped, Object extraData) {
+        return super.visitBinaryTemporalOperator(filter, property,
+                FilterToSqlHelper.period(temporal), swapped, extraData);
+    }
+
     @Override
     protected Object visitBinarySpatialOperator(BinarySpatialOperator filter,
             PropertyName property, Literal geometry, boolean swapped, Object extraData) {
@@ -0,0 +1,228 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.kairos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.geotools.data.Query;
+import org.geotools.data.korean.ReadPipeline;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.factory.Hints;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class KairosDialectTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    JDBCDataStore dataStore;
+
+    KairosDialect dialect;
+
+    @Before
+    public void setUp() {
+        dataStore = new JDBCDataStore();
+        dialect = new KairosDialect(dataStore);
+    }
+
+    @Test
+    public void testEncodeGeometryEnvelope() {
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryEnvelope("roads", "geom", sql);
+        assertEquals(" ST_ASBINARY(ST_EXTENT(\"geom\"))", sql.toString());
+    }
+
+    @Test
+    public void testDecodeGeometryEnvelope() throws Exception {
+        // one extent per column
+        ResultSet rs = resultSet(extent("POLYGON ((0 1, 10 1, 10 11, 0 11, 0 1))"),
+                extent("POLYGON ((100 101, 110 101, 110 111, 100 111, 100 101))"));
+        assertEquals(new Envelope(0, 10, 1, 11), dialect.decodeGeometryEnvelope(rs, 1, null));
+        assertEquals(new Envelope(100, 110, 101, 111), dialect.decodeGeometryEnvelope(rs, 2, null));
+    }
+
+    @Test
+    public void testDecodeEmptyGeometryEnvelope() throws Exception {
+        ResultSet rs = resultSet(extent("POLYGON ((0 1, 10 1, 10 11, 0 11, 0 1))"), null);
+        assertTrue(dialect.decodeGeometryEnvelope(rs, 2, null).isNull());
+    }
+
+    static byte[] extent(String wkt) throws Exception {
+        return new WKBWriter().write(new WKTReader().read(wkt));
+    }
+
+    @Test
+    public void testSimplifyOptIn() {
+        Set<Hints.Key> hints = new HashSet<Hints.Key>();
+        dialect.addSupportedHints(hints);
+        assertFalse(hints.contains(Hints.GEOMETRY_SIMPLIFICATION));
+
+        // decimated on the client when the server does not simplify
+        dialect.setDecimationEnabled(true);
+        dialect.addSupportedHints(hints);
+        assertTrue(hints.contains(Hints.GEOMETRY_SIMPLIFICATION));
+        assertEquals(2d, dialect.getDecimationDistance(new Hints(Hints.GEOMETRY_SIMPLIFICATION,
+                2d)), 0d);
+    }
+
+    @Test
+    public void testSelectHints() throws Exception {
+        dialect.setDecimationEnabled(true);
+        Hints queryHints = new Hints(Hints.GEOMETRY_DISTANCE, 1d);
+        Query query = new Query("roads", FF.bbox("geom", 0, 0, 10, 10, null));
+        query.setHints(queryHints);
+        dialect.handleSelectHints(new StringBuffer("SELECT * FROM roads"), null, query);
+
+        // the clip envelope goes to the select hints, the query ones are left alone
+        Hints hints = dialect.selectHints.get();
+        assertEquals(new Envelope(-2, 12, -2, 12), hints.get(ReadPipeline.CLIP_ENVELOPE));
+        assertEquals(1d, hints.get(Hints.GEOMETRY_DISTANCE));
+        assertNull(queryHints.get(ReadPipeline.CLIP_ENVELOPE));
+
+        // a select without hints does not pick up the previous ones
+        dialect.handleSelectHints(new StringBuffer("SELECT * FROM roads"), null,
+                new Query("roads"));
+        hints = dialect.selectHints.get();
+        assertTrue(hints == null || !hints.containsKey(ReadPipeline.CLIP_ENVELOPE));
+    }
+
+    @Test
+    public void testRelaxSpatialFilters() throws Exception {
+        dialect.setTwoPhaseFilterEnabled(true);
+        KairosPSFilterToSql encoder = new KairosPSFilterToSql(new KairosPSDialect(dataStore, dialect));
+        encoder.setTwoPhaseFilterVertices(4);
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("geom", Polygon.class);
+        encoder.setFeatureType(tb.buildFeatureType());
+
+        // both spatial tests are encoded the same, only the top level one can be refined
+        WKTReader reader = new WKTReader();
+        Filter excluded = FF.not(FF.intersects(FF.property("geom"),
+                FF.literal(reader.read("POLYGON ((0 0, 1 0, 1 1, 0 1, 0 0))"))));
+        Filter refined = FF.intersects(FF.property("geom"),
+                FF.literal(reader.read("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))")));
+        Filter filter = FF.and(excluded, refined);
+        StringBuffer sql = new StringBuffer("SELECT * FROM roads ");
+        sql.append(encoder.encodeToString(filter));
+
+        List<ReadPipeline.Refinement> refinements = dialect.relaxSpatialFilters(sql,
+                new Query("roads", filter));
+        assertEquals(1, refinements.size());
+        String relaxed = sql.toString();
+        int not = relaxed.indexOf("NOT");
+        int mbr = relaxed.indexOf(FilterToSqlHelper.MBR_INTERSECTS);
+        assertTrue(relaxed, not >= 0 && mbr > not);
+        assertEquals(relaxed, mbr, relaxed.lastIndexOf(FilterToSqlHelper.MBR_INTERSECTS));
+        assertTrue(relaxed.substring(not, mbr).contains(refinements.get(0).exact));
+    }
+
+    @Test
+    public void testIndexExtentFailure() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("geom", Polygon.class);
+        SimpleFeatureType featureType = tb.buildFeatureType();
+
+        // the names are bound, a failure other than a missing function does not disable it
+        List<String> calls = new ArrayList<String>();
+        assertNull(dialect.getIndexExtent("gis", featureType, failing("XX000", calls)));
+        assertTrue(dialect.indexExtentSupported);
+        assertEquals(Arrays.asList("SELECT ST_ASBINARY(ST_ESTIMATED_EXTENT(?, ?, ?))", "1=gis",
+                "2=roads", "3=geom"), calls);
+
+        calls.clear();
+        assertNull(dialect.getIndexExtent(null, featureType,
+                failing(KairosDialect.UNDEFINED_FUNCTION, calls)));
+        assertFalse(dialect.indexExtentSupported);
+        assertEquals(Arrays.asList("SELECT ST_ASBINARY(ST_ESTIMATED_EXTENT(?, ?))", "1=roads",
+                "2=geom"), calls);
+    }
+
+    /**
+     * Returns a connection whose prepared statements fail with the SQL state, recording the SQL
+     * and the bound values
+     */
+    static Connection failing(final String sqlState, final List<String> calls) {
+        return (Connection) Proxy.newProxyInstance(KairosDialectTest.class.getClassLoader(),
+                new Class[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getAutoCommit".equals(method.getName())) {
+                            return true;
+                        } else if (!"prepareStatement".equals(method.getName())) {
+                            return null;
+                        }
+                        calls.add((String) args[0]);
+                        return Proxy.newProxyInstance(KairosDialectTest.class.getClassLoader(),
+                                new Class[] { PreparedStatement.class }, new InvocationHandler() {
+                                    public Object invoke(Object proxy, Method method,
+                                            Object[] args) throws SQLException {
+                                        if ("setString".equals(method.getName())) {
+                                            calls.add(args[0] + "=" + args[1]);
+                                        } else if ("executeQuery".equals(method.getName())) {
+                                            throw new SQLException("failed", sqlState);
+                                        }
+                                        return null;
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Returns a result set positioned on a single row holding the values
+     */
+    static ResultSet resultSet(final Object... row) {
+        return (ResultSet) Proxy.newProxyInstance(KairosDialectTest.class.getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+                    Object last;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("wasNull".equals(method.getName())) {
+                            return last == null;
+                        }
+                        last = row[(Integer) args[0] - 1];
+                        return last;
+                    }
+                });
+    }
+}
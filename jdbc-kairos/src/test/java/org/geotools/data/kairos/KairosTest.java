@@ -19,6 +19,7 @@ import org.geotools.data.DefaultTransaction;
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
+import org.geotools.data.korean.WKBReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
@@ -28,6 +29,7 @@ import org.geotools.jdbc.JDBCDataStoreFactory;
 import org.geotools.util.URLs;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.opengis.feature.simple.SimpleFeature;
@@ -145,7 +147,7 @@ public class KairosTest {
             byte[] wkbBytes = rs.getBytes(1);
             Geometry geom;
             try {
-                geom = new WKBReader().read(wkbBytes);
+                geom = new WKBReader(new GeometryFactory(), true).read(wkbBytes);
                 System.out.println(geom.getGeometryType() + " = " + geom.getArea());
             } catch (ParseException e) {
                 e.printStackTrace();
@@ -31,6 +31,7 @@ import org.geotools.data.store.ContentDataStore;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentFeatureSource;
 import org.geotools.feature.NameImpl;
+import org.geotools.util.factory.Hints;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -68,7 +69,13 @@ public class PGDBDataStore extends ContentDataStore {
 
     protected FeatureReader<SimpleFeatureType, SimpleFeature> getFeatureReader(String typeName)
             throws IOException {
-        return new PGDBFeatureReader(getConnection(), getSchema(typeName));
+        return getFeatureReader(typeName, null);
+    }
+
+    protected FeatureReader<SimpleFeatureType, SimpleFeature> getFeatureReader(String typeName,
+            Hints hints) throws IOException {
+        boolean flat = hints != null && Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D));
+        return new PGDBFeatureReader(getConnection(), getSchema(typeName), flat);
     }
 
     @Override
@@ -94,10 +94,30 @@ public class PGDBDecoder {
 
     static final int SHPT_GENERALMULTIPATCH = 54;
 
+    boolean flat = false;
+
     public static PGDBDecoder newInstance() {
         return new PGDBDecoder();
     }
 
+    public static PGDBDecoder newInstance(boolean flat) {
+        PGDBDecoder decoder = new PGDBDecoder();
+        decoder.setFlat(flat);
+        return decoder;
+    }
+
+    public boolean isFlat() {
+        return flat;
+    }
+
+    /**
+     * Sets whether the decoded geometries are two dimensional, the Z values are skipped in the
+     * shape buffer without being read
+     */
+    public void setFlat(boolean flat) {
+        this.flat = flat;
+    }
+
     public int getGeneralShapeType(int shape) {
         switch (shape) {
         case SHPT_GENERALPOLYLINE:
@@ -223,28 +243,28 @@ public class PGDBDecoder {
     }
 
     private Geometry readPolygon(ByteBuffer buffer, boolean hasZ, boolean isMultiPatch) {
-        boolean flatFeature = false;
+        boolean flatFeature = flat;
         ShapeType shapeType = hasZ ? ShapeType.POLYGONZ : ShapeType.POLYGON;
         PolygonHandler handler = new PolygonHandler(gf);
         return (Geometry) handler.read(buffer, shapeType, flatFeature);
     }
 
     private Geometry readMultiLineString(ByteBuffer buffer, boolean hasZ, boolean isMultiPatch) {
-        boolean flatFeature = false;
+        boolean flatFeature = flat;
         ShapeType shapeType = hasZ ? ShapeType.ARCZ : ShapeType.ARC;
         MultiLineHandler handler = new MultiLineHandler(gf);
         return (Geometry) handler.read(buffer, shapeType, flatFeature);
     }
 
     private Geometry readMultiPoint(ByteBuffer buffer, boolean hasZ) {
-        boolean flatFeature = false;
+        boolean flatFeature = flat;
         ShapeType shapeType = hasZ ? ShapeType.MULTIPOINTZ : ShapeType.MULTIPOINT;
         MultiPointHandler handler = new MultiPointHandler(gf);
         return (Geometry) handler.read(buffer, shapeType, flatFeature);
     }
 
     private Geometry readPoint(ByteBuffer buffer, boolean hasZ) {
-        final int dimension = hasZ ? 3 : 2;
+        final int dimension = hasZ && !flat ? 3 : 2;
 
         CoordinateSequence cs = gf.getCoordinateSequenceFactory().create(1, dimension);
         cs.setOrdinate(0, 0, buffer.getDouble());
@@ -252,6 +272,8 @@ public class PGDBDecoder {
 
         if (dimension > 2) {
             cs.setOrdinate(0, 2, buffer.getDouble());
+        } else if (hasZ) {
+            buffer.position(buffer.position() + 8);
         }
 
         return gf.createPoint(cs);
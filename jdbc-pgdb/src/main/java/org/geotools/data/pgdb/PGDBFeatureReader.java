@@ -69,7 +69,15 @@ public class PGDBFeatureReader implements FeatureReader<SimpleFeatureType, Simpl
     GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
 
     public PGDBFeatureReader(Connection cx, SimpleFeatureType schema) {
+        this(cx, schema, false);
+    }
+
+    /**
+     * @param flat true if the geometries should be decoded as two dimensional ones
+     */
+    public PGDBFeatureReader(Connection cx, SimpleFeatureType schema, boolean flat) {
         this.cx = cx;
+        this.geomDecoder.setFlat(flat);
         this.schema = schema;
         this.geomBinding = schema.getGeometryDescriptor().getType().getBinding();
         this.fb = new SimpleFeatureBuilder(schema);
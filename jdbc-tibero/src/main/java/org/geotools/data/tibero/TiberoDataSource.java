@@ -0,0 +1,85 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.tibero;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.geotools.data.korean.DecoratingDataSource;
+
+/**
+ * Decorates the data source of a Tibero data store, see {@link DecoratingDataSource}. The
+ * unfiltered counts are read from the table statistics when the dialect estimates them, the
+ * dialect flags the counts while the data store builds them, see
+ * {@link TiberoDialect#encodeTableName(String, StringBuffer)}.
+ */
+public class TiberoDataSource extends DecoratingDataSource {
+
+    /** the dialect rewriting the unfiltered counts, null to run them as issued */
+    TiberoDialect countDialect;
+
+    public TiberoDataSource(DataSource wrapped) {
+        super(wrapped);
+    }
+
+    TiberoDialect getCountDialect() {
+        return countDialect;
+    }
+
+    /**
+     * Sets the dialect estimating the unfiltered counts, see
+     * {@link TiberoDialect#encodeEstimatedCount(String)}
+     */
+    void setCountDialect(TiberoDialect countDialect) {
+        this.countDialect = countDialect;
+    }
+
+    /**
+     * Estimates the statement if the dialect flagged it as a count, the SQL of the other
+     * statements is not looked at
+     */
+    @Override
+    protected Object[] rewrite(Connection cx, Object[] args) throws SQLException {
+        TiberoDialect dialect = countDialect;
+        if (dialect == null || !dialect.takeCountSelect()) {
+            return args;
+        }
+        return estimateCount(cx, args);
+    }
+
+    /**
+     * Returns the arguments with the SQL replaced by the estimated count if it counts a whole
+     * table, the arguments themselves otherwise. Counts in a transaction are left exact, the
+     * statistics do not know about its writes.
+     */
+    Object[] estimateCount(Connection cx, Object[] args) throws SQLException {
+        TiberoDialect dialect = countDialect;
+        if (dialect == null || !dialect.isEstimatedCountsEnabled() || args == null
+                || args.length == 0 || !(args[0] instanceof String) || !cx.getAutoCommit()) {
+            return args;
+        }
+        String sql = dialect.encodeEstimatedCount((String) args[0]);
+        if (sql == null) {
+            return args;
+        }
+        Object[] estimated = args.clone();
+        estimated[0] = sql;
+        return estimated;
+    }
+}
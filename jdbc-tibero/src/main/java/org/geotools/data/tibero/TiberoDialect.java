@@ -19,19 +19,32 @@ package org.geotools.data.tibero;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.logging.Level;
 
+import org.geotools.data.Query;
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.korean.DecodingDialect;
+import org.geotools.data.korean.DecoratingDataSource;
+import org.geotools.data.korean.ExtentCache;
+import org.geotools.data.korean.GeometryMetadataCatalog;
+import org.geotools.data.korean.ReadPipeline;
+import org.geotools.data.korean.WKBAttributeIO;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
@@ -50,19 +63,47 @@ import org.locationtech.jts.geom.MultiPoint;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
-import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.WKTReader;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
-public class TiberoDialect extends BasicSQLDialect {
+public class TiberoDialect extends BasicSQLDialect implements DecodingDialect {
 
     boolean looseBBOXEnabled = false;
 
     boolean estimatedExtentsEnabled = false;
 
+    int extentCacheTTL = 0;
+
+    String extentCacheTable;
+
+    ExtentCache extentCache;
+
+    final GeometryMetadataCatalog geometryMetadata = new GeometryMetadataCatalog();
+
+    boolean estimatedCountsEnabled = false;
+
+    int estimatedCountsMaxAge = DEFAULT_ESTIMATED_COUNTS_MAX_AGE;
+
+    boolean streamingDecodeEnabled = false;
+
+    boolean lazyDecodeEnabled = false;
+
+    boolean decimationEnabled = false;
+
+    boolean force2DEnabled = false;
+
+    boolean pointFastPathEnabled = false;
+
+    boolean twoPhaseFilterEnabled = false;
+
+    int twoPhaseFilterVertices = DEFAULT_TWO_PHASE_FILTER_VERTICES;
+
+    boolean simplifyEnabled = false;
+
     Version version;
 
     @SuppressWarnings({ "rawtypes", "serial" })
@@ -122,6 +163,214 @@ public class TiberoDialect extends BasicSQLDialect {
         this.estimatedExtentsEnabled = estimatedExtentsEnabled;
     }
 
+    public int getExtentCacheTTL() {
+        return extentCacheTTL;
+    }
+
+    /**
+     * Sets the number of seconds the optimized bounds are cached for, see {@link ExtentCache}, 0
+     * disables the cache
+     */
+    public void setExtentCacheTTL(int extentCacheTTL) {
+        this.extentCacheTTL = extentCacheTTL;
+        this.extentCache = createExtentCache();
+    }
+
+    public String getExtentCacheTable() {
+        return extentCacheTable;
+    }
+
+    /**
+     * Sets the table persisting the cached bounds, null to keep them in memory only
+     */
+    public void setExtentCacheTable(String extentCacheTable) {
+        this.extentCacheTable = extentCacheTable;
+        this.extentCache = createExtentCache();
+    }
+
+    ExtentCache createExtentCache() {
+        return extentCacheTTL > 0 ? new ExtentCache(extentCacheTTL * 1000L, extentCacheTable,
+                dataStore, "NUMBER") : null;
+    }
+
+    /**
+     * Drops the geometry metadata loaded from the GEOMETRY_COLUMNS table, see
+     * {@link GeometryMetadataCatalog}, so that it is loaded again on next use
+     */
+    public void refreshGeometryMetadata() {
+        geometryMetadata.refresh();
+    }
+
+    public boolean isEstimatedCountsEnabled() {
+        return estimatedCountsEnabled;
+    }
+
+    public void setEstimatedCountsEnabled(boolean estimatedCountsEnabled) {
+        this.estimatedCountsEnabled = estimatedCountsEnabled;
+    }
+
+    public int getEstimatedCountsMaxAge() {
+        return estimatedCountsMaxAge;
+    }
+
+    /**
+     * Sets the number of hours the table statistics are trusted for, older statistics fall back
+     * to the exact count
+     */
+    public void setEstimatedCountsMaxAge(int estimatedCountsMaxAge) {
+        this.estimatedCountsMaxAge = estimatedCountsMaxAge;
+    }
+
+    /**
+     * Flags the counts the data store builds, their SQL starts with the count before the table
+     * name is encoded. The {@link TiberoDataSource} only tries to estimate the statement issued
+     * after a flag, see {@link #takeCountSelect()}.
+     */
+    @Override
+    public void encodeTableName(String raw, StringBuffer sql) {
+        if (estimatedCountsEnabled && COUNT_SELECT.matcher(sql).lookingAt()) {
+            countSelect.set(Boolean.TRUE);
+        }
+        super.encodeTableName(raw, sql);
+    }
+
+    /**
+     * Returns true if the data store built a count on this thread since the last call, clearing
+     * the flag
+     */
+    boolean takeCountSelect() {
+        if (countSelect.get() == null) {
+            return false;
+        }
+        countSelect.remove();
+        return true;
+    }
+
+    /**
+     * Returns the select reading the row count of the optimizer statistics in place of a count of
+     * the whole table, the exact count when the table was never analyzed or its statistics are
+     * older than the maximum age. Returns null when the SQL is not an unfiltered table count.
+     */
+    public String encodeEstimatedCount(String sql) {
+        Matcher matcher = COUNT_ALL.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        String owner = matcher.group(1) == null ? "USER" : quote(matcher.group(1));
+        return "SELECT COALESCE((SELECT NUM_ROWS FROM ALL_TABLES WHERE OWNER = " + owner
+                + " AND TABLE_NAME = " + quote(matcher.group(2))
+                + " AND LAST_ANALYZED >= SYSDATE - " + estimatedCountsMaxAge + " / 24), ("
+                + sql.trim() + ")) FROM DUAL";
+    }
+
+    static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    public boolean isStreamingDecodeEnabled() {
+        return streamingDecodeEnabled;
+    }
+
+    public void setStreamingDecodeEnabled(boolean streamingDecodeEnabled) {
+        this.streamingDecodeEnabled = streamingDecodeEnabled;
+    }
+
+    public boolean isLazyDecodeEnabled() {
+        return lazyDecodeEnabled;
+    }
+
+    public void setLazyDecodeEnabled(boolean lazyDecodeEnabled) {
+        this.lazyDecodeEnabled = lazyDecodeEnabled;
+    }
+
+    public boolean isDecimationEnabled() {
+        return decimationEnabled;
+    }
+
+    /**
+     * Enables the decimation and clipping of geometries while decoding them, driven by the
+     * {@link Hints#GEOMETRY_DISTANCE} hint and the query area. When the server side simplification
+     * is disabled the {@link Hints#GEOMETRY_SIMPLIFICATION} hint drives it too.
+     */
+    public void setDecimationEnabled(boolean decimationEnabled) {
+        this.decimationEnabled = decimationEnabled;
+    }
+
+    public boolean isForce2DEnabled() {
+        return force2DEnabled;
+    }
+
+    /**
+     * Enables decoding the X and Y ordinates only, the Z ordinates are skipped in the WKB without
+     * being read. Single queries can ask for it as well through the {@link Hints#FEATURE_2D} hint.
+     */
+    public void setForce2DEnabled(boolean force2DEnabled) {
+        this.force2DEnabled = force2DEnabled;
+    }
+
+    public boolean isPointFastPathEnabled() {
+        return pointFastPathEnabled;
+    }
+
+    /**
+     * Enables decoding the geometries of point columns straight from the WKB bytes, bypassing the
+     * general WKB reader
+     */
+    public void setPointFastPathEnabled(boolean pointFastPathEnabled) {
+        this.pointFastPathEnabled = pointFastPathEnabled;
+    }
+
+    public boolean isTwoPhaseFilterEnabled() {
+        return twoPhaseFilterEnabled;
+    }
+
+    /**
+     * Enables two phase filtering: feature selects only send MBR tests for large filter geometries
+     * and the read pipeline applies the exact tests, requires the read pipeline
+     */
+    public void setTwoPhaseFilterEnabled(boolean twoPhaseFilterEnabled) {
+        this.twoPhaseFilterEnabled = twoPhaseFilterEnabled;
+    }
+
+    public int getTwoPhaseFilterVertices() {
+        return twoPhaseFilterVertices;
+    }
+
+    /**
+     * Sets the minimum number of vertices of a filter geometry for two phase filtering
+     */
+    public void setTwoPhaseFilterVertices(int twoPhaseFilterVertices) {
+        this.twoPhaseFilterVertices = twoPhaseFilterVertices;
+    }
+
+    /**
+     * Returns true if the geometries of the given column are decoded through the point fast path
+     */
+    public boolean isPointFastPath(GeometryDescriptor descriptor) {
+        return pointFastPathEnabled && descriptor != null
+                && Point.class.equals(descriptor.getType().getBinding());
+    }
+
+    /**
+     * Returns true if the geometries read with the given query hints should be two dimensional
+     */
+    public boolean isForce2D(Hints hints) {
+        return force2DEnabled
+                || (hints != null && Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D)));
+    }
+
+    public boolean isSimplifyEnabled() {
+        return simplifyEnabled;
+    }
+
+    /**
+     * Enables the usage of {@code ST_SIMPLIFY} for geometry simplification, disabled by default
+     */
+    public void setSimplifyEnabled(boolean simplifyEnabled) {
+        this.simplifyEnabled = simplifyEnabled;
+    }
+
     @Override
     public boolean isAggregatedSortSupported(String function) {
         return "distinct".equalsIgnoreCase(function);
@@ -178,26 +427,227 @@ public class TiberoDialect extends BasicSQLDialect {
 
     ThreadLocal<WKBAttributeIO> wkbReader = new ThreadLocal<WKBAttributeIO>();
 
+    /** default number of hours the table statistics are trusted for estimated counts */
+    public static final int DEFAULT_ESTIMATED_COUNTS_MAX_AGE = 24;
+
+    /** the count of a whole table issued by the data store for an unfiltered query */
+    static final Pattern COUNT_ALL = Pattern.compile(
+            "\\s*SELECT\\s+count\\(\\*\\)\\s+FROM\\s+(?:\"([^\"]+)\"\\.)?\"([^\"]+)\"\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    /** the start of the counts built by the data store, up to the table name */
+    static final Pattern COUNT_SELECT = Pattern.compile(
+            "\\s*SELECT\\s+count\\(\\*\\)\\s+FROM\\s+", Pattern.CASE_INSENSITIVE);
+
+    /** set by {@link #encodeTableName} when the data store builds a count */
+    final ThreadLocal<Boolean> countSelect = new ThreadLocal<Boolean>();
+
+    /** default minimum number of vertices of a filter geometry for two phase filtering */
+    public static final int DEFAULT_TWO_PHASE_FILTER_VERTICES = 1000;
+
+    /** The hints of the last feature select, picked up by {@link #onSelect} */
+    ThreadLocal<Hints> selectHints = new ThreadLocal<Hints>();
+
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
             GeometryFactory factory, Connection cx) throws IOException, SQLException {
-        WKBAttributeIO reader = getWKBReader(factory);
-        return (Geometry) reader.read(rs, column);
+        return decodeGeometryValue(descriptor, rs, column, factory, cx, null);
     }
 
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
             GeometryFactory factory, Connection cx) throws IOException, SQLException {
-        WKBAttributeIO reader = getWKBReader(factory);
-        return (Geometry) reader.read(rs, column);
+        return decodeGeometryValue(descriptor, rs, column, factory, cx, null);
     }
 
     @Override
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
             GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
-        WKBAttributeIO reader = getWKBReader(factory);
+        if (rs instanceof ReadPipeline.DecodedResultSet) {
+            return ((ReadPipeline.DecodedResultSet) rs).getGeometry(column, factory);
+        }
+        WKBAttributeIO reader = getWKBReader(factory, hints);
+        reader.setPoints(isPointFastPath(descriptor));
+        return (Geometry) reader.read(rs, column);
+    }
+
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        if (rs instanceof ReadPipeline.DecodedResultSet) {
+            return ((ReadPipeline.DecodedResultSet) rs).getGeometry(column, factory);
+        }
+        WKBAttributeIO reader = getWKBReader(factory, hints);
+        reader.setPoints(isPointFastPath(descriptor));
         return (Geometry) reader.read(rs, column);
     }
 
+    @Override
+    public void handleSelectHints(StringBuffer sql, SimpleFeatureType featureType, Query query) {
+        List<ReadPipeline.Refinement> refinements = relaxSpatialFilters(sql, query);
+
+        if (query.getHints() == null && refinements == null) {
+            // do not leave the hints of an earlier select behind for onSelect
+            selectHints.remove();
+            return;
+        }
+        // the query hints are the caller's, the select ones are added to a copy
+        Hints hints = query.getHints() == null ? new Hints() : new Hints(query.getHints());
+
+        // derive the clip envelope from the query area, a few pixels larger
+        Double distance = getDecimationDistance(hints);
+        Envelope clip = null;
+        if (distance != null && distance > 0 && query.getFilter() != null) {
+            Envelope bounds = (Envelope) query.getFilter().accept(
+                    ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+            if (bounds != null && !bounds.isNull() && !Double.isInfinite(bounds.getWidth())
+                    && !Double.isInfinite(bounds.getHeight())) {
+                clip = new Envelope(bounds);
+                clip.expandBy(distance * 2);
+            }
+        }
+        if (clip != null) {
+            hints.put(ReadPipeline.CLIP_ENVELOPE, clip);
+        } else {
+            hints.remove(ReadPipeline.CLIP_ENVELOPE);
+        }
+        if (refinements != null) {
+            hints.put(ReadPipeline.REFINEMENTS, refinements);
+        } else {
+            hints.remove(ReadPipeline.REFINEMENTS);
+        }
+        selectHints.set(hints);
+    }
+
+    /**
+     * Swaps the exact spatial tests recorded while encoding the filter of a feature select for
+     * their MBR tests, returns the exact tests left to the read pipeline, or null if there are none
+     */
+    List<ReadPipeline.Refinement> relaxSpatialFilters(StringBuffer sql, Query query) {
+        List<ReadPipeline.Refinement> recorded = FilterToSqlHelper.REFINEMENTS.get();
+        FilterToSqlHelper.REFINEMENTS.remove();
+        // a limit or an offset would apply to the candidates instead of the refined rows
+        if (recorded == null || !twoPhaseFilterEnabled || !query.isMaxFeaturesUnlimited()
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)) {
+            return null;
+        }
+
+        // only the top level conjuncts can be refined apart from the rest of the filter
+        List<Filter> conjuncts = new ArrayList<Filter>();
+        addConjuncts(query.getFilter(), conjuncts);
+        String[] properties = query.getPropertyNames();
+
+        // the same SQL text can occur more than once, the tests are located by their offset in the
+        // filter encoded last, and swapped from the last one so that the other offsets still hold
+        String where = recorded.get(recorded.size() - 1).where;
+        int start = where == null ? -1 : sql.lastIndexOf(where);
+        if (start < 0) {
+            return null;
+        }
+        List<ReadPipeline.Refinement> candidates = new ArrayList<ReadPipeline.Refinement>(recorded);
+        Collections.reverse(candidates);
+        List<ReadPipeline.Refinement> refinements = new ArrayList<ReadPipeline.Refinement>();
+        for (ReadPipeline.Refinement refinement : candidates) {
+            if (refinement.where != where || refinement.offset < 0
+                    || !conjuncts.contains(refinement.filter)
+                    || !isSelected(properties, refinement.attribute)) {
+                continue;
+            }
+            int index = start + refinement.offset;
+            int end = index + refinement.exact.length();
+            if (end <= sql.length() && refinement.exact.equals(sql.substring(index, end))) {
+                sql.replace(index, end, refinement.mbr);
+                refinements.add(0, refinement);
+            }
+        }
+        return refinements.isEmpty() ? null : refinements;
+    }
+
+    void addConjuncts(Filter filter, List<Filter> conjuncts) {
+        if (filter instanceof And) {
+            for (Filter child : ((And) filter).getChildren()) {
+                addConjuncts(child, conjuncts);
+            }
+        } else if (filter != null) {
+            conjuncts.add(filter);
+        }
+    }
+
+    boolean isSelected(String[] properties, String attribute) {
+        if (properties == null) {
+            return true;
+        }
+        for (String property : properties) {
+            if (property.equalsIgnoreCase(attribute)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onInsert(Statement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        invalidateExtent(featureType, cx);
+    }
+
+    @Override
+    public void onUpdate(Statement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        invalidateExtent(featureType, cx);
+    }
+
+    @Override
+    public void onDelete(Statement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        invalidateExtent(featureType, cx);
+    }
+
+    /**
+     * Drops the cached bounds of a feature type being written, once its transaction commits, see
+     * {@link ExtentCache#invalidate}
+     */
+    void invalidateExtent(SimpleFeatureType featureType, Connection cx) {
+        ExtentCache cache = extentCache;
+        if (cache != null && featureType != null) {
+            cache.invalidate(featureType, cx);
+        }
+    }
+
+    @Override
+    public void onSelect(Statement select, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        Hints hints = selectHints.get();
+        try {
+            // flag feature selects, so that the read pipeline can pick them up
+            if (select instanceof DecoratingDataSource.FeatureSelect) {
+                ((DecoratingDataSource.FeatureSelect) select).setFeatureType(featureType, hints);
+            }
+        } finally {
+            selectHints.remove();
+            FilterToSqlHelper.REFINEMENTS.remove();
+        }
+    }
+
     WKBAttributeIO getWKBReader(GeometryFactory factory) {
+        return getWKBReader(factory, null);
+    }
+
+    /**
+     * Returns the tolerance geometries are decimated by while decoding, null if decimation is
+     * disabled or not requested. The {@link Hints#GEOMETRY_SIMPLIFICATION} distance is honoured
+     * too when the geometries are not simplified on the server.
+     */
+    public Double getDecimationDistance(Hints hints) {
+        if (!decimationEnabled || hints == null) {
+            return null;
+        }
+        Double distance = (Double) hints.get(Hints.GEOMETRY_DISTANCE);
+        if (distance == null && !simplifyEnabled) {
+            distance = (Double) hints.get(Hints.GEOMETRY_SIMPLIFICATION);
+        }
+        return distance;
+    }
+
+    WKBAttributeIO getWKBReader(GeometryFactory factory, Hints hints) {
         WKBAttributeIO reader = wkbReader.get();
         if (reader == null) {
             reader = new WKBAttributeIO(factory);
@@ -205,6 +655,15 @@ public class TiberoDialect extends BasicSQLDialect {
         } else {
             reader.setGeometryFactory(factory);
         }
+        reader.setStreaming(streamingDecodeEnabled);
+        reader.setLazy(lazyDecodeEnabled);
+        reader.setForce2D(isForce2D(hints));
+        Double distance = getDecimationDistance(hints);
+        if (distance != null) {
+            reader.setDecimation(distance, (Envelope) hints.get(ReadPipeline.CLIP_ENVELOPE));
+        } else {
+            reader.setDecimation(0, null);
+        }
         return reader;
     }
 
@@ -216,11 +675,58 @@ public class TiberoDialect extends BasicSQLDialect {
         sql.append(")");
     }
 
+    @Override
+    public void addSupportedHints(Set<Hints.Key> hints) {
+        hints.add(Hints.FEATURE_2D);
+        if (simplifyEnabled) {
+            hints.add(Hints.GEOMETRY_SIMPLIFICATION);
+            hints.add(Hints.GEOMETRY_GENERALIZATION);
+        }
+        if (decimationEnabled) {
+            hints.add(Hints.GEOMETRY_DISTANCE);
+            if (!simplifyEnabled) {
+                // the renderers prefer the simplification hint, decimate with its distance
+                hints.add(Hints.GEOMETRY_SIMPLIFICATION);
+            }
+        }
+    }
+
+    @Override
+    public void encodeGeometryColumnGeneralized(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        encodeGeometryColumnSimplified(gatt, prefix, srid, sql, distance);
+    }
+
+    @Override
+    public void encodeGeometryColumnSimplified(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        Class<?> binding = gatt.getType().getBinding();
+        if (!simplifyEnabled || distance == null || distance <= 0
+                || Point.class.isAssignableFrom(binding)
+                || MultiPoint.class.isAssignableFrom(binding)) {
+            // nothing to simplify
+            encodeGeometryColumn(gatt, prefix, srid, null, sql);
+            return;
+        }
+
+        sql.append(" ST_ASBINARY(ST_SIMPLIFY(");
+        encodeColumnName(prefix, gatt.getLocalName(), sql);
+        sql.append(", ").append(distance).append("))");
+    }
+
+    /**
+     * Encodes the envelope as four aggregated min/max columns, so a single row of plain numbers
+     * comes back. {@link #decodeGeometryEnvelope} maps the column of the n-th envelope to its
+     * four columns, which relies on the bounds query selecting envelopes only.
+     */
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
-        sql.append(" ST_ASTEXT(ST_ENVELOPE(");
-        encodeColumnName(null, geometryColumn, sql);
-        sql.append("))");
+        String[] functions = { "MIN(ST_MINX(", "MIN(ST_MINY(", "MAX(ST_MAXX(", "MAX(ST_MAXY(" };
+        for (int i = 0; i < functions.length; i++) {
+            sql.append(i == 0 ? " " : ", ").append(functions[i]);
+            encodeColumnName(null, geometryColumn, sql);
+            sql.append("))");
+        }
     }
 
     @Override
@@ -238,6 +744,22 @@ public class TiberoDialect extends BasicSQLDialect {
             return null;
         }
 
+        ExtentCache cache = extentCache;
+        if (cache == null) {
+            return computeOptimizedBounds(schema, featureType, cx);
+        }
+        List<ReferencedEnvelope> bounds = cache.get(featureType, cx);
+        if (bounds == null) {
+            bounds = computeOptimizedBounds(schema, featureType, cx);
+            if (bounds != null) {
+                cache.put(featureType, bounds, cx);
+            }
+        }
+        return bounds;
+    }
+
+    List<ReferencedEnvelope> computeOptimizedBounds(String schema, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
         String tableName = featureType.getTypeName();
         if (dataStore.getVirtualTables().get(tableName) != null) {
             return null;
@@ -302,17 +824,16 @@ public class TiberoDialect extends BasicSQLDialect {
     @Override
     public Envelope decodeGeometryEnvelope(ResultSet rs, int column, Connection cx)
             throws SQLException, IOException {
-        try {
-            String envelope = rs.getString(column);
-            if (envelope != null) {
-                return new WKTReader().read(envelope).getEnvelopeInternal();
-            } else {
-                return new Envelope();
-            }
-        } catch (ParseException e) {
-            throw (IOException) new IOException("Error occurred parsing the bounds WKT")
-                    .initCause(e);
+        int first = (column - 1) * 4 + 1;
+        double minX = rs.getDouble(first);
+        if (rs.wasNull()) {
+            // no rows, or only null geometries
+            return new Envelope();
         }
+        double minY = rs.getDouble(first + 1);
+        double maxX = rs.getDouble(first + 2);
+        double maxY = rs.getDouble(first + 3);
+        return new Envelope(minX, maxX, minY, maxY);
     }
 
     @SuppressWarnings("rawtypes")
@@ -330,7 +851,7 @@ public class TiberoDialect extends BasicSQLDialect {
 
         String gType = null;
         if ("geometry".equalsIgnoreCase(typeName)) {
-            gType = lookupGeometryType(columnMetaData, cx, "geometry_columns", "f_geometry_column");
+            gType = lookupGeometryType(columnMetaData, cx);
         } else {
             return null;
         }
@@ -349,26 +870,27 @@ public class TiberoDialect extends BasicSQLDialect {
         }
     }
 
-    String lookupGeometryType(ResultSet columnMetaData, Connection cx, String gTableName,
-            String gColumnName) throws SQLException {
+    String lookupGeometryType(ResultSet columnMetaData, Connection cx) throws SQLException {
         // grab the information we need to proceed
         String tableName = columnMetaData.getString("TABLE_NAME");
         String columnName = columnMetaData.getString("COLUMN_NAME");
         String schemaName = columnMetaData.getString("TABLE_SCHEM");
 
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
+        if (geometryMetadata.isLoaded(cx)) {
+            GeometryMetadataCatalog.Entry entry = geometryMetadata.get(schemaName, tableName,
+                    columnName, cx);
+            return entry != null ? entry.type : null;
+        }
+
+        // the geometry metadata could not be loaded at once, query the column alone
+        PreparedStatement statement = null;
         ResultSet result = null;
 
         try {
-            String sqlStatement = "SELECT F_GEOMETRY_TYPE FROM " + gTableName + " WHERE " //
-                    + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                    + "AND F_TABLE_NAME = '" + tableName + "' " //
-                    + "AND " + gColumnName + " = '" + columnName + "'";
-
-            LOGGER.log(Level.FINE, "Geometry type check; {0} ", sqlStatement);
-            statement = cx.createStatement();
-            result = statement.executeQuery(sqlStatement);
+            statement = GeometryMetadataCatalog.prepareColumnQuery(
+                    "SELECT F_GEOMETRY_TYPE FROM GEOMETRY_COLUMNS", schemaName, tableName,
+                    columnName, cx);
+            result = statement.executeQuery();
 
             if (result.next()) {
                 return result.getString(1);
@@ -388,57 +910,37 @@ public class TiberoDialect extends BasicSQLDialect {
         String columnName = columnMetaData.getString("COLUMN_NAME");
         String schemaName = columnMetaData.getString("TABLE_SCHEM");
 
-        String sql = "SELECT udt_name FROM information_schema.columns " + " WHERE table_schema = '"
-                + schemaName + "' " + " AND table_name = '" + tableName + "' "
-                + " AND column_name = '" + columnName + "' ";
-        LOGGER.fine(sql);
-
-        Statement st = cx.createStatement();
-        try {
-            ResultSet rs = st.executeQuery(sql);
-            try {
-                if (rs.next()) {
-                    metadata.setTypeName(rs.getString(1));
-                }
-            } finally {
-                dataStore.closeSafe(rs);
-            }
-        } finally {
-            dataStore.closeSafe(st);
+        String typeName = geometryMetadata.getUdtName(schemaName, tableName, columnName, cx);
+        if (typeName != null) {
+            metadata.setTypeName(typeName);
         }
     }
 
     @Override
     public Integer getGeometrySRID(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
+        if (geometryMetadata.isLoaded(cx)) {
+            GeometryMetadataCatalog.Entry entry = geometryMetadata.get(schemaName, tableName,
+                    columnName, cx);
+            return entry != null ? entry.srid : null;
+        }
+
+        // the geometry metadata could not be loaded at once, query the column alone
+        PreparedStatement statement = null;
         ResultSet result = null;
         Integer srid = null;
         try {
-            // try geometry_columns
-            try {
-                String sqlStatement = "SELECT SRID FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
+            statement = GeometryMetadataCatalog.prepareColumnQuery(
+                    "SELECT SRID FROM GEOMETRY_COLUMNS", schemaName, tableName, columnName, cx);
+            result = statement.executeQuery();
 
-                LOGGER.log(Level.FINE, "Geometry srid check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
-
-                if (result.next()) {
-                    srid = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
-                        + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            if (result.next()) {
+                srid = result.getInt(1);
             }
-
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         } finally {
             dataStore.closeSafe(result);
             dataStore.closeSafe(statement);
@@ -450,34 +952,29 @@ public class TiberoDialect extends BasicSQLDialect {
     @Override
     public int getGeometryDimension(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
+        if (geometryMetadata.isLoaded(cx)) {
+            GeometryMetadataCatalog.Entry entry = geometryMetadata.get(schemaName, tableName,
+                    columnName, cx);
+            return entry != null ? entry.dimension : 2;
+        }
+
+        // the geometry metadata could not be loaded at once, query the column alone
+        PreparedStatement statement = null;
         ResultSet result = null;
         int dimension = 2; // default
         try {
-            // try geometry_columns
-            try {
-                String sqlStatement = "SELECT COORD_DIMENSION FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
+            statement = GeometryMetadataCatalog.prepareColumnQuery(
+                    "SELECT COORD_DIMENSION FROM GEOMETRY_COLUMNS", schemaName, tableName,
+                    columnName, cx);
+            result = statement.executeQuery();
 
-                LOGGER.log(Level.FINE, "Geometry dimension check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
-
-                if (result.next()) {
-                    dimension = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
-                        + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            if (result.next()) {
+                dimension = result.getInt(1);
             }
-
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         } finally {
             dataStore.closeSafe(result);
             dataStore.closeSafe(statement);
@@ -718,6 +1215,8 @@ public class TiberoDialect extends BasicSQLDialect {
             }
             cx.commit();
         } finally {
+            // the geometry columns changed
+            geometryMetadata.refresh();
             dataStore.closeSafe(st);
         }
     }
@@ -734,6 +1233,8 @@ public class TiberoDialect extends BasicSQLDialect {
             LOGGER.fine(sql);
             st.execute(sql);
         } finally {
+            // the geometry columns changed
+            geometryMetadata.refresh();
             dataStore.closeSafe(st);
         }
     }
@@ -758,6 +1259,7 @@ public class TiberoDialect extends BasicSQLDialect {
     public FilterToSQL createFilterToSQL() {
         TiberoFilterToSQL sql = new TiberoFilterToSQL(this);
         sql.setLooseBBOXEnabled(looseBBOXEnabled);
+        sql.setTwoPhaseFilterVertices(twoPhaseFilterEnabled ? twoPhaseFilterVertices : 0);
         return sql;
     }
 
@@ -35,6 +35,38 @@ public class TiberoNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
         parameters.put(TiberoNGDataStoreFactory.LOOSEBBOX.key, TiberoNGDataStoreFactory.LOOSEBBOX);
         parameters.put(TiberoNGDataStoreFactory.PREPARED_STATEMENTS.key,
                 TiberoNGDataStoreFactory.PREPARED_STATEMENTS);
+        parameters.put(TiberoNGDataStoreFactory.STATEMENT_CACHE_SIZE.key,
+                TiberoNGDataStoreFactory.STATEMENT_CACHE_SIZE);
+        parameters.put(TiberoNGDataStoreFactory.FILTER_TEMPLATE_CACHE_SIZE.key,
+                TiberoNGDataStoreFactory.FILTER_TEMPLATE_CACHE_SIZE);
+        parameters.put(TiberoNGDataStoreFactory.EXTENT_CACHE_TTL.key,
+                TiberoNGDataStoreFactory.EXTENT_CACHE_TTL);
+        parameters.put(TiberoNGDataStoreFactory.EXTENT_CACHE_TABLE.key,
+                TiberoNGDataStoreFactory.EXTENT_CACHE_TABLE);
+        parameters.put(TiberoNGDataStoreFactory.ESTIMATED_COUNTS.key,
+                TiberoNGDataStoreFactory.ESTIMATED_COUNTS);
+        parameters.put(TiberoNGDataStoreFactory.ESTIMATED_COUNTS_MAX_AGE.key,
+                TiberoNGDataStoreFactory.ESTIMATED_COUNTS_MAX_AGE);
+        parameters.put(TiberoNGDataStoreFactory.STREAMING_DECODE.key,
+                TiberoNGDataStoreFactory.STREAMING_DECODE);
+        parameters.put(TiberoNGDataStoreFactory.SIMPLIFY.key, TiberoNGDataStoreFactory.SIMPLIFY);
+        parameters.put(TiberoNGDataStoreFactory.LAZY_DECODE.key,
+                TiberoNGDataStoreFactory.LAZY_DECODE);
+        parameters.put(TiberoNGDataStoreFactory.DECODE_DECIMATION.key,
+                TiberoNGDataStoreFactory.DECODE_DECIMATION);
+        parameters.put(TiberoNGDataStoreFactory.DECODE_2D.key, TiberoNGDataStoreFactory.DECODE_2D);
+        parameters.put(TiberoNGDataStoreFactory.POINT_FAST_PATH.key,
+                TiberoNGDataStoreFactory.POINT_FAST_PATH);
+        parameters.put(TiberoNGDataStoreFactory.READ_PIPELINE.key,
+                TiberoNGDataStoreFactory.READ_PIPELINE);
+        parameters.put(TiberoNGDataStoreFactory.READ_PIPELINE_QUEUE_DEPTH.key,
+                TiberoNGDataStoreFactory.READ_PIPELINE_QUEUE_DEPTH);
+        parameters.put(TiberoNGDataStoreFactory.READ_PIPELINE_THREADS.key,
+                TiberoNGDataStoreFactory.READ_PIPELINE_THREADS);
+        parameters.put(TiberoNGDataStoreFactory.TWO_PHASE_FILTER.key,
+                TiberoNGDataStoreFactory.TWO_PHASE_FILTER);
+        parameters.put(TiberoNGDataStoreFactory.TWO_PHASE_FILTER_VERTICES.key,
+                TiberoNGDataStoreFactory.TWO_PHASE_FILTER_VERTICES);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
     }
 }
@@ -0,0 +1,248 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.tibero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.geotools.data.Query;
+import org.geotools.data.korean.ReadPipeline;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.factory.Hints;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class TiberoDialectTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    JDBCDataStore dataStore;
+
+    TiberoDialect dialect;
+
+    @Before
+    public void setUp() {
+        dataStore = new JDBCDataStore();
+        dialect = new TiberoDialect(dataStore);
+    }
+
+    @Test
+    public void testEncodeGeometryEnvelope() {
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryEnvelope("ROADS", "GEOM", sql);
+        assertEquals(" MIN(ST_MINX(\"GEOM\")), MIN(ST_MINY(\"GEOM\")), MAX(ST_MAXX(\"GEOM\")), "
+                + "MAX(ST_MAXY(\"GEOM\"))", sql.toString());
+    }
+
+    @Test
+    public void testDecodeGeometryEnvelope() throws Exception {
+        // two envelopes, four columns each
+        ResultSet rs = resultSet(0d, 1d, 10d, 11d, 100d, 101d, 110d, 111d);
+        assertEquals(new Envelope(0, 10, 1, 11), dialect.decodeGeometryEnvelope(rs, 1, null));
+        assertEquals(new Envelope(100, 110, 101, 111), dialect.decodeGeometryEnvelope(rs, 2, null));
+    }
+
+    @Test
+    public void testDecodeEmptyGeometryEnvelope() throws Exception {
+        ResultSet rs = resultSet(0d, 1d, 10d, 11d, null, null, null, null);
+        assertTrue(dialect.decodeGeometryEnvelope(rs, 2, null).isNull());
+    }
+
+    @Test
+    public void testSimplifyOptIn() {
+        Set<Hints.Key> hints = new HashSet<Hints.Key>();
+        dialect.addSupportedHints(hints);
+        assertFalse(hints.contains(Hints.GEOMETRY_SIMPLIFICATION));
+
+        // decimated on the client when the server does not simplify
+        dialect.setDecimationEnabled(true);
+        dialect.addSupportedHints(hints);
+        assertTrue(hints.contains(Hints.GEOMETRY_SIMPLIFICATION));
+        assertEquals(2d, dialect.getDecimationDistance(new Hints(Hints.GEOMETRY_SIMPLIFICATION,
+                2d)), 0d);
+    }
+
+    @Test
+    public void testSelectHints() throws Exception {
+        dialect.setDecimationEnabled(true);
+        Hints queryHints = new Hints(Hints.GEOMETRY_DISTANCE, 1d);
+        Query query = new Query("roads", FF.bbox("geom", 0, 0, 10, 10, null));
+        query.setHints(queryHints);
+        dialect.handleSelectHints(new StringBuffer("SELECT * FROM roads"), null, query);
+
+        // the clip envelope goes to the select hints, the query ones are left alone
+        Hints hints = dialect.selectHints.get();
+        assertEquals(new Envelope(-2, 12, -2, 12), hints.get(ReadPipeline.CLIP_ENVELOPE));
+        assertEquals(1d, hints.get(Hints.GEOMETRY_DISTANCE));
+        assertNull(queryHints.get(ReadPipeline.CLIP_ENVELOPE));
+
+        // a select without hints does not pick up the previous ones
+        dialect.handleSelectHints(new StringBuffer("SELECT * FROM roads"), null,
+                new Query("roads"));
+        hints = dialect.selectHints.get();
+        assertTrue(hints == null || !hints.containsKey(ReadPipeline.CLIP_ENVELOPE));
+    }
+
+    @Test
+    public void testRelaxSpatialFilters() throws Exception {
+        dialect.setTwoPhaseFilterEnabled(true);
+        TiberoPSFilterToSql encoder = new TiberoPSFilterToSql(new TiberoPSDialect(dataStore, dialect));
+        encoder.setTwoPhaseFilterVertices(4);
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("geom", Polygon.class);
+        encoder.setFeatureType(tb.buildFeatureType());
+
+        // both spatial tests are encoded the same, only the top level one can be refined
+        WKTReader reader = new WKTReader();
+        Filter excluded = FF.not(FF.intersects(FF.property("geom"),
+                FF.literal(reader.read("POLYGON ((0 0, 1 0, 1 1, 0 1, 0 0))"))));
+        Filter refined = FF.intersects(FF.property("geom"),
+                FF.literal(reader.read("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))")));
+        Filter filter = FF.and(excluded, refined);
+        StringBuffer sql = new StringBuffer("SELECT * FROM roads ");
+        sql.append(encoder.encodeToString(filter));
+
+        List<ReadPipeline.Refinement> refinements = dialect.relaxSpatialFilters(sql,
+                new Query("roads", filter));
+        assertEquals(1, refinements.size());
+        String relaxed = sql.toString();
+        int not = relaxed.indexOf("NOT");
+        int mbr = relaxed.indexOf(FilterToSqlHelper.MBR_INTERSECTS);
+        assertTrue(relaxed, not >= 0 && mbr > not);
+        assertEquals(relaxed, mbr, relaxed.lastIndexOf(FilterToSqlHelper.MBR_INTERSECTS));
+        assertTrue(relaxed.substring(not, mbr).contains(refinements.get(0).exact));
+    }
+
+    @Test
+    public void testEncodeEstimatedCount() {
+        String count = "SELECT count(*) FROM \"ROADS\"";
+        assertEquals("SELECT COALESCE((SELECT NUM_ROWS FROM ALL_TABLES WHERE OWNER = USER"
+                + " AND TABLE_NAME = 'ROADS' AND LAST_ANALYZED >= SYSDATE - 24 / 24), ("
+                + count + ")) FROM DUAL", dialect.encodeEstimatedCount(count));
+
+        String estimated = dialect.encodeEstimatedCount("select COUNT(*) from \"GIS\".\"RO'ADS\" ");
+        assertTrue(estimated, estimated.contains("OWNER = 'GIS' AND TABLE_NAME = 'RO''ADS'"));
+    }
+
+    @Test
+    public void testEncodeEstimatedCountOthers() {
+        // filtered, joined and virtual table counts, and anything else, are left exact
+        assertNull(dialect.encodeEstimatedCount(
+                "SELECT count(*) FROM \"ROADS\" WHERE \"NAME\" = 'a'"));
+        assertNull(dialect.encodeEstimatedCount("SELECT count(*) FROM \"ROADS\" \"a\" "
+                + "INNER JOIN \"TOWNS\" \"b\" ON ( \"a\".\"TOWN\" = \"b\".\"ID\" )"));
+        assertNull(dialect.encodeEstimatedCount(
+                "SELECT count(*) FROM (SELECT * FROM \"ROADS\") \"vtable\""));
+        assertNull(dialect.encodeEstimatedCount("SELECT \"NAME\" FROM \"ROADS\""));
+    }
+
+    @Test
+    public void testEstimateCountInTransaction() throws Exception {
+        dialect.setEstimatedCountsEnabled(true);
+        TiberoDataSource dataSource = new TiberoDataSource(null);
+        dataSource.setCountDialect(dialect);
+
+        Object[] args = { count("ROADS") };
+        assertTrue(((String) dataSource.rewrite(connection(true), args)[0]).contains("NUM_ROWS"));
+        count("ROADS");
+        assertSame(args, dataSource.rewrite(connection(false), args));
+    }
+
+    @Test
+    public void testEstimateFlaggedCountsOnly() throws Exception {
+        dialect.setEstimatedCountsEnabled(true);
+        TiberoDataSource dataSource = new TiberoDataSource(null);
+        dataSource.setCountDialect(dialect);
+
+        // not built by the dialect, not looked at
+        Object[] args = { "SELECT count(*) FROM \"ROADS\"" };
+        assertSame(args, dataSource.rewrite(connection(true), args));
+
+        // the flag goes with the next statement
+        StringBuffer select = new StringBuffer("SELECT \"NAME\" FROM ");
+        dialect.encodeTableName("ROADS", select);
+        assertSame(args, dataSource.rewrite(connection(true), args));
+        count("ROADS");
+        Object[] other = { "SELECT \"NAME\" FROM \"ROADS\"" };
+        assertSame(other, dataSource.rewrite(connection(true), other));
+        assertSame(args, dataSource.rewrite(connection(true), args));
+
+        // not flagged when the estimates are off
+        dialect.setEstimatedCountsEnabled(false);
+        count("ROADS");
+        assertFalse(dialect.takeCountSelect());
+    }
+
+    /**
+     * Returns the count of the table the data store would build, through the dialect
+     */
+    String count(String table) {
+        StringBuffer sql = new StringBuffer("SELECT count(*) FROM ");
+        dialect.encodeTableName(table, sql);
+        return sql.toString();
+    }
+
+    static Connection connection(final boolean autoCommit) {
+        return (Connection) Proxy.newProxyInstance(TiberoDialectTest.class.getClassLoader(),
+                new Class[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getAutoCommit".equals(method.getName()) ? autoCommit : null;
+                    }
+                });
+    }
+
+    /**
+     * Returns a result set positioned on a single row holding the values
+     */
+    static ResultSet resultSet(final Object... row) {
+        return (ResultSet) Proxy.newProxyInstance(TiberoDialectTest.class.getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+                    Object last;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("wasNull".equals(method.getName())) {
+                            return last == null;
+                        }
+                        last = row[(Integer) args[0] - 1];
+                        if ("getDouble".equals(method.getName())) {
+                            return last == null ? 0d : last;
+                        }
+                        return last;
+                    }
+                });
+    }
+}
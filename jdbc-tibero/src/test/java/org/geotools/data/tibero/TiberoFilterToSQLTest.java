@@ -0,0 +1,154 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.tibero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.Converters;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Literal;
+import org.opengis.temporal.Period;
+
+public class TiberoFilterToSQLTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static final String BEGIN = "2020-01-15T12:00:00Z";
+
+    static final String END = "2020-02-15T12:00:00Z";
+
+    TiberoFilterToSQL encoder;
+
+    @Before
+    public void setUp() {
+        encoder = new TiberoFilterToSQL(new TiberoDialect(new JDBCDataStore()));
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("name", String.class);
+        tb.add("date", Date.class);
+        tb.add("geom", Polygon.class);
+        encoder.setFeatureType(tb.buildFeatureType());
+    }
+
+    @Test
+    public void testGeometryFunctions() throws Exception {
+        String sql = encoder.encodeToString(FF.greater(FF.function("area", FF.property("geom")),
+                FF.literal(10)));
+        assertTrue(sql, sql.contains("ST_Area(geom)"));
+
+        sql = encoder.encodeToString(FF.greater(FF.function("geomLength", FF.property("geom")),
+                FF.literal(10)));
+        assertTrue(sql, sql.contains("ST_Length(geom)"));
+
+        sql = encoder.encodeToString(FF.equals(FF.function("geometryType", FF.property("geom")),
+                FF.literal("Polygon")));
+        assertTrue(sql, sql.contains("CASE REPLACE(UPPER(ST_GeometryType(geom)), 'ST_', '')"));
+        assertTrue(sql, sql.contains("WHEN 'MULTIPOLYGON' THEN 'MultiPolygon'"));
+    }
+
+    @Test
+    public void testStringFunctions() throws Exception {
+        String sql = encoder.encodeToString(FF.equals(FF.function("strLength",
+                FF.property("name")), FF.literal(3)));
+        assertTrue(sql, sql.contains("LENGTH(name)"));
+
+        // zero based begin and end become a one based begin and a length
+        sql = encoder.encodeToString(FF.equals(FF.function("strSubstring", FF.property("name"),
+                FF.literal(1), FF.literal(3)), FF.literal("ab")));
+        assertTrue(sql, sql.contains("SUBSTR(name, 1 + 1, 3 - 1)"));
+    }
+
+    @Test
+    public void testMathFunctions() throws Exception {
+        String sql = encoder.encodeToString(FF.less(FF.function("floor", FF.function("abs",
+                FF.property("name"))), FF.function("ceil", FF.literal(2.5))));
+        assertTrue(sql, sql.contains("FLOOR(ABS(name))"));
+        assertTrue(sql, sql.contains("CEIL(2.5)"));
+    }
+
+    @Test
+    public void testPeriodString() {
+        Literal literal = FilterToSqlHelper.period(FF.literal(BEGIN + "/" + END));
+        Period period = (Period) literal.getValue();
+        assertEquals(Converters.convert(BEGIN, Date.class),
+                period.getBeginning().getPosition().getDate());
+        assertEquals(Converters.convert(END, Date.class),
+                period.getEnding().getPosition().getDate());
+
+        // instants and anything else are left alone
+        Literal instant = FF.literal(BEGIN);
+        assertSame(instant, FilterToSqlHelper.period(instant));
+        Literal other = FF.literal("a/b");
+        assertSame(other, FilterToSqlHelper.period(other));
+    }
+
+    @Test
+    public void testDuringPeriodString() throws Exception {
+        String sql = encoder.encodeToString(FF.during(FF.property("date"),
+                FF.literal(BEGIN + "/" + END)));
+        assertTrue(sql, sql.contains("date >"));
+        assertTrue(sql, sql.contains(" AND "));
+        assertTrue(sql, sql.contains("date <"));
+    }
+
+    static Filter equalities(String property, int count) {
+        List<Filter> equalities = new ArrayList<Filter>();
+        for (int i = 0; i < count; i++) {
+            equalities.add(FF.equals(FF.property(property), FF.literal("v" + i)));
+        }
+        return FF.or(equalities);
+    }
+
+    static int count(String sql, String token) {
+        int count = 0;
+        for (int i = sql.indexOf(token); i >= 0; i = sql.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testInList() throws Exception {
+        String sql = encoder.encodeToString(equalities("name", 3));
+        assertTrue(sql, sql.contains("name IN ('v0', 'v1', 'v2')"));
+        assertEquals(sql, 0, count(sql, "name = "));
+    }
+
+    @Test
+    public void testInListChunks() throws Exception {
+        String sql = encoder.encodeToString(equalities("name", 2 * FilterToSqlHelper.IN_LIST_SIZE
+                + 1));
+        assertEquals(3, count(sql, "name IN ("));
+        assertEquals(2, count(sql, ") OR name IN ("));
+        assertTrue(sql, sql.contains("'v999') OR name IN ('v1000', "));
+        assertTrue(sql, sql.endsWith("name IN ('v2000')))"));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.tibero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geotools.data.korean.FilterTemplate;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Literal;
+
+public class TiberoPSFilterToSqlTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static final String POLYGON = "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))";
+
+    TiberoPSFilterToSql encoder;
+
+    @Before
+    public void setUp() {
+        JDBCDataStore dataStore = new JDBCDataStore();
+        encoder = new TiberoPSFilterToSql(new TiberoPSDialect(dataStore, new TiberoDialect(dataStore)));
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("roads");
+        tb.add("name", String.class);
+        tb.add("ref", String.class);
+        tb.add("geom", Polygon.class);
+        encoder.setFeatureType(tb.buildFeatureType());
+    }
+
+    static Filter intersects() throws Exception {
+        return FF.intersects(FF.property("geom"), FF.literal(new WKTReader().read(POLYGON)));
+    }
+
+    @Test
+    public void testBindGeometry() throws Exception {
+        String sql = encoder.encodeToString(intersects());
+        assertTrue(sql, sql.contains("?"));
+        assertFalse(sql, sql.contains(POLYGON));
+        assertEquals(1, encoder.getLiteralValues().size());
+    }
+
+    @Test
+    public void testInlineGeometry() throws Exception {
+        encoder.setPrepareEnabled(false);
+        String sql = encoder.encodeToString(intersects());
+        assertTrue(sql, sql.contains("ST_GEOMFROMTEXT('" + POLYGON + "')"));
+        assertTrue(encoder.getLiteralValues().isEmpty());
+    }
+
+    static Filter equalNames(String name, String ref) {
+        return FF.and(FF.equals(FF.property("name"), FF.literal(name)),
+                FF.equals(FF.property("ref"), FF.literal(ref)));
+    }
+
+    FilterTemplate createTemplate(Filter filter) throws Exception {
+        String sql = encoder.encodeToString(filter);
+        List<Literal> literals = new ArrayList<Literal>();
+        FilterTemplate.fingerprint(filter, literals, 0);
+        return encoder.createTemplate(sql, literals);
+    }
+
+    @Test
+    public void testCreateTemplate() throws Exception {
+        FilterTemplate template = createTemplate(equalNames("a", "b"));
+        assertNotSame(FilterTemplate.UNCACHEABLE, template);
+        assertEquals(2, template.literals.length);
+        assertEquals(0, template.literals[0]);
+        assertEquals(1, template.literals[1]);
+    }
+
+    @Test
+    public void testCreateTemplateAmbiguous() throws Exception {
+        // which parameter comes from which literal cannot be told
+        assertSame(FilterTemplate.UNCACHEABLE, createTemplate(equalNames("a", "a")));
+    }
+
+    @Test
+    public void testApplyTemplate() throws Exception {
+        FilterTemplate.Cache templates = new FilterTemplate.Cache(10);
+        encoder.filterTemplates = templates;
+        String sql = encoder.encodeToString(FF.and(FF.equals(FF.property("name"),
+                FF.literal("a")), intersects()));
+        assertEquals(1, templates.size());
+
+        Geometry polygon = new WKTReader().read("POLYGON ((1 1, 5 1, 5 5, 1 1))");
+        polygon.setSRID(3857);
+        setUp();
+        encoder.filterTemplates = templates;
+        assertEquals(sql, encoder.encodeToString(FF.and(FF.equals(FF.property("name"),
+                FF.literal("b")), FF.intersects(FF.property("geom"), FF.literal(polygon)))));
+        assertEquals(1, templates.size());
+
+        // the new literals are bound, the SRID and dimension are the ones of the new geometry
+        assertEquals(Arrays.<Object> asList("b", polygon), encoder.getLiteralValues());
+        assertEquals(Integer.valueOf(3857), encoder.getSRIDs().get(1));
+        assertEquals(Integer.valueOf(2), encoder.getDimensions().get(1));
+    }
+
+    @Test
+    public void testTemplateOfOptimizedFilter() throws Exception {
+        FilterTemplate.Cache templates = new FilterTemplate.Cache(10);
+        encoder.filterTemplates = templates;
+
+        // the optimizer drops the contained box, what it drops depends on the literals
+        encoder.encodeToString(FF.or(FF.bbox("geom", 0, 0, 10, 10, null),
+                FF.bbox("geom", 1, 1, 2, 2, null)));
+        assertEquals(1, encoder.getLiteralValues().size());
+
+        setUp();
+        encoder.filterTemplates = templates;
+        encoder.encodeToString(FF.or(FF.bbox("geom", 0, 0, 10, 10, null),
+                FF.bbox("geom", 20, 20, 30, 30, null)));
+        assertEquals(2, encoder.getLiteralValues().size());
+
+        // both are keyed by the filter as given
+        assertEquals(1, templates.size());
+    }
+
+    @Test
+    public void testInListChunks() throws Exception {
+        List<Filter> equalities = new ArrayList<Filter>();
+        for (int i = 0; i <= FilterToSqlHelper.IN_LIST_SIZE; i++) {
+            equalities.add(FF.equals(FF.property("name"), FF.literal("v" + i)));
+        }
+        String sql = encoder.encodeToString(FF.or(equalities));
+
+        // every value is bound, in two lists of at most IN_LIST_SIZE parameters
+        assertEquals(FilterToSqlHelper.IN_LIST_SIZE + 1, encoder.getLiteralValues().size());
+        assertEquals("v1000", encoder.getLiteralValues().get(FilterToSqlHelper.IN_LIST_SIZE));
+        assertTrue(sql, sql.contains("?) OR name IN (?)"));
+        assertFalse(sql, sql.contains("v0"));
+    }
+}